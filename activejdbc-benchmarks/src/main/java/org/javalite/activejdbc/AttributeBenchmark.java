@@ -0,0 +1,76 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.Address;
+import org.javalite.activejdbc.benchmark_models.Person;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting and setting attributes, with and without converters. Person has a date format converter on "dob",
+ * address has no converters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AttributeBenchmark {
+
+    private Address address;
+    private Person person;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+        address = Address.findFirst("id = ?", 1);
+        person = Person.findFirst("id = ?", 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public Object get() {
+        return address.get("city");
+    }
+
+    @Benchmark
+    public String getString() {
+        return address.getString("city");
+    }
+
+    @Benchmark
+    public String getStringWithConverter() {
+        return person.getString("dob");
+    }
+
+    @Benchmark
+    public Object set() {
+        return address.set("city", "Chicago");
+    }
+
+    @Benchmark
+    public Object setWithConverter() {
+        return person.set("dob", "1980-02-03");
+    }
+}
@@ -0,0 +1,57 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.CacheEvent;
+import org.javalite.activejdbc.cache.CacheManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Simplest possible in-memory cache, so that cache benchmarks measure ActiveJDBC rather than a cache library.
+ */
+public class BenchmarkCacheManager extends CacheManager {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Object>> groups = new ConcurrentHashMap<>();
+
+    @Override
+    public Object getCache(String group, String key) {
+        ConcurrentMap<String, Object> cache = groups.get(group);
+        return cache == null ? null : cache.get(key);
+    }
+
+    @Override
+    public void addCache(String group, String key, Object cache) {
+        ConcurrentMap<String, Object> groupCache = groups.get(group);
+        if (groupCache == null) {
+            groups.putIfAbsent(group, new ConcurrentHashMap<String, Object>());
+            groupCache = groups.get(group);
+        }
+        groupCache.put(key, cache);
+    }
+
+    @Override
+    public void doFlush(CacheEvent event) {
+        if (event.getType() == CacheEvent.CacheEventType.ALL) {
+            groups.clear();
+        } else {
+            groups.remove(event.getGroup());
+        }
+    }
+}
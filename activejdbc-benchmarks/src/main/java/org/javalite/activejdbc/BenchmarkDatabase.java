@@ -0,0 +1,133 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.many.ManyModels;
+
+/**
+ * Schema and data of in-memory H2 database used by benchmarks.
+ */
+final class BenchmarkDatabase {
+
+    static final String DRIVER = "org.h2.Driver";
+    static final String URL = "jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1";
+    static final String MANY_URL = "jdbc:h2:mem:many;DB_CLOSE_DELAY=-1";
+    static final String USER = "sa";
+    static final String PASSWORD = "";
+
+    static final int USERS = 100;
+    static final int ADDRESSES_PER_USER = 10;
+    static final int DOCTORS = 50;
+    static final int PATIENTS = 200;
+    static final int PATIENTS_PER_DOCTOR = 20;
+    static final int ARTICLES = 100;
+    static final int COMMENTS_PER_ARTICLE = 10;
+    static final int PEOPLE = 1000;
+    static final int LIBRARIES = 10;
+
+    private static final String[] SCHEMA = {
+        "DROP TABLE IF EXISTS users",
+        "CREATE TABLE users (id int(11) NOT NULL auto_increment PRIMARY KEY, first_name VARCHAR(56), last_name VARCHAR(56), email VARCHAR(56))",
+        "DROP TABLE IF EXISTS addresses",
+        "CREATE TABLE addresses (id int(11) NOT NULL auto_increment PRIMARY KEY, address1 VARCHAR(56), address2 VARCHAR(56), city VARCHAR(56), state VARCHAR(56), zip VARCHAR(56), user_id int(11))",
+        "DROP TABLE IF EXISTS doctors",
+        "CREATE TABLE doctors (id int(11) NOT NULL auto_increment PRIMARY KEY, first_name VARCHAR(56), last_name VARCHAR(56), discipline VARCHAR(56))",
+        "DROP TABLE IF EXISTS patients",
+        "CREATE TABLE patients (id int(11) NOT NULL auto_increment PRIMARY KEY, first_name VARCHAR(56), last_name VARCHAR(56))",
+        "DROP TABLE IF EXISTS doctors_patients",
+        "CREATE TABLE doctors_patients (id int(11) NOT NULL auto_increment PRIMARY KEY, doctor_id int(11), patient_id int(11))",
+        "DROP TABLE IF EXISTS articles",
+        "CREATE TABLE articles (id int(11) NOT NULL auto_increment PRIMARY KEY, title VARCHAR(56), content TEXT)",
+        "DROP TABLE IF EXISTS comments",
+        "CREATE TABLE comments (id int(11) NOT NULL auto_increment PRIMARY KEY, author VARCHAR(56), content TEXT, parent_id int(11), parent_type VARCHAR(256))",
+        "DROP TABLE IF EXISTS people",
+        "CREATE TABLE people (id int(11) NOT NULL auto_increment PRIMARY KEY, name VARCHAR(56) NOT NULL, last_name VARCHAR(56), dob DATE, graduation_date DATE, created_at DATETIME, updated_at DATETIME)",
+        "DROP TABLE IF EXISTS libraries",
+        "CREATE TABLE libraries (id int(11) NOT NULL auto_increment PRIMARY KEY, address VARCHAR(56), city VARCHAR(56), state VARCHAR(56))"
+    };
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * Opens default connection, creates schema and populates it.
+     */
+    static void open() {
+        Base.open(DRIVER, URL, USER, PASSWORD);
+        for (String statement : SCHEMA) {
+            Base.exec(statement);
+        }
+        populate();
+    }
+
+    static void close() {
+        Base.close();
+    }
+
+    private static void populate() {
+        Base.openTransaction();
+        for (int u = 1; u <= USERS; u++) {
+            Base.exec("INSERT INTO users VALUES (?, ?, ?, ?)", u, "First" + u, "Last" + u, "user" + u + "@example.com");
+            for (int a = 1; a <= ADDRESSES_PER_USER; a++) {
+                Base.exec("INSERT INTO addresses (address1, address2, city, state, zip, user_id) VALUES (?, ?, ?, ?, ?, ?)",
+                        a + " Pine St.", "apt " + a, "Springfield", "IL", "60606", u);
+            }
+        }
+        for (int p = 1; p <= PATIENTS; p++) {
+            Base.exec("INSERT INTO patients VALUES (?, ?, ?)", p, "Patient" + p, "Last" + p);
+        }
+        for (int d = 1; d <= DOCTORS; d++) {
+            Base.exec("INSERT INTO doctors VALUES (?, ?, ?, ?)", d, "Doctor" + d, "Last" + d, "medicine");
+            for (int p = 0; p < PATIENTS_PER_DOCTOR; p++) {
+                Base.exec("INSERT INTO doctors_patients (doctor_id, patient_id) VALUES (?, ?)", d, (d * 7 + p) % PATIENTS + 1);
+            }
+        }
+        for (int a = 1; a <= ARTICLES; a++) {
+            Base.exec("INSERT INTO articles VALUES (?, ?, ?)", a, "Article " + a, "Content of article " + a);
+            for (int c = 1; c <= COMMENTS_PER_ARTICLE; c++) {
+                Base.exec("INSERT INTO comments (author, content, parent_id, parent_type) VALUES (?, ?, ?, ?)",
+                        "author" + c, "Comment " + c + " of article " + a, a, "org.javalite.activejdbc.benchmark_models.Article");
+            }
+        }
+        for (int p = 1; p <= PEOPLE; p++) {
+            Base.exec("INSERT INTO people (name, last_name, dob, graduation_date) VALUES (?, ?, ?, ?)",
+                    "Name" + p, "Last" + p, java.sql.Date.valueOf("1970-01-01"), java.sql.Date.valueOf("1990-06-01"));
+        }
+        for (int l = 1; l <= LIBRARIES; l++) {
+            Base.exec("INSERT INTO libraries VALUES (?, ?, ?, ?)", l, l + " Main St.", "Springfield", "IL");
+        }
+        Base.commitTransaction();
+    }
+
+    /**
+     * Opens connection "many" and creates a table for each of {@link ManyModels}.
+     */
+    static void openMany() {
+        new DB("many").open(DRIVER, MANY_URL, USER, PASSWORD);
+        for (int i = 1; i <= ManyModels.COUNT; i++) {
+            String table = String.format("w%03d_items", i);
+            new DB("many").exec("DROP TABLE IF EXISTS " + table);
+            new DB("many").exec("CREATE TABLE " + table + " (id int(11) NOT NULL auto_increment PRIMARY KEY, name VARCHAR(56), "
+                    + "description VARCHAR(256), created_at DATETIME, updated_at DATETIME"
+                    + (i > 1 ? String.format(", w%03d_item_id int(11)", i - 1) : "") + ")");
+        }
+    }
+
+    static void closeMany() {
+        new DB("many").close();
+    }
+}
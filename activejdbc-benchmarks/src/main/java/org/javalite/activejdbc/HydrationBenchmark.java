@@ -0,0 +1,64 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.Address;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creating model instances from rows already read from DB, and loading a whole {@link LazyList}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HydrationBenchmark {
+
+    private List<Map> rows;
+    private MetaModel metaModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+        rows = Base.findAll("SELECT * FROM addresses");
+        metaModel = ModelDelegate.metaModelOf(Address.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public void instance(Blackhole blackhole) {
+        for (Map row : rows) {
+            blackhole.consume(ModelDelegate.<Address>instance(row, metaModel));
+        }
+    }
+
+    @Benchmark
+    public int lazyList() {
+        return Address.findAll().size();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading models with {@link LazyList#include(Class[])} for each type of association.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IncludeBenchmark {
+
+    @Param({"belongsTo", "oneToMany", "manyToMany", "polymorphicChildren", "polymorphicParent"})
+    public String association;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public int include() {
+        switch (association) {
+            case "belongsTo":
+                return Address.findAll().include(User.class).size();
+            case "oneToMany":
+                return User.findAll().include(Address.class).size();
+            case "manyToMany":
+                return Doctor.findAll().include(Patient.class).size();
+            case "polymorphicChildren":
+                return Article.findAll().include(Comment.class).size();
+            case "polymorphicParent":
+                return Comment.findAll().include(Article.class).size();
+            default:
+                throw new IllegalArgumentException("unknown association: " + association);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.common.Inflector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Inflector} is used to derive table, association and attribute names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InflectorBenchmark {
+
+    private final String[] singulars = {"person", "address", "doctor", "patient", "library", "child", "status",
+            "category", "mouse", "matrix", "comment", "doctors_patient"};
+    private final String[] plurals = {"people", "addresses", "doctors", "patients", "libraries", "children",
+            "statuses", "categories", "mice", "matrices", "comments", "doctors_patients"};
+
+    @Benchmark
+    public void pluralize(Blackhole blackhole) {
+        for (String word : singulars) {
+            blackhole.consume(Inflector.pluralize(word));
+        }
+    }
+
+    @Benchmark
+    public void singularize(Blackhole blackhole) {
+        for (String word : plurals) {
+            blackhole.consume(Inflector.singularize(word));
+        }
+    }
+}
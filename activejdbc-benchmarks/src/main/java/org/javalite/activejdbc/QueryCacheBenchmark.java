@@ -0,0 +1,60 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.Library;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit path of the query cache: finding a cached model list, and looking up the cache directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QueryCacheBenchmark {
+
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+        LazyList<Library> libraries = Library.findAll();
+        libraries.size(); // puts the list to cache
+        sql = libraries.toSql(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public int cachedFindAll() {
+        return Library.findAll().size();
+    }
+
+    @Benchmark
+    public Object getItem() {
+        return QueryCache.instance().getItem("libraries", sql, new Object[0]);
+    }
+}
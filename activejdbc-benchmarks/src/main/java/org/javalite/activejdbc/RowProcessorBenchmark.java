@@ -0,0 +1,61 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Iterating a result set of {@value BenchmarkDatabase#USERS} x {@value BenchmarkDatabase#ADDRESSES_PER_USER} rows
+ * into maps, see {@link RowProcessor#processRS(RowListener)}. Each invocation also executes the query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RowProcessorBenchmark {
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public void processRS(final Blackhole blackhole) {
+        Base.find("SELECT * FROM addresses").with(new RowListenerAdapter() {
+            @Override public void onNext(Map<String, Object> row) {
+                blackhole.consume(row);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Map> findAll() {
+        return Base.findAll("SELECT * FROM addresses");
+    }
+}
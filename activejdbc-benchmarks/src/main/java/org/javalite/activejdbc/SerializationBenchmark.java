@@ -0,0 +1,70 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.benchmark_models.Address;
+import org.javalite.activejdbc.benchmark_models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating JSON and XML of a model and of a list of ten models, each with ten included children.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    private LazyList<User> users;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase.open();
+        users = User.findAll().orderBy("id").limit(10).include(Address.class);
+        user = users.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.close();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return user.toJson(false);
+    }
+
+    @Benchmark
+    public String listToJson() {
+        return users.toJson(false);
+    }
+
+    @Benchmark
+    public String toXml() {
+        return user.toXml(false, false);
+    }
+
+    @Benchmark
+    public String listToXml() {
+        return users.toXml(false, false);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.benchmark_models.many;
+
+import org.javalite.activejdbc.Model;
+import org.javalite.activejdbc.annotations.DbName;
+import org.javalite.activejdbc.annotations.Table;
+
+/**
+ * {@value #COUNT} models of database "many", used to measure initialization of the registry. Table of each model
+ * references the table of the previous model, so that associations are discovered too.
+ */
+public final class ManyModels {
+
+    public static final int COUNT = 120;
+
+    private ManyModels() {}
+
+    @DbName("many") @Table("w001_items") public static class W001Item extends Model {}
+    @DbName("many") @Table("w002_items") public static class W002Item extends Model {}
+    @DbName("many") @Table("w003_items") public static class W003Item extends Model {}
+    @DbName("many") @Table("w004_items") public static class W004Item extends Model {}
+    @DbName("many") @Table("w005_items") public static class W005Item extends Model {}
+    @DbName("many") @Table("w006_items") public static class W006Item extends Model {}
+    @DbName("many") @Table("w007_items") public static class W007Item extends Model {}
+    @DbName("many") @Table("w008_items") public static class W008Item extends Model {}
+    @DbName("many") @Table("w009_items") public static class W009Item extends Model {}
+    @DbName("many") @Table("w010_items") public static class W010Item extends Model {}
+    @DbName("many") @Table("w011_items") public static class W011Item extends Model {}
+    @DbName("many") @Table("w012_items") public static class W012Item extends Model {}
+    @DbName("many") @Table("w013_items") public static class W013Item extends Model {}
+    @DbName("many") @Table("w014_items") public static class W014Item extends Model {}
+    @DbName("many") @Table("w015_items") public static class W015Item extends Model {}
+    @DbName("many") @Table("w016_items") public static class W016Item extends Model {}
+    @DbName("many") @Table("w017_items") public static class W017Item extends Model {}
+    @DbName("many") @Table("w018_items") public static class W018Item extends Model {}
+    @DbName("many") @Table("w019_items") public static class W019Item extends Model {}
+    @DbName("many") @Table("w020_items") public static class W020Item extends Model {}
+    @DbName("many") @Table("w021_items") public static class W021Item extends Model {}
+    @DbName("many") @Table("w022_items") public static class W022Item extends Model {}
+    @DbName("many") @Table("w023_items") public static class W023Item extends Model {}
+    @DbName("many") @Table("w024_items") public static class W024Item extends Model {}
+    @DbName("many") @Table("w025_items") public static class W025Item extends Model {}
+    @DbName("many") @Table("w026_items") public static class W026Item extends Model {}
+    @DbName("many") @Table("w027_items") public static class W027Item extends Model {}
+    @DbName("many") @Table("w028_items") public static class W028Item extends Model {}
+    @DbName("many") @Table("w029_items") public static class W029Item extends Model {}
+    @DbName("many") @Table("w030_items") public static class W030Item extends Model {}
+    @DbName("many") @Table("w031_items") public static class W031Item extends Model {}
+    @DbName("many") @Table("w032_items") public static class W032Item extends Model {}
+    @DbName("many") @Table("w033_items") public static class W033Item extends Model {}
+    @DbName("many") @Table("w034_items") public static class W034Item extends Model {}
+    @DbName("many") @Table("w035_items") public static class W035Item extends Model {}
+    @DbName("many") @Table("w036_items") public static class W036Item extends Model {}
+    @DbName("many") @Table("w037_items") public static class W037Item extends Model {}
+    @DbName("many") @Table("w038_items") public static class W038Item extends Model {}
+    @DbName("many") @Table("w039_items") public static class W039Item extends Model {}
+    @DbName("many") @Table("w040_items") public static class W040Item extends Model {}
+    @DbName("many") @Table("w041_items") public static class W041Item extends Model {}
+    @DbName("many") @Table("w042_items") public static class W042Item extends Model {}
+    @DbName("many") @Table("w043_items") public static class W043Item extends Model {}
+    @DbName("many") @Table("w044_items") public static class W044Item extends Model {}
+    @DbName("many") @Table("w045_items") public static class W045Item extends Model {}
+    @DbName("many") @Table("w046_items") public static class W046Item extends Model {}
+    @DbName("many") @Table("w047_items") public static class W047Item extends Model {}
+    @DbName("many") @Table("w048_items") public static class W048Item extends Model {}
+    @DbName("many") @Table("w049_items") public static class W049Item extends Model {}
+    @DbName("many") @Table("w050_items") public static class W050Item extends Model {}
+    @DbName("many") @Table("w051_items") public static class W051Item extends Model {}
+    @DbName("many") @Table("w052_items") public static class W052Item extends Model {}
+    @DbName("many") @Table("w053_items") public static class W053Item extends Model {}
+    @DbName("many") @Table("w054_items") public static class W054Item extends Model {}
+    @DbName("many") @Table("w055_items") public static class W055Item extends Model {}
+    @DbName("many") @Table("w056_items") public static class W056Item extends Model {}
+    @DbName("many") @Table("w057_items") public static class W057Item extends Model {}
+    @DbName("many") @Table("w058_items") public static class W058Item extends Model {}
+    @DbName("many") @Table("w059_items") public static class W059Item extends Model {}
+    @DbName("many") @Table("w060_items") public static class W060Item extends Model {}
+    @DbName("many") @Table("w061_items") public static class W061Item extends Model {}
+    @DbName("many") @Table("w062_items") public static class W062Item extends Model {}
+    @DbName("many") @Table("w063_items") public static class W063Item extends Model {}
+    @DbName("many") @Table("w064_items") public static class W064Item extends Model {}
+    @DbName("many") @Table("w065_items") public static class W065Item extends Model {}
+    @DbName("many") @Table("w066_items") public static class W066Item extends Model {}
+    @DbName("many") @Table("w067_items") public static class W067Item extends Model {}
+    @DbName("many") @Table("w068_items") public static class W068Item extends Model {}
+    @DbName("many") @Table("w069_items") public static class W069Item extends Model {}
+    @DbName("many") @Table("w070_items") public static class W070Item extends Model {}
+    @DbName("many") @Table("w071_items") public static class W071Item extends Model {}
+    @DbName("many") @Table("w072_items") public static class W072Item extends Model {}
+    @DbName("many") @Table("w073_items") public static class W073Item extends Model {}
+    @DbName("many") @Table("w074_items") public static class W074Item extends Model {}
+    @DbName("many") @Table("w075_items") public static class W075Item extends Model {}
+    @DbName("many") @Table("w076_items") public static class W076Item extends Model {}
+    @DbName("many") @Table("w077_items") public static class W077Item extends Model {}
+    @DbName("many") @Table("w078_items") public static class W078Item extends Model {}
+    @DbName("many") @Table("w079_items") public static class W079Item extends Model {}
+    @DbName("many") @Table("w080_items") public static class W080Item extends Model {}
+    @DbName("many") @Table("w081_items") public static class W081Item extends Model {}
+    @DbName("many") @Table("w082_items") public static class W082Item extends Model {}
+    @DbName("many") @Table("w083_items") public static class W083Item extends Model {}
+    @DbName("many") @Table("w084_items") public static class W084Item extends Model {}
+    @DbName("many") @Table("w085_items") public static class W085Item extends Model {}
+    @DbName("many") @Table("w086_items") public static class W086Item extends Model {}
+    @DbName("many") @Table("w087_items") public static class W087Item extends Model {}
+    @DbName("many") @Table("w088_items") public static class W088Item extends Model {}
+    @DbName("many") @Table("w089_items") public static class W089Item extends Model {}
+    @DbName("many") @Table("w090_items") public static class W090Item extends Model {}
+    @DbName("many") @Table("w091_items") public static class W091Item extends Model {}
+    @DbName("many") @Table("w092_items") public static class W092Item extends Model {}
+    @DbName("many") @Table("w093_items") public static class W093Item extends Model {}
+    @DbName("many") @Table("w094_items") public static class W094Item extends Model {}
+    @DbName("many") @Table("w095_items") public static class W095Item extends Model {}
+    @DbName("many") @Table("w096_items") public static class W096Item extends Model {}
+    @DbName("many") @Table("w097_items") public static class W097Item extends Model {}
+    @DbName("many") @Table("w098_items") public static class W098Item extends Model {}
+    @DbName("many") @Table("w099_items") public static class W099Item extends Model {}
+    @DbName("many") @Table("w100_items") public static class W100Item extends Model {}
+    @DbName("many") @Table("w101_items") public static class W101Item extends Model {}
+    @DbName("many") @Table("w102_items") public static class W102Item extends Model {}
+    @DbName("many") @Table("w103_items") public static class W103Item extends Model {}
+    @DbName("many") @Table("w104_items") public static class W104Item extends Model {}
+    @DbName("many") @Table("w105_items") public static class W105Item extends Model {}
+    @DbName("many") @Table("w106_items") public static class W106Item extends Model {}
+    @DbName("many") @Table("w107_items") public static class W107Item extends Model {}
+    @DbName("many") @Table("w108_items") public static class W108Item extends Model {}
+    @DbName("many") @Table("w109_items") public static class W109Item extends Model {}
+    @DbName("many") @Table("w110_items") public static class W110Item extends Model {}
+    @DbName("many") @Table("w111_items") public static class W111Item extends Model {}
+    @DbName("many") @Table("w112_items") public static class W112Item extends Model {}
+    @DbName("many") @Table("w113_items") public static class W113Item extends Model {}
+    @DbName("many") @Table("w114_items") public static class W114Item extends Model {}
+    @DbName("many") @Table("w115_items") public static class W115Item extends Model {}
+    @DbName("many") @Table("w116_items") public static class W116Item extends Model {}
+    @DbName("many") @Table("w117_items") public static class W117Item extends Model {}
+    @DbName("many") @Table("w118_items") public static class W118Item extends Model {}
+    @DbName("many") @Table("w119_items") public static class W119Item extends Model {}
+    @DbName("many") @Table("w120_items") public static class W120Item extends Model {}
+}
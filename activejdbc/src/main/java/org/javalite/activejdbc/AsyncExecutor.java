@@ -0,0 +1,323 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.pool.ConnectionPool;
+import org.javalite.activejdbc.pool.PoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Runs queries asynchronously on a dedicated, bounded pool of threads, see {@link Base#async(Callable)},
+ * {@link Model#findAsync(String, Object...)}, {@link Model#countAsync()} and {@link Model#saveAsync()}.
+ * This lets code issue several independent queries at the same time and combine results when they are done:
+ * <pre>
+ *     Future&lt;LazyList&lt;Book&gt;&gt; books = Book.findAsync("author_id = ?", id);
+ *     Future&lt;Long&gt; reviews = Review.countAsync("author_id = ?", id);
+ *     render(books.get(), reviews.get());
+ * </pre>
+ * Each task runs with its own connection to the database it targets, taken from a pool dedicated to
+ * asynchronous queries; the connections of the submitting thread are never shared with tasks. A transaction left
+ * open by a task is rolled back. By default connections are opened with the connection specification of current
+ * environment from <code>database.properties</code>, another source can be set with
+ * {@link #setDataSource(String, DataSource)}.
+ * <p></p>
+ * Limits are configured in <code>activejdbc.properties</code>:
+ * <ul>
+ *     <li><code>async.threads</code> - number of threads, default is twice the number of processors</li>
+ *     <li><code>async.queueSize</code> - tasks waiting for a thread, default 1000</li>
+ *     <li><code>async.maxConcurrency</code> - tasks running at the same time against one database, default is the
+ *     number of threads. Can be set per database with <code>async.maxConcurrency.&lt;dbName&gt;</code></li>
+ * </ul>
+ * When a database already has <code>maxConcurrency</code> tasks submitted and not finished, or the queue is full,
+ * submitting code is blocked until a task finishes. Therefore tasks should not submit other tasks and wait for them.
+ */
+public class AsyncExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecutor.class);
+
+    private static volatile AsyncExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, DataSource> dataSources = new ConcurrentHashMap<String, DataSource>();
+    private final ConcurrentMap<String, DbLimit> limits = new ConcurrentHashMap<String, DbLimit>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+
+    private AsyncExecutor(int threads, int queueSize) {
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory() {
+                    @Override public Thread newThread(Runnable runnable) {
+                        Thread res = new Thread(runnable);
+                        res.setDaemon(true);
+                        res.setName("ActiveJDBC async thread " + count.incrementAndGet());
+                        return res;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    @Override public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Async executor is shut down");
+                        }
+                        blocked.incrementAndGet();
+                        try {
+                            executor.getQueue().put(task); // back-pressure: wait for space in queue
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for space in async queue", e);
+                        }
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return executor configured from <code>activejdbc.properties</code>, created on first use.
+     */
+    public static AsyncExecutor instance() {
+        AsyncExecutor res = instance;
+        if (res == null) {
+            synchronized (AsyncExecutor.class) {
+                if ((res = instance) == null) {
+                    Configuration config = Registry.instance().getConfiguration();
+                    instance = res = new AsyncExecutor(config.getAsyncThreads(), config.getAsyncQueueSize());
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return executor if it was used already, <code>null</code> otherwise.
+     */
+    public static AsyncExecutor peek() {
+        return instance;
+    }
+
+    /**
+     * Sets data source used by asynchronous tasks for a database, overriding <code>database.properties</code>.
+     *
+     * @param dbName name of database, see {@link DB#DB(String)}
+     * @param dataSource data source to take connections from
+     */
+    public void setDataSource(String dbName, DataSource dataSource) {
+        dataSources.put(dbName, dataSource);
+    }
+
+    private DataSource dataSource(String dbName) {
+        DataSource dataSource = dataSources.get(dbName);
+        return dataSource != null ? dataSource : createDataSource(dbName);
+    }
+
+    private synchronized DataSource createDataSource(String dbName) {
+        DataSource dataSource = dataSources.get(dbName);
+        if (dataSource == null) {
+            ConnectionSpec spec = Registry.instance().getConfiguration().getCurrentConnectionSpec();
+            if (spec instanceof ConnectionJdbcSpec) {
+                dataSource = new ConnectionPool((ConnectionJdbcSpec) spec, new PoolConfig(limitOf(dbName).max));
+            } else if (spec instanceof ConnectionJndiSpec) {
+                ConnectionJndiSpec jndiSpec = (ConnectionJndiSpec) spec;
+                try {
+                    InitialContext context = jndiSpec.getContext() != null ? jndiSpec.getContext() : new InitialContext();
+                    dataSource = (DataSource) context.lookup(jndiSpec.getDataSourceJndiName());
+                } catch (Exception e) {
+                    throw new InitException("Failed to connect to JNDI name: " + jndiSpec.getDataSourceJndiName(), e);
+                }
+            } else {
+                throw new DBException("Could not find configuration of connection '" + dbName
+                        + "' for async queries, set it in database.properties or call AsyncExecutor.setDataSource()");
+            }
+            dataSources.put(dbName, dataSource);
+        }
+        return dataSource;
+    }
+
+    private DbLimit limitOf(String dbName) {
+        DbLimit limit = limits.get(dbName);
+        if (limit == null) {
+            DbLimit existing = limits.putIfAbsent(dbName,
+                    limit = new DbLimit(Registry.instance().getConfiguration().getAsyncMaxConcurrency(dbName)));
+            if (existing != null) {
+                limit = existing;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Submits a task to run with a connection to a database. Blocks if the database already has
+     * <code>maxConcurrency</code> unfinished tasks.
+     *
+     * @param dbName name of database, the task uses it by {@link Base} if it is {@link DB#DEFAULT_NAME}, or by
+     *               <code>new DB(dbName)</code> otherwise
+     * @param task task to run
+     * @return future result of task
+     */
+    public <T> Future<T> submit(String dbName, Callable<T> task) {
+        return submit(dbName, dbName, dataSource(dbName), task);
+    }
+
+    /**
+     * Submits a task to run with a connection taken from a specific data source.
+     *
+     * @param limitName name the concurrency limit is counted under, such as a shard name
+     * @param dbName name the connection is attached to current thread with
+     * @param dataSource data source to take the connection from
+     * @param task task to run
+     * @return future result of task
+     */
+    <T> Future<T> submit(String limitName, final String dbName, final DataSource dataSource, final Callable<T> task) {
+        final DbLimit limit = limitOf(limitName);
+        if (!limit.permits.tryAcquire()) {
+            blocked.incrementAndGet();
+            limit.permits.acquireUninterruptibly();
+        }
+        // the permit is released by the task, or by done() if the task was cancelled before it started
+        final AtomicBoolean started = new AtomicBoolean();
+        FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+            @Override public T call() throws Exception {
+                if (!started.compareAndSet(false, true)) {
+                    throw new CancellationException();
+                }
+                try {
+                    T result = new ConnectionContext().call(new Callable<T>() {
+                        @Override public T call() throws Exception {
+                            DB db = new DB(dbName);
+                            db.openLazy(dataSource);
+                            try {
+                                return task.call();
+                            } finally {
+                                db.close();
+                            }
+                        }
+                    });
+                    completed.incrementAndGet();
+                    return result;
+                } catch (Exception | Error e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    limit.permits.release();
+                }
+            }
+        }) {
+            @Override protected void done() {
+                if (started.compareAndSet(false, true)) {
+                    limit.permits.release();
+                }
+            }
+        };
+        try {
+            executor.execute(future);
+        } catch (RuntimeException e) {
+            limit.permits.release();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        return future;
+    }
+
+    /**
+     * Stops accepting tasks, tasks already submitted are finished.
+     */
+    public static void shutdown() {
+        synchronized (AsyncExecutor.class) {
+            if (instance != null) {
+                instance.executor.shutdown();
+                LogFilter.log(logger, "Async executor shut down");
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * @return number of tasks submitted.
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return number of tasks finished successfully.
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return number of tasks which threw an exception.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of times submitting code was blocked by a concurrency limit or full queue.
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    /**
+     * @return number of tasks waiting for a thread.
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of threads running tasks.
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return number of unfinished tasks by database (or shard) name.
+     */
+    public Map<String, Integer> getInFlight() {
+        Map<String, Integer> res = new HashMap<String, Integer>();
+        for (Map.Entry<String, DbLimit> entry : limits.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().max - entry.getValue().permits.availablePermits());
+        }
+        return res;
+    }
+
+    private static final class DbLimit {
+        private final int max;
+        private final Semaphore permits;
+
+        private DbLimit(int max) {
+            this.max = max;
+            this.permits = new Semaphore(max);
+        }
+    }
+}
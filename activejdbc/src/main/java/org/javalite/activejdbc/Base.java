@@ -21,6 +21,8 @@ import java.sql.PreparedStatement;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 
 /**
@@ -106,6 +108,25 @@ public class Base {
         new DB(DB.DEFAULT_NAME).open(dataSource);
     }
 
+    /**
+     * Attaches a lazy connection to current thread, a real connection is taken from the datasource only when
+     * it is used for the first time. See {@link DB#openLazy(DataSource)}.
+     *
+     * @param dataSource datasource will be used to acquire a connection on first use.
+     */
+    public static void openLazy(DataSource dataSource) {
+        new DB(DB.DEFAULT_NAME).openLazy(dataSource);
+    }
+
+    /**
+     * Attaches a lazy connection from a JNDI data source to current thread. See {@link DB#openLazy(DataSource)}.
+     *
+     * @param jndiName name of a configured data source.
+     */
+    public static void openLazy(String jndiName) {
+        new DB(DB.DEFAULT_NAME).openLazy(jndiName);
+    }
+
 
     /**
      * Returns connection attached to a current thread and named "default".
@@ -295,6 +316,16 @@ public class Base {
         return new DB(DB.DEFAULT_NAME).execInsert(query, autoIncrementColumnName, params);
     }
 
+    /**
+     * Runs a task on {@link AsyncExecutor} with a separate default connection. See {@link DB#async(Callable)}.
+     *
+     * @param task task to run
+     * @return future result of task
+     */
+    public static <T> Future<T> async(Callable<T> task) {
+        return new DB(DB.DEFAULT_NAME).async(task);
+    }
+
     /**
      * Opens local transaction.
      */
@@ -302,6 +333,34 @@ public class Base {
         new DB(DB.DEFAULT_NAME).openTransaction();
     }
 
+    /**
+     * Runs a task in a transaction, retrying it on deadlocks and serialization failures,
+     * see {@link DB#inTransaction(Callable, RetryPolicy)}.
+     *
+     * @param task task to run
+     * @param policy number of attempts and waits between them
+     * @return result of the task
+     */
+    public static <T> T inTransaction(Callable<T> task, RetryPolicy policy) {
+        return new DB(DB.DEFAULT_NAME).inTransaction(task, policy);
+    }
+
+    /**
+     * Same as {@link #inTransaction(Callable, RetryPolicy)} with default retry policy.
+     */
+    public static <T> T inTransaction(Callable<T> task) {
+        return new DB(DB.DEFAULT_NAME).inTransaction(task);
+    }
+
+    /**
+     * Opens local transaction which must finish within a time limit, see {@link DB#openTransaction(int)}.
+     *
+     * @param timeout time limit of transaction in seconds.
+     */
+    public static void openTransaction(int timeout) {
+        new DB(DB.DEFAULT_NAME).openTransaction(timeout);
+    }
+
     /**
      * Commits local transaction.
      */
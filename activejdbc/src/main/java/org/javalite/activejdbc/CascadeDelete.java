@@ -0,0 +1,264 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.associations.Many2ManyAssociation;
+import org.javalite.activejdbc.associations.OneToManyAssociation;
+import org.javalite.activejdbc.associations.OneToManyPolymorphicAssociation;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Deletes a record together with all records depending on it, as {@link Model#deleteCascade()} does, but with
+ * set-based statements: rows of child tables are deleted by one <code>DELETE ... WHERE fk IN (SELECT ...)</code>
+ * per association, in dependency order, instead of loading and deleting each child separately.
+ * <p></p>
+ * The plan is built before anything is deleted. Children of one-to-many and polymorphic associations are selected
+ * by nested sub-queries. Targets of many-to-many associations, and records of a table reached a second time (which
+ * happens with cycles such as doctors - patients - doctors), are selected by IDs read while planning, so that
+ * the plan ends when no new records are found.
+ */
+final class CascadeDelete {
+
+    /**
+     * Rows of one table to delete. For a join table of a many to many association, <code>metaModel</code> is
+     * <code>null</code>.
+     */
+    private static final class Node {
+        private final MetaModel metaModel;
+        private final String table;
+        private final String condition;
+        private final Object[] params;
+        private final List<Node> joins = new ArrayList<Node>();
+        private final List<Node> children = new ArrayList<Node>();
+        private boolean idsKnown;
+
+        private Node(MetaModel metaModel, String table, String condition, Object[] params) {
+            this.metaModel = metaModel;
+            this.table = table;
+            this.condition = condition;
+            this.params = params;
+        }
+
+        private String selectIds() {
+            return "SELECT " + metaModel.getIdName() + " FROM " + table + " WHERE " + condition;
+        }
+    }
+
+    private final boolean fireCallbacks;
+    private final DB db;
+    private final Map<MetaModel, List<Node>> nodesByModel = new HashMap<MetaModel, List<Node>>();
+    private final Map<MetaModel, Set<Object>> knownIds = new HashMap<MetaModel, Set<Object>>();
+    private final Set<MetaModel> affectedModels = new LinkedHashSet<MetaModel>();
+    private final Set<String> affectedJoins = new LinkedHashSet<String>();
+
+    /**
+     * @param dbName name of database of the deleted record
+     * @param fireCallbacks true to load deleted children of models with delete callbacks, and call the callbacks
+     */
+    CascadeDelete(String dbName, boolean fireCallbacks) {
+        this.db = new DB(dbName);
+        this.fireCallbacks = fireCallbacks;
+    }
+
+    /**
+     * Deletes all records depending on a model, but not the record of the model itself.
+     *
+     * @param model model whose dependencies to delete
+     * @param excludedAssociations associations of the model not to follow
+     */
+    void deleteDependencies(Model model, List<Association> excludedAssociations) {
+        MetaModel metaModel = ModelDelegate.metaModelOf(model.getClass());
+        Node root;
+        String[] compositeKeys = model.getCompositeKeys();
+        if (compositeKeys != null) {
+            StringBuilder condition = new StringBuilder();
+            Object[] params = new Object[compositeKeys.length];
+            for (int i = 0; i < compositeKeys.length; i++) {
+                condition.append(i == 0 ? "" : " AND ").append(compositeKeys[i]).append(" = ?");
+                params[i] = model.get(compositeKeys[i]);
+            }
+            root = new Node(metaModel, metaModel.getTableName(), condition.toString(), params);
+        } else {
+            root = new Node(metaModel, metaModel.getTableName(), metaModel.getIdName() + " = ?",
+                    new Object[]{model.getId()});
+        }
+        register(root);
+        expand(root, excludedAssociations);
+
+        for (Node join : root.joins) {
+            deleteRows(join);
+        }
+        for (Node child : root.children) {
+            delete(child);
+        }
+        for (MetaModel affected : affectedModels) {
+            if (affected.cached()) {
+                Registry.cacheManager().purgeTableCache(affected);
+            }
+            ModelDelegate.purgeEdges(affected);
+        }
+        for (String join : affectedJoins) {
+            Registry.cacheManager().purgeTableCache(join);
+        }
+    }
+
+    private void register(Node node) {
+        List<Node> nodes = nodesByModel.get(node.metaModel);
+        if (nodes == null) {
+            nodesByModel.put(node.metaModel, nodes = new ArrayList<Node>());
+        }
+        nodes.add(node);
+    }
+
+    private void expand(Node node, List<Association> excludedAssociations) {
+        MetaModel metaModel = node.metaModel;
+        String parentIds = node.selectIds();
+        for (Many2ManyAssociation association : metaModel.getManyToManyAssociations(excludedAssociations)) {
+            String sourceFk = association.getSourceFkName() + " IN (" + parentIds + ")";
+            node.joins.add(new Node(null, association.getJoin(), sourceFk, node.params));
+            // links are deleted before targets, so targets are found now
+            List targets = db.firstColumn("SELECT " + association.getTargetFkName() + " FROM " + association.getJoin()
+                    + " WHERE " + sourceFk, node.params);
+            addNodes(node, ModelDelegate.metaModelOf(association.getTargetClass()), targets);
+        }
+        for (OneToManyAssociation association : metaModel.getOneToManyAssociations(excludedAssociations)) {
+            addNode(node, ModelDelegate.metaModelOf(association.getTargetClass()),
+                    association.getFkName() + " IN (" + parentIds + ")", node.params);
+        }
+        for (OneToManyPolymorphicAssociation association : metaModel.getPolymorphicAssociations(excludedAssociations)) {
+            Object[] params = new Object[node.params.length + 1];
+            params[0] = association.getTypeLabel();
+            System.arraycopy(node.params, 0, params, 1, node.params.length);
+            addNode(node, ModelDelegate.metaModelOf(association.getTargetClass()),
+                    "parent_type = ? AND parent_id IN (" + parentIds + ")", params);
+        }
+    }
+
+    private void addNode(Node parent, MetaModel metaModel, String condition, Object[] params) {
+        Node node = new Node(metaModel, metaModel.getTableName(), condition, params);
+        if (nodesByModel.containsKey(metaModel)) {
+            // the table was reached before, only records not deleted by other nodes are followed
+            addNodes(parent, metaModel, db.firstColumn(node.selectIds(), params));
+        } else {
+            register(node);
+            parent.children.add(node);
+            expand(node, Collections.<Association>emptyList());
+        }
+    }
+
+    /**
+     * Adds nodes deleting records with given IDs, except records already deleted by other nodes.
+     */
+    private void addNodes(Node parent, MetaModel metaModel, List<?> ids) {
+        Set<Object> known = knownIds(metaModel);
+        List<Object> newIds = new ArrayList<Object>();
+        for (Object id : ids) {
+            if (id != null && known.add(ModelDelegate.normalizeKey(id))) {
+                newIds.add(id);
+            }
+        }
+        List<String> idColumn = Collections.singletonList(metaModel.getIdName());
+        for (int from = 0; from < newIds.size(); from += ModelDelegate.MAX_KEYS_PER_QUERY) {
+            List<Object> chunk = newIds.subList(from, Math.min(from + ModelDelegate.MAX_KEYS_PER_QUERY, newIds.size()));
+            Node node = new Node(metaModel, metaModel.getTableName(),
+                    DefaultDialect.of(metaModel.getDialect()).keysInCondition(idColumn, chunk.size()), chunk.toArray());
+            node.idsKnown = true;
+            register(node);
+            parent.children.add(node);
+            expand(node, Collections.<Association>emptyList());
+        }
+    }
+
+    /**
+     * @return IDs of all records of a model deleted by nodes planned so far.
+     */
+    private Set<Object> knownIds(MetaModel metaModel) {
+        Set<Object> known = knownIds.get(metaModel);
+        if (known == null) {
+            knownIds.put(metaModel, known = new HashSet<Object>());
+        }
+        List<Node> nodes = nodesByModel.get(metaModel);
+        if (nodes != null) {
+            for (Node node : nodes) {
+                if (!node.idsKnown) {
+                    for (Object id : db.firstColumn(node.selectIds(), node.params)) {
+                        known.add(ModelDelegate.normalizeKey(id));
+                    }
+                    node.idsKnown = true;
+                }
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Deletes rows of a node after its links and children, so that conditions of children can still select
+     * their parents.
+     */
+    private void delete(Node node) {
+        for (Node join : node.joins) {
+            deleteRows(join);
+        }
+        for (Node child : node.children) {
+            delete(child);
+        }
+        List<Model> models = null;
+        if (fireCallbacks && hasDeleteCallbacks(node.metaModel.getModelClass())) {
+            models = new ArrayList<Model>(ModelDelegate.where(node.metaModel.getModelClass(), node.condition, node.params));
+            for (Model model : models) {
+                model.fireBeforeDelete();
+            }
+        }
+        deleteRows(node);
+        if (models != null) {
+            for (Model model : models) {
+                model.afterBulkDelete();
+            }
+        }
+    }
+
+    private void deleteRows(Node node) {
+        db.exec("DELETE FROM " + node.table + " WHERE " + node.condition, node.params);
+        if (node.metaModel != null) {
+            affectedModels.add(node.metaModel);
+        } else {
+            affectedJoins.add(node.table);
+        }
+    }
+
+    /**
+     * @return true if a model class overrides delete callbacks or has callback listeners.
+     */
+    private static boolean hasDeleteCallbacks(Class<? extends Model> modelClass) {
+        if (!Registry.instance().modelRegistryOf(modelClass).callbacks().isEmpty()) {
+            return true;
+        }
+        for (Class<?> c = modelClass; c != Model.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getParameterTypes().length == 0
+                        && (method.getName().equals("beforeDelete") || method.getName().equals("afterDelete"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
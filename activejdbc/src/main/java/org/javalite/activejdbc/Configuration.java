@@ -18,12 +18,15 @@ package org.javalite.activejdbc;
 import org.javalite.activejdbc.cache.CacheManager;
 import org.javalite.activejdbc.cache.NopeCacheManager;
 import org.javalite.activejdbc.dialects.*;
+import org.javalite.activejdbc.pool.PoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.javalite.common.Convert;
 
 import static org.javalite.common.Util.*;
@@ -38,8 +41,10 @@ public class Configuration {
     private Properties properties = new Properties();
     private static CacheManager cacheManager;
     private static final Logger logger = LoggerFactory.getLogger(Configuration.class);
+    private static final int DEFAULT_REPLICA_POOL_SIZE = 10;
 
-    private Map<String, Dialect> dialects = new CaseInsensitiveMap<>();
+    //filled lazily by all threads using models
+    private final ConcurrentMap<String, Dialect> dialects = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
 
     private Map<String, ConnectionSpec> connectionSpecMap = new HashMap<>();
 
@@ -108,12 +113,13 @@ public class Configuration {
     }
 
     private void loadConnectionsSpecs() {
+        Properties connectionProps = null;
         try{
 
             String propertyFileName = properties == null ? "database.properties"
                     : properties.getProperty("env.connections.file", "database.properties");
 
-            Properties connectionProps = readPropertyFile(propertyFileName);
+            connectionProps = readPropertyFile(propertyFileName);
             for (String env : getEnvironments(connectionProps)) {
                 String jndiName = env + "." + "jndi";
                 if (connectionProps.containsKey(jndiName)) {
@@ -126,17 +132,57 @@ public class Configuration {
                     if (driver == null || userName == null || password == null || url == null) {
                         throw new InitException("Four JDBC properties are expected: driver, username, password, url for environment: " + env);
                     }
-                    connectionSpecMap.put(env, new ConnectionJdbcSpec(driver, url, userName, password));
+                    connectionSpecMap.put(env, new ConnectionJdbcSpec(driver, url, userName, password,
+                            PoolConfig.fromProperties(connectionProps, env + ".pool.")));
                 }
             }
         }catch(Exception e){
             // in case property file not found, do nothing
         }
+        if (connectionProps != null) {
+            for (Map.Entry<String, ConnectionSpec> entry : connectionSpecMap.entrySet()) {
+                if (entry.getValue() instanceof ConnectionJdbcSpec) {
+                    readReplicas(connectionProps, entry.getKey(), (ConnectionJdbcSpec) entry.getValue());
+                }
+            }
+        }
 
         overrideFromEnvironmentVariables();
         overrideFromSystemProperties();
     }
 
+    /**
+     * Reads <code>env.replica.N.*</code> properties, replicas default to driver, user and password of primary.
+     * Only specifications are read here, replica pools are created when the environment is opened first,
+     * see {@link ConnectionJdbcSpec#getReplicaSet()}.
+     */
+    private void readReplicas(Properties props, String env, ConnectionJdbcSpec primary) {
+        List<ConnectionJdbcSpec> replicas = new ArrayList<>();
+        String prefix;
+        for (int i = 1; props.containsKey((prefix = env + ".replica." + i + ".") + "url"); i++) {
+            replicas.add(new ConnectionJdbcSpec(props.getProperty(prefix + "driver", primary.getDriver()),
+                    props.getProperty(prefix + "url"), props.getProperty(prefix + "username", primary.getUser()),
+                    props.getProperty(prefix + "password", primary.getPassword()),
+                    primary.getPoolConfig() != null ? primary.getPoolConfig() : new PoolConfig(DEFAULT_REPLICA_POOL_SIZE)));
+        }
+        if (replicas.isEmpty()) {
+            return;
+        }
+        String strategyName = props.getProperty(env + ".replicas.strategy");
+        ReplicaSet.Strategy strategy = ReplicaSet.Strategy.ROUND_ROBIN;
+        if (strategyName != null) {
+            try {
+                strategy = ReplicaSet.Strategy.valueOf(strategyName.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InitException("Unknown replicas strategy: '" + strategyName + "' for environment: " + env
+                        + ", expected one of: " + Arrays.toString(ReplicaSet.Strategy.values()), e);
+            }
+        }
+        String sticky = props.getProperty(env + ".replicas.stickyAfterWrite");
+        primary.setReplicas(replicas, strategy,
+                sticky == null ? ReplicaSet.DEFAULT_STICKY_AFTER_WRITE : Convert.toLong(sticky.trim()));
+    }
+
     /**
      * Overrides current environment's connection spec from system properties.
      */
@@ -248,34 +294,98 @@ public class Configuration {
         return Convert.toBoolean(properties.getProperty("collectStatisticsOnHold", "false"));
     }
 
+    /**
+     * @return every how many attached connections a stack trace of attaching code is captured, 0 for never.
+     * Configured by <code>connectionStackSampleRate</code> in <code>activejdbc.properties</code>.
+     */
+    public int getConnectionStackSampleRate() {
+        return Convert.toInteger(properties.getProperty("connectionStackSampleRate", "0"));
+    }
+
+    /**
+     * @return time in milliseconds after which a connection held by a thread is reported as a potential leak,
+     * 0 to not report. Configured by <code>connectionLeakThreshold</code> in <code>activejdbc.properties</code>.
+     */
+    public long getConnectionLeakThreshold() {
+        return Convert.toLong(properties.getProperty("connectionLeakThreshold", "0"));
+    }
+
+    /**
+     * @return default timeout of statements in seconds, 0 for no timeout. Configured by <code>queryTimeout</code>
+     * in <code>activejdbc.properties</code>, can be overridden per call, see {@link DB#queryTimeout(int)}.
+     */
+    public int getQueryTimeout() {
+        return Convert.toInteger(properties.getProperty("queryTimeout", "0"));
+    }
+
+    /**
+     * @return number of threads running asynchronous queries, see {@link AsyncExecutor}.
+     * Configured by <code>async.threads</code> in <code>activejdbc.properties</code>, default is twice the number
+     * of processors.
+     */
+    public int getAsyncThreads() {
+        return Convert.toInteger(properties.getProperty("async.threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 2)));
+    }
+
+    /**
+     * @return number of asynchronous queries waiting for a thread before submitting code is blocked.
+     * Configured by <code>async.queueSize</code> in <code>activejdbc.properties</code>, default 1000.
+     */
+    public int getAsyncQueueSize() {
+        return Convert.toInteger(properties.getProperty("async.queueSize", "1000"));
+    }
+
+    /**
+     * @param dbName name of connection
+     * @return maximum number of asynchronous queries running at the same time against a database. Configured by
+     * <code>async.maxConcurrency.&lt;dbName&gt;</code> or <code>async.maxConcurrency</code> for all databases
+     * in <code>activejdbc.properties</code>, default is the number of threads.
+     */
+    public int getAsyncMaxConcurrency(String dbName) {
+        String value = properties.getProperty("async.maxConcurrency." + dbName, properties.getProperty("async.maxConcurrency"));
+        return value == null ? getAsyncThreads() : Convert.toInteger(value);
+    }
+
     public boolean cacheEnabled(){
         return cacheManager != null;
     }
 
     Dialect getDialect(MetaModel mm){
-        Dialect dialect = dialects.get(mm.getDbType());
+        return getDialect(mm.getDbType());
+    }
+
+    /**
+     * @param dbType database product name as reported by JDBC driver, such as "PostgreSQL" or "H2".
+     * @return dialect used for databases of this type.
+     */
+    public Dialect getDialect(String dbType){
+        Dialect dialect = dialects.get(dbType);
         if (dialect == null) {
-            if(mm.getDbType().equalsIgnoreCase("Oracle")){
+            if(dbType.equalsIgnoreCase("Oracle")){
                 dialect = new OracleDialect();
             }
-            else if(mm.getDbType().equalsIgnoreCase("MySQL")){
+            else if(dbType.equalsIgnoreCase("MySQL")){
                 dialect = new MySQLDialect();
             }
-            else if(mm.getDbType().equalsIgnoreCase("PostgreSQL")){
+            else if(dbType.equalsIgnoreCase("PostgreSQL")){
                 dialect = new PostgreSQLDialect();
             }
-            else if(mm.getDbType().equalsIgnoreCase("h2")){
+            else if(dbType.equalsIgnoreCase("h2")){
                 dialect = new H2Dialect();
             }
-            else if(mm.getDbType().equalsIgnoreCase("Microsoft SQL Server")){
-                dialect = new MSSQLDialect();
+            else if(dbType.equalsIgnoreCase("Microsoft SQL Server")){
+                dialect = new MSSQLDialect(Convert.toBoolean(properties.getProperty("mssql.outputInserted", "false")));
             }
-            else if(mm.getDbType().equalsIgnoreCase("SQLite")){
+            else if(dbType.equalsIgnoreCase("SQLite")){
                 dialect = new SQLiteDialect();
             }else{
                 dialect = new DefaultDialect();
             }
-            dialects.put(mm.getDbType(), dialect);
+            Dialect existing = dialects.putIfAbsent(dbType, dialect);
+            if (existing != null) {
+                dialect = existing;
+            }
         }
         return dialect;
     }
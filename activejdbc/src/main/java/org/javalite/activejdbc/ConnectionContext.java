@@ -0,0 +1,286 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Connections and sharding table names visible to code running on current thread. {@link Base} and {@link DB}
+ * read connections from the context bound to current thread.
+ * <p></p>
+ * By default each thread gets its own context the first time it opens a connection, and keeps it for the rest of its
+ * life, which is how ActiveJDBC always worked. Alternatively a context can be bound only for the duration of a task:
+ * <pre>
+ *     new ConnectionContext().run(new Runnable() {
+ *         public void run() {
+ *             Base.open(dataSource);
+ *             ...
+ *             Base.close();
+ *         }
+ *     });
+ * </pre>
+ * Nothing stays attached to the thread after the task is done, which suits pools with large numbers of short lived
+ * threads. Contexts are propagated to other threads explicitly, so that tasks submitted to executors can use
+ * connections of the code that submitted them:
+ * <pre>
+ *     Base.open();
+ *     Future&lt;Long&gt; count = executor.submit(ConnectionContext.wrap(new Callable&lt;Long&gt;() {
+ *         public Long call() {
+ *             return Person.count(); // uses connection opened above
+ *         }
+ *     }));
+ * </pre>
+ * A wrapped task gets a copy of the context taken when it was wrapped: connections it opens or closes are not seen
+ * by the submitting code. JDBC connections are not thread safe, so the submitting code must not use a shared
+ * connection while the task does, and should wait for the task before closing it.
+ * <p></p>
+ * Statements being executed in a context can be cancelled from another thread with {@link #cancel()}, for instance
+ * by a watchdog enforcing time limits of requests.
+ */
+public class ConnectionContext {
+
+    private static final ThreadLocal<ConnectionContext> contextTL = new ThreadLocal<ConnectionContext>();
+
+    final HashMap<String, Connection> connections;
+    final HashMap<String, ConnectionHold> holds = new HashMap<String, ConnectionHold>();
+    private HashMap<Class, String> shardTableNames;
+    private String shardName;
+    private HashMap<String, Long> lastWrites;
+    private HashMap<String, Long> deadlines;
+    private final Set<Statement> statements = Collections.newSetFromMap(new ConcurrentHashMap<Statement, Boolean>());
+
+    /**
+     * Creates an empty context.
+     */
+    public ConnectionContext() {
+        connections = new HashMap<String, Connection>();
+    }
+
+    private ConnectionContext(ConnectionContext parent) {
+        connections = new HashMap<String, Connection>(parent.connections);
+        if (parent.shardTableNames != null) {
+            shardTableNames = new HashMap<Class, String>(parent.shardTableNames);
+        }
+        shardName = parent.shardName;
+        if (parent.lastWrites != null) {
+            lastWrites = new HashMap<String, Long>(parent.lastWrites);
+        }
+        if (parent.deadlines != null) {
+            deadlines = new HashMap<String, Long>(parent.deadlines);
+        }
+    }
+
+    /**
+     * @return context bound to current thread, a new context is bound if there is none.
+     */
+    public static ConnectionContext current() {
+        ConnectionContext context = contextTL.get();
+        if (context == null) {
+            contextTL.set(context = new ConnectionContext());
+        }
+        return context;
+    }
+
+    /**
+     * @return context bound to current thread, or <code>null</code>. Unlike {@link #current()} does not bind anything.
+     */
+    static ConnectionContext peek() {
+        return contextTL.get();
+    }
+
+    /**
+     * @return new context with the same connections and sharding table names as this one.
+     */
+    public ConnectionContext fork() {
+        return new ConnectionContext(this);
+    }
+
+    /**
+     * Runs a task with this context bound to current thread. The context that was bound before, if any,
+     * is restored after the task.
+     *
+     * @param task task to run
+     */
+    public void run(Runnable task) {
+        ConnectionContext previous = bind(this);
+        try {
+            task.run();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Calls a task with this context bound to current thread. The context that was bound before, if any,
+     * is restored after the task.
+     *
+     * @param task task to call
+     * @return result of the task
+     * @throws Exception exception thrown by the task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        ConnectionContext previous = bind(this);
+        try {
+            return task.call();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    private static ConnectionContext bind(ConnectionContext context) {
+        ConnectionContext previous = contextTL.get();
+        if (context == null) {
+            contextTL.remove();
+        } else {
+            contextTL.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Wraps a task so that it runs with a copy of the context of current thread, wherever it is executed.
+     *
+     * @param task task to wrap
+     * @return task which can be submitted to an executor
+     */
+    public static Runnable wrap(final Runnable task) {
+        final ConnectionContext context = current().fork();
+        return new Runnable() {
+            @Override public void run() {
+                context.run(task);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task so that it runs with a copy of the context of current thread, wherever it is executed.
+     *
+     * @param task task to wrap
+     * @return task which can be submitted to an executor
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final ConnectionContext context = current().fork();
+        return new Callable<T>() {
+            @Override public T call() throws Exception {
+                return context.call(task);
+            }
+        };
+    }
+
+    /**
+     * @return time current context last wrote to a database, 0 if it did not.
+     */
+    long getLastWrite(String dbName) {
+        Long time = lastWrites == null ? null : lastWrites.get(dbName);
+        return time == null ? 0 : time;
+    }
+
+    void setLastWrite(String dbName, long time) {
+        if (lastWrites == null) {
+            lastWrites = new HashMap<String, Long>();
+        }
+        lastWrites.put(dbName, time);
+    }
+
+    /**
+     * Cancels statements being executed in this context, see <code>java.sql.Statement#cancel()</code>. Unlike other
+     * methods of this class, it can be called from any thread. A cancelled statement fails with a
+     * {@link DBException} on the thread executing it.
+     *
+     * @return number of statements cancelled.
+     */
+    public int cancel() {
+        int count = 0;
+        for (Statement statement : statements) {
+            try {
+                statement.cancel();
+                count++;
+            } catch (SQLException ignore) {
+                // statement is already closed or the driver does not support cancelling
+            }
+        }
+        return count;
+    }
+
+    void started(Statement statement) {
+        statements.add(statement);
+    }
+
+    void finished(Statement statement) {
+        statements.remove(statement);
+    }
+
+    /**
+     * @return time in milliseconds by which the transaction of a database must finish, or 0 if there is no deadline.
+     */
+    long getDeadline(String dbName) {
+        Long deadline = deadlines == null ? null : deadlines.get(dbName);
+        return deadline == null ? 0 : deadline;
+    }
+
+    void setDeadline(String dbName, long deadline) {
+        if (deadlines == null) {
+            deadlines = new HashMap<String, Long>();
+        }
+        deadlines.put(dbName, deadline);
+    }
+
+    void clearDeadline(String dbName) {
+        if (deadlines != null) {
+            deadlines.remove(dbName);
+        }
+    }
+
+    /**
+     * @return name of the {@link Shard} code running on current thread queries, or <code>null</code> if it does not
+     * run on a shard. Query cache keys include it, so that shards holding the same table do not share cached results.
+     */
+    public static String currentShardName() {
+        ConnectionContext context = contextTL.get();
+        return context == null ? null : context.shardName;
+    }
+
+    void setShardName(String shardName) {
+        this.shardName = shardName;
+    }
+
+    String getShardTableName(Class modelClass) {
+        return shardTableNames == null ? null : shardTableNames.get(modelClass);
+    }
+
+    void setShardTableName(Class modelClass, String tableName) {
+        if (shardTableNames == null) {
+            shardTableNames = new HashMap<Class, String>();
+        }
+        shardTableNames.put(modelClass, tableName);
+    }
+
+    void clearShardTableName(Class modelClass) {
+        if (shardTableNames != null) {
+            shardTableNames.remove(modelClass);
+        }
+    }
+}
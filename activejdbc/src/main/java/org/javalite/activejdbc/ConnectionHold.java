@@ -0,0 +1,113 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+
+/**
+ * Describes a connection currently attached to a thread: who holds it, since when and, if sampled, where it was
+ * attached from.
+ *
+ * @see ConnectionsAccess#getConnectionHolds()
+ */
+public class ConnectionHold {
+
+    private final String dbName;
+    private final String connection;
+    private final WeakReference<Thread> thread;
+    private final String threadName;
+    private final long attachTime;
+    private final StackTraceElement[] stack;
+    private volatile boolean reported;
+
+    ConnectionHold(String dbName, Connection connection, Thread thread, StackTraceElement[] stack) {
+        this.dbName = dbName;
+        this.connection = String.valueOf(connection);
+        this.thread = new WeakReference<Thread>(thread);
+        this.threadName = thread.getName();
+        this.stack = stack;
+        this.attachTime = System.currentTimeMillis();
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    /**
+     * @return string representation of the connection
+     */
+    public String getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return name of the thread the connection is attached to
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return false if the thread holding the connection died without detaching it, the connection is leaked then
+     */
+    public boolean isThreadAlive() {
+        Thread t = thread.get();
+        return t != null && t.isAlive();
+    }
+
+    /**
+     * @return time in milliseconds when the connection was attached
+     */
+    public long getAttachTime() {
+        return attachTime;
+    }
+
+    /**
+     * @return time in milliseconds the connection is held so far
+     */
+    public long getHoldTime() {
+        return System.currentTimeMillis() - attachTime;
+    }
+
+    /**
+     * @return stack trace of the code that attached the connection, or <code>null</code> if it was not sampled,
+     * see <code>connectionStackSampleRate</code> in <code>activejdbc.properties</code>
+     */
+    public StackTraceElement[] getStack() {
+        return stack;
+    }
+
+    boolean isReported() {
+        return reported;
+    }
+
+    void setReported() {
+        reported = true;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionHold{" +
+            "dbName='" + dbName + '\'' +
+            ", connection='" + connection + '\'' +
+            ", thread='" + threadName + '\'' +
+            ", holdTime=" + getHoldTime() +
+            '}';
+    }
+}
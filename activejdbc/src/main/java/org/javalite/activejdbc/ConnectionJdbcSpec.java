@@ -17,6 +17,11 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.pool.ConnectionPool;
+import org.javalite.activejdbc.pool.PoolConfig;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -30,21 +35,42 @@ public class ConnectionJdbcSpec implements ConnectionSpec{
     private final String user;
     private final String password;
     private final Properties properties;
+    private final PoolConfig poolConfig;
+    private List<ConnectionJdbcSpec> replicas;
+    private ReplicaSet.Strategy replicaStrategy;
+    private long stickyAfterWrite;
+    private volatile ReplicaSet replicaSet;
 
     public ConnectionJdbcSpec(String driver, String url, String user, String password) {
+        this(driver, url, user, password, null);
+    }
+
+    /**
+     * @param poolConfig settings of built-in connection pool, <code>null</code> to open a new connection every time.
+     */
+    public ConnectionJdbcSpec(String driver, String url, String user, String password, PoolConfig poolConfig) {
         this.driver = driver;
         this.url = url;
         this.user = user;
         this.password = password;
         this.properties = null;
+        this.poolConfig = poolConfig;
     }
 
     public ConnectionJdbcSpec(String driver, String url, Properties properties) {
+        this(driver, url, properties, null);
+    }
+
+    /**
+     * @param poolConfig settings of built-in connection pool, <code>null</code> to open a new connection every time.
+     */
+    public ConnectionJdbcSpec(String driver, String url, Properties properties, PoolConfig poolConfig) {
         this.driver = driver;
         this.url = url;
         this.user = null;
         this.password = null;
         this.properties = properties;
+        this.poolConfig = poolConfig;
     }
 
     public String getDriver() {
@@ -66,4 +92,38 @@ public class ConnectionJdbcSpec implements ConnectionSpec{
     public Properties getProps() {
         return properties;
     }
+
+    /**
+     * @return settings of built-in connection pool, or <code>null</code> if connections are not pooled.
+     */
+    public PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    /**
+     * Pools of replicas are created by the first call, which connects to the replicas.
+     *
+     * @return read replicas configured for this connection, or <code>null</code> if there are none.
+     */
+    public ReplicaSet getReplicaSet() {
+        ReplicaSet res = replicaSet;
+        if (res == null && replicas != null) {
+            synchronized (this) {
+                if ((res = replicaSet) == null) {
+                    List<ConnectionPool> pools = new ArrayList<ConnectionPool>();
+                    for (ConnectionJdbcSpec replica : replicas) {
+                        pools.add(ConnectionPool.of(replica));
+                    }
+                    replicaSet = res = new ReplicaSet(pools, replicaStrategy, stickyAfterWrite);
+                }
+            }
+        }
+        return res;
+    }
+
+    void setReplicas(List<ConnectionJdbcSpec> replicas, ReplicaSet.Strategy strategy, long stickyAfterWrite) {
+        this.replicas = replicas;
+        this.replicaStrategy = strategy;
+        this.stickyAfterWrite = stickyAfterWrite;
+    }
 }
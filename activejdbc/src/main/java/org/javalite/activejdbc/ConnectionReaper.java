@@ -0,0 +1,103 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task reporting connections held longer than <code>connectionLeakThreshold</code> and connections
+ * attached to threads that died without detaching them. Connections are only reported, never closed, because they
+ * might still be in use.
+ */
+class ConnectionReaper implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionReaper.class);
+
+    private static ScheduledExecutorService executor;
+    // read on every attach, without taking the lock once the reaper runs
+    private static volatile boolean running;
+
+    private final long threshold;
+
+    private ConnectionReaper(long threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Starts the reaper if it is not running yet.
+     *
+     * @param threshold time in milliseconds after which a held connection is reported
+     */
+    static void start(long threshold) {
+        if (!running) {
+            startExecutor(threshold);
+        }
+    }
+
+    private static synchronized void startExecutor(long threshold) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override public Thread newThread(Runnable runnable) {
+                Thread res = new Thread(runnable);
+                res.setDaemon(true);
+                res.setName("Connection reaper thread");
+                return res;
+            }
+        });
+        long interval = Math.max(threshold / 2, 100);
+        executor.scheduleWithFixedDelay(new ConnectionReaper(threshold), interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            running = false;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (ConnectionHold hold : ConnectionsAccess.getConnectionHolds()) {
+                if (!hold.isReported() && hold.getHoldTime() > threshold) {
+                    hold.setReported();
+                    logger.warn("Connection {} named: {} is held by thread {} for {} milliseconds, potential connection leak. Attached at: {}",
+                            hold.getConnection(), hold.getDbName(), hold.getThreadName(), hold.getHoldTime(), stackOf(hold));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to check held connections", e);
+        }
+    }
+
+    static String stackOf(ConnectionHold hold) {
+        return hold.getStack() == null ? "unknown, set connectionStackSampleRate in activejdbc.properties to find out"
+                : Arrays.toString(hold.getStack());
+    }
+}
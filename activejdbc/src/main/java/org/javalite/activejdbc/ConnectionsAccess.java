@@ -17,27 +17,37 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.statistics.TimeHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Keeps connections attached to threads, in the {@link ConnectionContext} bound to each thread. It also tracks how long each connection is held: see
+ * {@link #getConnectionHolds()} and {@link #getHoldTimeHistograms()}. If <code>connectionLeakThreshold</code>
+ * is set in <code>activejdbc.properties</code>, connections held longer than that many milliseconds are reported in the log.
+ * Connections attached to threads that died without detaching them are reported and dropped from tracking.
+ *
  * @author Igor Polevoy
  */
 public class ConnectionsAccess {
     private static final Logger logger = LoggerFactory.getLogger(ConnectionsAccess.class);
-    private static final ThreadLocal<HashMap<String, Connection>> connectionsTL = new ThreadLocal<HashMap<String, Connection>>();
+    private static final Set<ConnectionHold> holds = Collections.newSetFromMap(new ConcurrentHashMap<ConnectionHold, Boolean>());
+    private static final ConcurrentMap<String, TimeHistogram> histograms = new ConcurrentHashMap<String, TimeHistogram>();
+    private static final AtomicLong attachCount = new AtomicLong();
+    private static final int PURGE_INTERVAL = 1000;
 
     private ConnectionsAccess() {
         
     }
     
     static Map<String, Connection> getConnectionMap(){
-        if (connectionsTL.get() == null)
-            connectionsTL.set(new HashMap<String, Connection>());
-        return connectionsTL.get();
+        return ConnectionContext.current().connections;
     }
 
 
@@ -47,31 +57,109 @@ public class ConnectionsAccess {
      * @return a named connection attached to current thread and bound to name specified by argument.
      */
     static Connection getConnection(String dbName){
-        return getConnectionMap().get(dbName);
+        ConnectionContext context = ConnectionContext.peek();
+        return context == null ? null : context.connections.get(dbName);
     }
 
 
     /**
-     * Attaches a connection to a ThreadLocal and binds it to a name.
+     * Attaches a connection to the context of current thread and binds it to a name.
      *
      * @param dbName
      * @param connection
      */
     static void attach(String dbName, Connection connection, String extraInfo) {
-        if(ConnectionsAccess.getConnectionMap().get(dbName) != null){
-            throw new InternalException("You are opening a connection " + dbName + " without closing a previous one. Check your logic. Connection still remains on thread: " + ConnectionsAccess.getConnectionMap().get(dbName));
+        ConnectionContext context = ConnectionContext.current();
+        if(context.connections.get(dbName) != null){
+            throw new InternalException("You are opening a connection " + dbName + " without closing a previous one. Check your logic. Connection still remains on thread: " + context.connections.get(dbName));
         }
-        ConnectionsAccess.getConnectionMap().put(dbName, connection);
+        context.connections.put(dbName, connection);
+        track(context, dbName, connection);
         LogFilter.log(logger, "Attached connection: {} named: {} to current thread. Extra info: {}", connection, dbName, extraInfo);
     }
 
     static void detach(String dbName){
         LogFilter.log(logger, "Detached connection: {} from current thread", dbName);
-        getConnectionMap().remove(dbName);
+        ConnectionContext context = ConnectionContext.peek();
+        if (context != null) {
+            context.connections.remove(dbName);
+            release(context.holds.remove(dbName));
+        }
+    }
+
+    private static void track(ConnectionContext context, String dbName, Connection connection) {
+        long count = attachCount.incrementAndGet();
+        int sampleRate = Settings.STACK_SAMPLE_RATE;
+        StackTraceElement[] stack = sampleRate > 0 && count % sampleRate == 0 ? new Throwable().getStackTrace() : null;
+        ConnectionHold hold = new ConnectionHold(dbName, connection, Thread.currentThread(), stack);
+        context.holds.put(dbName, hold);
+        holds.add(hold);
+        if (Settings.LEAK_THRESHOLD > 0) {
+            ConnectionReaper.start(Settings.LEAK_THRESHOLD);
+        }
+        if (count % PURGE_INTERVAL == 0) {
+            purgeDeadThreads();
+        }
+    }
+
+    /**
+     * Stops tracking connections of threads that died without detaching them.
+     */
+    private static void purgeDeadThreads() {
+        for (ConnectionHold hold : holds) {
+            if (!hold.isThreadAlive() && release(hold)) {
+                logger.warn("Connection {} named: {} is attached to dead thread {}, it was never detached. Attached at: {}",
+                        hold.getConnection(), hold.getDbName(), hold.getThreadName(), ConnectionReaper.stackOf(hold));
+            }
+        }
+    }
+
+    /**
+     * Stops tracking a connection and records its hold time.
+     *
+     * @return true if the connection was tracked
+     */
+    static boolean release(ConnectionHold hold) {
+        if (hold != null && holds.remove(hold)) {
+            TimeHistogram histogram = histograms.get(hold.getDbName());
+            if (histogram == null) {
+                TimeHistogram existing = histograms.putIfAbsent(hold.getDbName(),
+                        histogram = new TimeHistogram(hold.getDbName()));
+                if (existing != null) {
+                    histogram = existing;
+                }
+            }
+            histogram.record(hold.getHoldTime());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return connections currently attached to all threads
+     */
+    public static List<ConnectionHold> getConnectionHolds() {
+        purgeDeadThreads();
+        return new ArrayList<ConnectionHold>(holds);
+    }
+
+    /**
+     * @return histograms of times connections were held by threads, keyed by connection names
+     */
+    public static Map<String, TimeHistogram> getHoldTimeHistograms() {
+        return new HashMap<String, TimeHistogram>(histograms);
     }
 
 
     static List<Connection> getAllConnections(){
         return new ArrayList<Connection>(getConnectionMap().values());
     }
+
+    /**
+     * Leak tracking settings, read from <code>activejdbc.properties</code> once instead of on every attach.
+     */
+    private static final class Settings {
+        static final int STACK_SAMPLE_RATE = Registry.instance().getConfiguration().getConnectionStackSampleRate();
+        static final long LEAK_THRESHOLD = Registry.instance().getConfiguration().getConnectionLeakThreshold();
+    }
 }
@@ -15,6 +15,10 @@ limitations under the License.
 */
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.pool.ConnectionPool;
+import org.javalite.activejdbc.statistics.RetryStats;
+import org.javalite.activejdbc.statistics.StatementCacheStats;
 import org.javalite.common.Convert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,9 +28,15 @@ import javax.naming.InitialContext;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import static org.javalite.common.Util.closeQuietly;
@@ -50,7 +60,10 @@ public class DB {
 
     public static final String DEFAULT_NAME = "default";
 
+    private static final ConcurrentMap<String, RetryStats> retryStats = new ConcurrentHashMap<String, RetryStats>();
+
     private final String name;
+    private int queryTimeout = -1;
 
     /**
      * Creates a new DB object representing a connection to a DB.
@@ -61,6 +74,24 @@ public class DB {
         this.name = name;
     }
 
+    /**
+     * Sets timeout of statements executed by this instance, overriding <code>queryTimeout</code> from
+     * <code>activejdbc.properties</code>:
+     * <pre>
+     *     new DB("reports").queryTimeout(30).findAll("SELECT ...");
+     * </pre>
+     * A statement that does not finish in time is cancelled and fails with a {@link DBException} caused by
+     * <code>java.sql.SQLTimeoutException</code> (if the driver supports timeouts).
+     *
+     * @param seconds timeout in seconds, 0 for no timeout.
+     * @return this instance.
+     */
+    public DB queryTimeout(int seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("timeout cannot be negative");
+        this.queryTimeout = seconds;
+        return this;
+    }
+
     /**
      * Opens a new connection based on JDBC properties and attaches it to a current thread.
      *
@@ -183,6 +214,37 @@ public class DB {
     }
 
 
+    /**
+     * Attaches a lazy connection to current thread: a real connection is taken from the datasource only when
+     * it is used for the first time, and a transaction opened by {@link #openTransaction()} is started only
+     * right before the first statement that can write. If the connection is never used, {@link #commitTransaction()}
+     * and {@link #close()} do not touch the datasource. Use it in code which might not need the database at all,
+     * such as web requests served from cache.
+     *
+     * @param datasource datasource will be used to acquire a connection on first use.
+     */
+    public void openLazy(DataSource datasource) {
+        checkExistingConnection(name);
+        ConnectionsAccess.attach(name, new LazyConnection(datasource), datasource.toString());
+    }
+
+    /**
+     * Looks up a data source in JNDI and attaches a lazy connection to current thread.
+     * See {@link #openLazy(DataSource)}.
+     *
+     * @param jndiName name of a configured data source.
+     */
+    public void openLazy(String jndiName) {
+        checkExistingConnection(name);
+        try {
+            Context ctx = new InitialContext();
+            DataSource ds = (DataSource) ctx.lookup(jndiName);
+            ConnectionsAccess.attach(name, new LazyConnection(ds), jndiName);
+        } catch (Exception e) {
+            throw new InitException("Failed to find JNDI name: " + jndiName, e);
+        }
+    }
+
     /**
      * Opens a new connection from JNDI data source by name using explicit JNDI properties. This method can be used in cases
      * when file <code>jndi.properties</code> cannot be easily updated.
@@ -212,7 +274,11 @@ public class DB {
     public void open(ConnectionSpec spec) {
         checkExistingConnection(name);
         if (spec instanceof ConnectionJdbcSpec) {
-            openJdbc((ConnectionJdbcSpec) spec);
+            ConnectionJdbcSpec jdbcSpec = (ConnectionJdbcSpec) spec;
+            if (jdbcSpec.getReplicaSet() != null) {
+                ReplicaSet.registerIfAbsent(name, jdbcSpec.getReplicaSet());
+            }
+            openJdbc(jdbcSpec);
         } else if(spec instanceof ConnectionJndiSpec) {
             openJndi((ConnectionJndiSpec) spec);
         } else {
@@ -234,13 +300,29 @@ public class DB {
      */
     private void openJdbc(ConnectionJdbcSpec spec) {
 
-        if(spec.getProps()!= null){
+        if(spec.getPoolConfig() != null){
+            openPooled(spec);
+        }else if(spec.getProps()!= null){
             open(spec.getDriver(), spec.getUrl(), spec.getProps());
         }else{
             open(spec.getDriver(), spec.getUrl(), spec.getUser(), spec.getPassword());
         }
     }
 
+    /**
+     * This method is used internally by framework.
+     *
+     * @param spec specification for a JDBC connection with pool settings.
+     */
+    private void openPooled(ConnectionJdbcSpec spec) {
+        try {
+            Connection connection = ConnectionPool.of(spec).getConnection();
+            ConnectionsAccess.attach(name, connection, spec.getUrl());
+        } catch (SQLException e) {
+            throw new InitException("Failed to get connection from pool for JDBC URL: " + spec.getUrl(), e);
+        }
+    }
+
     /**
      * This method is used internally by framework.
      *
@@ -297,6 +379,50 @@ public class DB {
             }
         } finally {
             ConnectionsAccess.detach(name); // let's free the thread from connection
+            closeReplica();
+            clearDeadline();
+        }
+    }
+
+    private void closeReplica() {
+        String replicaName = ReplicaSet.replicaName(name);
+        Connection replica = ConnectionsAccess.getConnection(replicaName);
+        if (replica != null) {
+            try {
+                StatementCache.instance().cleanStatementCache(replica);
+                replica.close();
+                LogFilter.log(logger, "Closed replica connection: {}", replica);
+            } catch (SQLException e) {
+                logger.warn("Could not close replica connection! MUST INVESTIGATE POTENTIAL CONNECTION LEAK!", e);
+            } finally {
+                ConnectionsAccess.detach(replicaName);
+            }
+        }
+    }
+
+    /**
+     * Provides connection for queries which only read: a replica if {@link ReplicaSet} is registered for
+     * this connection name, otherwise the same as {@link #connection()}.
+     */
+    private Connection readConnection() {
+        Connection primary = connection();
+        ReplicaSet replicas = ReplicaSet.of(name);
+        if (replicas == null) {
+            return primary;
+        }
+        try {
+            return replicas.readConnection(name, primary);
+        } catch (SQLException e) {
+            throw new DBException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Remembers a write, so that reads of current thread stay on primary for a while.
+     */
+    private void wrote() {
+        if (ReplicaSet.of(name) != null) {
+            ConnectionContext.current().setLastWrite(name, System.currentTimeMillis());
         }
     }
 
@@ -349,8 +475,9 @@ public class DB {
         try {
             Object result = null;
             long start = System.currentTimeMillis();
-            ps = connection().prepareStatement(query);
+            ps = readConnection().prepareStatement(query);
             setParameters(ps, params);
+            started(ps, false);
             rs = ps.executeQuery();
             if (rs.next()) {
                 result = rs.getObject(1);
@@ -360,6 +487,7 @@ public class DB {
         } catch (SQLException e) {
             throw new DBException(query, params, e);
         } finally {
+            finished(ps);
             closeQuietly(rs);
             closeQuietly(ps);
         }
@@ -421,8 +549,9 @@ public class DB {
         try {
             List results = new ArrayList();
             long start = System.currentTimeMillis();
-            ps = connection().prepareStatement(query);
+            ps = readConnection().prepareStatement(query);
             setParameters(ps, params);
+            started(ps, false);
             rs = ps.executeQuery();
             while (rs.next()) {
                 results.add(rs.getObject(1));
@@ -432,6 +561,7 @@ public class DB {
         } catch (SQLException e) {
             throw new DBException(query, params, e);
         } finally {
+            finished(ps);
             closeQuietly(rs);
             closeQuietly(ps);
         }
@@ -487,19 +617,23 @@ public class DB {
         if(query.indexOf('?') == -1 && params.length != 0) throw new IllegalArgumentException("you passed arguments, but the query does not have placeholders: (?)");
 
         //TODO: cache prepared statements here too
-        PreparedStatement ps;
+        PreparedStatement ps = null;
         ResultSet rs;
         try {
             ps = createStreamingPreparedStatement(query);
             setParameters(ps, params);
+            started(ps, false); // finished by RowProcessor
             rs = ps.executeQuery();
             return new RowProcessor(rs, ps);
 
-        } catch (SQLException e) { throw new DBException(query, params, e); }
+        } catch (SQLException e) {
+            finished(ps);
+            throw new DBException(query, params, e);
+        }
     }
 
     private PreparedStatement createStreamingPreparedStatement(String query) throws SQLException {
-        Connection conn = connection();
+        Connection conn = readConnection();
         PreparedStatement res;
         if ("mysql".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName())) {
             res = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
@@ -523,19 +657,21 @@ public class DB {
         ResultSet rs = null;
         try {
             s = createStreamingStatement();
+            started(s, false);
             rs = s.executeQuery(sql);
             RowProcessor p = new RowProcessor(rs, s);
             p.with(listener);
         } catch (SQLException e) {
             throw new DBException(sql, null, e);
         } finally {
+            finished(s);
             closeQuietly(rs);
             closeQuietly(s);
         }
     }
 
     private Statement createStreamingStatement() throws SQLException {
-        Connection conn = connection();
+        Connection conn = readConnection();
         Statement res;
         if ("mysql".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName())) {
             res = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
@@ -557,13 +693,16 @@ public class DB {
         Statement s = null;
         try {
             s = connection().createStatement();
+            started(s, false);
             int count = s.executeUpdate(query);
+            wrote();
             LogFilter.logQuery(logger, query, null, start);
             return count;
         } catch (SQLException e) {
             logException("Query failed: " + query, e);
             throw new DBException(query, null, e);
         } finally {
+            finished(s);
             closeQuietly(s);
         }
     }
@@ -585,13 +724,16 @@ public class DB {
         try {
             ps = connection().prepareStatement(query);
             setParameters(ps, params);
+            started(ps, false);
             int count = ps.executeUpdate();
+            wrote();
             LogFilter.logQuery(logger, query, params, start);
             return count;
         } catch (SQLException e) {
             logException("Failed query: " + query, e);
             throw new DBException(query, params, e);
         } finally {
+            finished(ps);
             closeQuietly(ps);
         }
 
@@ -616,6 +758,7 @@ public class DB {
         try {
             Connection connection = connection();
             ps = StatementCache.instance().getPreparedStatement(connection, query);
+            boolean cached = ps != null;
             if(ps == null){
                 ps = connection.prepareStatement(query, new String[]{autoIncrementColumnName});
                 StatementCache.instance().cache(connection, query, ps);
@@ -642,7 +785,10 @@ public class DB {
                 }
             }
 
-            if (ps.executeUpdate() != 1) {
+            started(ps, cached);
+            int count = ps.executeUpdate();
+            wrote();
+            if (count != 1) {
                 return null;
             }
 
@@ -665,16 +811,216 @@ public class DB {
         } catch (SQLException e) {
             throw new DBException(query, params, e);
         } finally {
+            finished(ps);
             // don't close ps as it could have come from the cache!
             //TODO: close ps if not cached?
         }
     }
 
+    /**
+     * Executes an <code>INSERT</code>, <code>UPDATE</code> or upsert statement which returns written rows, such as
+     * one formed by {@link org.javalite.activejdbc.dialects.DefaultDialect#returningAll(String)}.
+     *
+     * @param query statement returning written rows.
+     * @param params list of parameter values.
+     * @return written rows.
+     */
+    List<Map<String, Object>> execReturning(String query, Object... params) {
+        long start = System.currentTimeMillis();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = connection().prepareStatement(query);
+            setParameters(ps, params);
+            started(ps, false);
+            rs = ps.executeQuery();
+            wrote();
+            List<Map<String, Object>> rows = readRows(rs);
+            LogFilter.logQuery(logger, query, params, start);
+            return rows;
+        } catch (SQLException e) {
+            logException("Failed query: " + query, e);
+            throw new DBException(query, params, e);
+        } finally {
+            finished(ps);
+            closeQuietly(rs);
+            closeQuietly(ps);
+        }
+    }
+
+    private List<Map<String, Object>> readRows(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        while (rs.next()) {
+            Map<String, Object> row = new CaseInsensitiveMap<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                row.put(metaData.getColumnLabel(i), rs.getObject(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
     private void logException(String message, Exception e) {
         if (logger.isErrorEnabled() && Convert.toBoolean(System.getProperty("activejdbc.log_exception")))
             logger.error(message, e);
     }
 
+    /**
+     * Runs a task on {@link AsyncExecutor} with a separate connection to this database, attached under the name
+     * of this instance. Use it to run several independent queries at the same time:
+     * <pre>
+     *     Future&lt;List&lt;Map&gt;&gt; stats = new DB("reports").async(new Callable&lt;List&lt;Map&gt;&gt;() {
+     *         public List&lt;Map&gt; call() {
+     *             return new DB("reports").findAll("SELECT ...");
+     *         }
+     *     });
+     * </pre>
+     *
+     * @param task task to run
+     * @return future result of task
+     */
+    public <T> Future<T> async(Callable<T> task) {
+        return AsyncExecutor.instance().submit(name, task);
+    }
+
+    /**
+     * Runs a task in a transaction, and commits it. If the task fails, the transaction is rolled back. If it failed
+     * because of contention with other transactions, such as a deadlock or a serialization failure (as classified by
+     * {@link org.javalite.activejdbc.dialects.DefaultDialect#isRetryable(SQLException)}), it is run again after a random
+     * wait, up to {@link RetryPolicy#getMaxAttempts()} times. The task must therefore have no side effects outside
+     * of the database.
+     * <p></p>
+     * If a transaction is already open on the connection, the task simply runs as part of it, without retries,
+     * because only the outer transaction can be re-run as a whole.
+     *
+     * @param task task to run
+     * @param policy number of attempts and waits between them
+     * @return result of the task
+     */
+    public <T> T inTransaction(Callable<T> task, RetryPolicy policy) {
+        Connection connection = connection();
+        try {
+            if (!connection.getAutoCommit()) {
+                return task.call();
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DBException(e);
+        }
+        RetryStats stats = retryStatsOf(policy.getName() != null ? policy.getName() : task.getClass().getName());
+        stats.addTransaction();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                openTransaction();
+                try {
+                    T result = task.call();
+                    commitTransaction();
+                    return result;
+                } catch (Error e) {
+                    rollbackQuietly();
+                    throw e;
+                } catch (Exception e) {
+                    rollbackQuietly();
+                    SQLException cause = sqlCause(e);
+                    boolean retryable = cause != null && isRetryable(connection, cause);
+                    if (!retryable) {
+                        throw e instanceof RuntimeException ? (RuntimeException) e : new DBException(e);
+                    }
+                    if (attempt >= policy.getMaxAttempts()) {
+                        stats.addExhausted();
+                        logger.warn("Transaction {} failed after {} attempts", stats.getName(), attempt);
+                        throw e instanceof RuntimeException ? (RuntimeException) e : new DBException(e);
+                    }
+                    stats.addRetry();
+                    long backoff = policy.backoff(attempt);
+                    LogFilter.log(logger, "Transaction {} failed with SQLState {}, retrying in {} milliseconds",
+                            stats.getName(), cause.getSQLState(), backoff);
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new DBException("Interrupted while waiting to retry transaction " + stats.getName(), e);
+                    }
+                }
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.warn("Failed to restore auto-commit", e);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #inTransaction(Callable, RetryPolicy)} with default retry policy.
+     */
+    public <T> T inTransaction(Callable<T> task) {
+        return inTransaction(task, new RetryPolicy());
+    }
+
+    /**
+     * Provides statistics of transactions run by {@link #inTransaction(Callable, RetryPolicy)}, by name of policy
+     * or class of task.
+     *
+     * @return statistics of retried transactions.
+     */
+    public static Collection<RetryStats> retryStats() {
+        return Collections.unmodifiableCollection(retryStats.values());
+    }
+
+    private static RetryStats retryStatsOf(String name) {
+        RetryStats stats = retryStats.get(name);
+        if (stats == null) {
+            RetryStats existing = retryStats.putIfAbsent(name, stats = new RetryStats(name));
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    private static SQLException sqlCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return (SQLException) t;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRetryable(Connection connection, SQLException e) {
+        try {
+            return DefaultDialect.of(Registry.instance().getConfiguration()
+                    .getDialect(connection.getMetaData().getDatabaseProductName())).isRetryable(e);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            rollbackTransaction();
+        } catch (Exception e) {
+            logger.warn("Failed to roll back transaction", e);
+        }
+    }
+
+    /**
+     * Opens local transaction which must finish within a time limit: each statement executed in the transaction
+     * gets a timeout no longer than the time left, and once the time is up statements fail without being executed.
+     * The deadline is cleared by {@link #commitTransaction()} or {@link #rollbackTransaction()}.
+     *
+     * @param timeout time limit of transaction in seconds.
+     */
+    public void openTransaction(int timeout) {
+        if (timeout <= 0) throw new IllegalArgumentException("timeout must be positive");
+        openTransaction();
+        ConnectionContext.current().setDeadline(name, System.currentTimeMillis() + timeout * 1000L);
+    }
+
     /**
      * Opens local transaction.
      */
@@ -702,9 +1048,12 @@ public class DB {
                 throw new DBException("Cannot commit transaction, connection '" + name + "' not available");
             }
             c.commit();
+            wrote(); // replicas might not have the transaction yet
             LogFilter.log(logger, "Transaction committed");
         } catch (SQLException ex) {
             throw new DBException(ex.getMessage(), ex);
+        } finally {
+            clearDeadline();
         }
     }
 
@@ -721,6 +1070,15 @@ public class DB {
             LogFilter.log(logger, "Transaction rolled back");
         } catch (SQLException ex) {
             throw new DBException(ex.getMessage(), ex);
+        } finally {
+            clearDeadline();
+        }
+    }
+
+    private void clearDeadline() {
+        ConnectionContext context = ConnectionContext.peek();
+        if (context != null) {
+            context.clearDeadline(name);
         }
     }
 
@@ -771,7 +1129,9 @@ public class DB {
     public static void closeAllConnections(){
         List<String> names = getCurrrentConnectionNames();
         for(String name: names){
-            new DB(name).close();
+            if (ConnectionsAccess.getConnection(name) != null) { // replicas are closed with their primary
+                new DB(name).close();
+            }
         }
     }
 
@@ -785,6 +1145,15 @@ public class DB {
         return ConnectionsAccess.getConnectionMap();
     }
 
+    /**
+     * Provides statistics of prepared statements cached for inserts, for all connections.
+     *
+     * @return current statistics of statement cache.
+     */
+    public static StatementCacheStats statementCacheStats(){
+        return StatementCache.instance().getStats();
+    }
+
     /**
      * Creates a <code>java.sql.PreparedStatement</code> to be used in batch executions later.
      *
@@ -799,6 +1168,35 @@ public class DB {
         }
     }
 
+    /**
+     * Same as {@link #startBatch(String)}, but asks the driver to return written rows as generated keys, read them
+     * with {@link #generatedRows(PreparedStatement)} after the batch is executed.
+     */
+    PreparedStatement startBatchReturning(String parametrizedStatement) {
+        try {
+            return connection().prepareStatement(parametrizedStatement, Statement.RETURN_GENERATED_KEYS);
+        } catch (SQLException e) {
+            throw new DBException(e);
+        }
+    }
+
+    /**
+     * @param ps statement from {@link #startBatchReturning(String)}, after the batch is executed.
+     * @return rows returned by the driver as generated keys, empty if the driver did not return them.
+     */
+    List<Map<String, Object>> generatedRows(PreparedStatement ps) {
+        ResultSet rs = null;
+        try {
+            rs = ps.getGeneratedKeys();
+            return rs == null ? Collections.<Map<String, Object>>emptyList() : readRows(rs);
+        } catch (SQLException e) {
+            logger.debug("Driver did not return generated keys of batch", e);
+            return Collections.emptyList();
+        } finally {
+            closeQuietly(rs);
+        }
+    }
+
     /**
      * Adds a batch statement using given <code>java.sql.PreparedStatement</code> and parameters.
      * @param ps <code>java.sql.PreparedStatement</code> to add batch to.
@@ -826,11 +1224,47 @@ public class DB {
      */
     public int[] executeBatch(PreparedStatement ps){
         try {
+            started(ps, true);
             int[] counters = ps.executeBatch();
+            wrote();
             ps.clearParameters();
             return counters;
         } catch (SQLException e) {
             throw new DBException(e);
+        } finally {
+            finished(ps);
+        }
+    }
+
+    /**
+     * Sets timeout of a statement about to be executed, and registers it so that it can be cancelled with
+     * {@link ConnectionContext#cancel()}. The timeout is shortened to the time left before the deadline of
+     * current transaction, if there is one.
+     *
+     * @param reused true if the statement was executed before, and might have a timeout set already.
+     */
+    private void started(Statement statement, boolean reused) throws SQLException {
+        int timeout = queryTimeout >= 0 ? queryTimeout : Registry.instance().getConfiguration().getQueryTimeout();
+        ConnectionContext context = ConnectionContext.current();
+        long deadline = context.getDeadline(name);
+        if (deadline > 0) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                throw new SQLTimeoutException("Deadline of transaction on connection '" + name + "' has passed");
+            }
+            int seconds = (int) Math.min(Integer.MAX_VALUE, (left + 999) / 1000);
+            timeout = timeout == 0 ? seconds : Math.min(timeout, seconds);
+        }
+        if (timeout > 0 || reused) {
+            statement.setQueryTimeout(timeout);
+        }
+        context.started(statement);
+    }
+
+    private void finished(Statement statement) {
+        ConnectionContext context = ConnectionContext.peek();
+        if (statement != null && context != null) {
+            context.finished(statement);
         }
     }
 
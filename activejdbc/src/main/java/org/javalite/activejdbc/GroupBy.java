@@ -0,0 +1,111 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.common.Convert;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates aggregates of groups of records selected by a {@link LazyList}, see {@link LazyList#groupBy(String...)}.
+ * Every method runs one query. Results are maps ordered by groups. Their keys are values of the group column,
+ * or lists of values if grouped by several columns.
+ */
+public class GroupBy {
+
+    private final LazyList<?> list;
+    private final List<String> columns;
+
+    GroupBy(LazyList<?> list, List<String> columns) {
+        this.list = list;
+        this.columns = columns;
+    }
+
+    /**
+     * @return number of records in each group.
+     */
+    public Map<Object, Long> count() {
+        Map<Object, Long> res = new LinkedHashMap<Object, Long>();
+        for (Map.Entry<Object, Object> entry : aggregate("COUNT(*)").entrySet()) {
+            res.put(entry.getKey(), Convert.toLong(entry.getValue()));
+        }
+        return res;
+    }
+
+    /**
+     * @param column column or expression
+     * @return number of distinct non-null values of a column in each group.
+     */
+    public Map<Object, Long> countDistinct(String column) {
+        Map<Object, Long> res = new LinkedHashMap<Object, Long>();
+        for (Map.Entry<Object, Object> entry : aggregate("COUNT(DISTINCT " + column + ")").entrySet()) {
+            res.put(entry.getKey(), Convert.toLong(entry.getValue()));
+        }
+        return res;
+    }
+
+    /**
+     * @param column column or expression
+     * @return sum of a column in each group.
+     */
+    public Map<Object, BigDecimal> sum(String column) {
+        Map<Object, BigDecimal> res = new LinkedHashMap<Object, BigDecimal>();
+        for (Map.Entry<Object, Object> entry : aggregate("SUM(" + column + ")").entrySet()) {
+            res.put(entry.getKey(), Convert.toBigDecimal(entry.getValue()));
+        }
+        return res;
+    }
+
+    /**
+     * @param column column or expression
+     * @return average of a column in each group.
+     */
+    public Map<Object, Double> avg(String column) {
+        Map<Object, Double> res = new LinkedHashMap<Object, Double>();
+        for (Map.Entry<Object, Object> entry : aggregate("AVG(" + column + ")").entrySet()) {
+            res.put(entry.getKey(), Convert.toDouble(entry.getValue()));
+        }
+        return res;
+    }
+
+    /**
+     * @param column column or expression
+     * @return minimum value of a column in each group, as returned by driver.
+     */
+    public Map<Object, Object> min(String column) {
+        return aggregate("MIN(" + column + ")");
+    }
+
+    /**
+     * @param column column or expression
+     * @return maximum value of a column in each group, as returned by driver.
+     */
+    public Map<Object, Object> max(String column) {
+        return aggregate("MAX(" + column + ")");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> aggregate(String function) {
+        Map<Object, Object> groups = (Map<Object, Object>) list.aggregate(columns, function);
+        return groups == null ? Collections.emptyMap() : groups;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.List;
+
+/**
+ * One page of records produced by keyset pagination, see {@link Paginator#keyset(String)}. Next and previous pages
+ * are requested with opaque cursors of this page, which are safe to pass to and receive from a client.
+ */
+public class KeysetPage<T extends Model> {
+
+    private final List<T> items;
+    private final String previousCursor;
+    private final String nextCursor;
+    private final boolean hasPrevious;
+    private final boolean hasNext;
+
+    KeysetPage(List<T> items, String previousCursor, String nextCursor, boolean hasPrevious, boolean hasNext) {
+        this.items = items;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+        this.hasPrevious = hasPrevious;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * @return records of this page, in order of the paginator.
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor to pass to {@link Paginator#getPageBefore(String)}, or <code>null</code> if this page is empty.
+     */
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * @return cursor to pass to {@link Paginator#getPageAfter(String)}, or <code>null</code> if this page is empty.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
@@ -19,11 +19,15 @@ package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.associations.*;
 import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.statistics.HydrationStats;
+import org.javalite.common.Convert;
 import org.javalite.common.Inflector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.math.BigDecimal;
 import java.util.*;
 
 import static org.javalite.activejdbc.ModelDelegate.metaModelOf;
@@ -46,8 +50,12 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
     private final String fullQuery;
     private final Object[] params;
     private long limit = -1, offset = -1;
+    private int queryTimeout = -1;
     private final List<Association> includes = new ArrayList<Association>();
     private final boolean forPaginator;
+    private String totalCountColumn;
+    private List<String> columns;
+    private long totalCount = -1;
 
     protected LazyList(String subQuery, MetaModel metaModel, Object... params) {
         this.fullQuery = null;
@@ -82,6 +90,38 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         this.forPaginator = false;
     }
 
+    /**
+     * Reads the total number of rows selected by a query from a column of the first row, see
+     * {@link DefaultDialect#selectStarWithTotalCount(String, String, String)}.
+     */
+    LazyList<T> totalCountColumn(String column) {
+        this.totalCountColumn = column;
+        return this;
+    }
+
+    /**
+     * Loads this list if it is not loaded yet.
+     *
+     * @return total count of rows selected without limit and offset, or -1 if it is not known.
+     */
+    long getTotalCount() {
+        hydrate();
+        return totalCount;
+    }
+
+    /**
+     * Sets timeout of the query loading this list, and of queries loading included associations, overriding
+     * <code>queryTimeout</code> from <code>activejdbc.properties</code>. See {@link DB#queryTimeout(int)}.
+     *
+     * @param seconds timeout in seconds, 0 for no timeout.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model> LazyList<E> queryTimeout(int seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("timeout cannot be negative");
+        this.queryTimeout = seconds;
+        return (LazyList<E>) this;
+    }
+
     /**
      *  This method limits the number of results in the resultset.
      *  It can be used in combination with the offset like this:
@@ -138,6 +178,185 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
     }
 
 
+    /**
+     * Selects only given columns instead of <code>SELECT *</code>, to avoid transferring and keeping in memory
+     * values that are not needed, such as large text or binary columns on a list page:
+     * <pre>
+     * List&lt;Article&gt; articles = Article.where("published = ?", true).select("title", "author_id");
+     * </pre>
+     * Columns needed to identify a record (ID, composite keys, version column) and foreign keys of included parents
+     * are always selected.
+     * <p></p>
+     * Models of this list are partially loaded. The first time an attribute which was not selected is read,
+     * all remaining attributes of that model are loaded from database with one more query. Saving a partial model
+     * only updates attributes that were changed, as for any other model. {@link Model#toMap()} and other
+     * conversions only contain attributes that are loaded. Results of a projection are not put into
+     * {@link QueryCache}, even if the model is {@link org.javalite.activejdbc.annotations.Cached}.
+     *
+     * @param columns names of columns to select.
+     * @return instance of this <code>LazyList</code>
+     */
+    public <E extends Model> LazyList<E> select(String... columns) {
+        if (fullQuery != null) throw new IllegalArgumentException("Cannot use .select() if using free form SQL");
+        if (columns.length == 0) throw new IllegalArgumentException("need at least one column to select");
+        this.columns = Arrays.asList(columns);
+        return (LazyList<E>) this;
+    }
+
+    /**
+     * @return columns selected by {@link #select(String...)}, together with columns required to identify records
+     * and to load included parents.
+     */
+    private List<String> selectedColumns() {
+        Set<String> selected = new CaseInsensitiveSet();
+        selected.addAll(columns);
+        if (metaModel.getCompositeKeys() != null) {
+            selected.addAll(Arrays.asList(metaModel.getCompositeKeys()));
+        } else {
+            selected.add(metaModel.getIdName());
+        }
+        if (metaModel.isVersioned()) {
+            selected.add(metaModel.getVersionColumn());
+        }
+        for (Association association : includes) {
+            if (association instanceof BelongsToAssociation) {
+                selected.add(((BelongsToAssociation) association).getFkName());
+            } else if (association instanceof BelongsToPolymorphicAssociation) {
+                selected.add("parent_id");
+                selected.add("parent_type");
+            }
+        }
+        return new ArrayList<String>(selected);
+    }
+
+    /**
+     * Calculates sum of a column over records selected by this list, with one query and without loading the records:
+     * <pre>
+     * BigDecimal total = Payment.where("paid_at &gt;= ?", monthStart).sum("amount");
+     * </pre>
+     * Results are cached in the same cache as the list if the model is
+     * {@link org.javalite.activejdbc.annotations.Cached}.
+     *
+     * @param column column or expression to sum, for example <code>"price * quantity"</code>
+     * @return sum, or <code>null</code> if there are no records.
+     */
+    public BigDecimal sum(String column) {
+        return Convert.toBigDecimal(aggregate(Collections.<String>emptyList(), "SUM(" + column + ")"));
+    }
+
+    /**
+     * Calculates average of a column over records selected by this list, see {@link #sum(String)}.
+     *
+     * @param column column or expression
+     * @return average, or <code>null</code> if there are no records.
+     */
+    public Double avg(String column) {
+        return Convert.toDouble(aggregate(Collections.<String>emptyList(), "AVG(" + column + ")"));
+    }
+
+    /**
+     * Finds minimum value of a column over records selected by this list, see {@link #sum(String)}.
+     *
+     * @param column column or expression
+     * @return minimum value as returned by driver, or <code>null</code> if there are no records.
+     */
+    public Object min(String column) {
+        return aggregate(Collections.<String>emptyList(), "MIN(" + column + ")");
+    }
+
+    /**
+     * Finds maximum value of a column over records selected by this list, see {@link #sum(String)}.
+     *
+     * @param column column or expression
+     * @return maximum value as returned by driver, or <code>null</code> if there are no records.
+     */
+    public Object max(String column) {
+        return aggregate(Collections.<String>emptyList(), "MAX(" + column + ")");
+    }
+
+    /**
+     * Counts distinct values of a column over records selected by this list, see {@link #sum(String)}.
+     *
+     * @param column column or expression
+     * @return number of distinct non-null values.
+     */
+    public Long countDistinct(String column) {
+        return Convert.toLong(aggregate(Collections.<String>emptyList(), "COUNT(DISTINCT " + column + ")"));
+    }
+
+    /**
+     * Groups records selected by this list to calculate aggregates per group:
+     * <pre>
+     * Map&lt;Object, Long&gt; ordersByStatus = Order.where("created_at &gt;= ?", today).groupBy("status").count();
+     * </pre>
+     *
+     * @param columns columns or expressions to group by.
+     * @return object to calculate aggregates of groups with.
+     */
+    public GroupBy groupBy(String... columns) {
+        if (columns.length == 0) throw new IllegalArgumentException("need at least one column to group by");
+        return new GroupBy(this, Arrays.asList(columns));
+    }
+
+    /**
+     * Runs an aggregate query over records selected by this list.
+     *
+     * @param groupBys columns to group by, can be empty.
+     * @param function aggregate function applied to a column
+     * @return single value if there are no groups, or unmodifiable map of groups to values, ordered by groups.
+     * Keys of this map are values of the group column, or lists of values if there are several group columns.
+     */
+    Object aggregate(List<String> groupBys, String function) {
+        if (fullQuery != null) throw new IllegalArgumentException("Cannot aggregate free form SQL");
+        if (limit != -1 || offset != -1) throw new IllegalArgumentException("Cannot aggregate with limit or offset");
+
+        List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < groupBys.size(); i++) {
+            columns.add(groupBys.get(i) + " AS g" + i);
+        }
+        columns.add(function + " AS agg");
+        StringBuilder sb = new StringBuilder(DefaultDialect.of(metaModel.getDialect()).selectColumns(metaModel.getTableName(), columns, subQuery));
+        if (!groupBys.isEmpty()) {
+            sb.append(" GROUP BY ");
+            join(sb, groupBys, ", ");
+            sb.append(" ORDER BY ");
+            join(sb, groupBys, ", ");
+        }
+        String sql = sb.toString();
+
+        if (metaModel.cached()) {
+            Object cached = QueryCache.instance().getItem(metaModel.getTableName(), sql, params);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<Map> rows = db(metaModel).findAll(sql, params);
+        Object result;
+        if (groupBys.isEmpty()) {
+            result = rows.isEmpty() ? null : rows.get(0).get("agg");
+        } else {
+            Map<Object, Object> groups = new LinkedHashMap<Object, Object>();
+            for (Map row : rows) {
+                Object group;
+                if (groupBys.size() == 1) {
+                    group = row.get("g0");
+                } else {
+                    List<Object> values = new ArrayList<Object>(groupBys.size());
+                    for (int i = 0; i < groupBys.size(); i++) {
+                        values.add(row.get("g" + i));
+                    }
+                    group = values;
+                }
+                groups.put(group, row.get("agg"));
+            }
+            result = Collections.unmodifiableMap(groups);
+        }
+        if (metaModel.cached() && result != null) {
+            QueryCache.instance().addItem(metaModel.getTableName(), sql, params, result);
+        }
+        return result;
+    }
+
     /**
      * This method includes associated objects. It will eagerly load associated models of
      * models selected by the query. For instance, if there are models <code>Author</code>, <code>Post</code>
@@ -294,31 +513,96 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
      * list.
      */
     public String toSql(boolean showParameters) {
-        String sql;
-        if(forPaginator){
-            sql = metaModel.getDialect().formSelect(null, fullQuery, orderBys, limit, offset);
-        }else{
-            sql = fullQuery != null ? fullQuery
-                    : metaModel.getDialect().formSelect(metaModel.getTableName(), subQuery, orderBys, limit, offset);
-        }
+        List<Object> allParams = new ArrayList<Object>(Arrays.asList(params));
+        String sql = toSql(allParams);
         if (showParameters) {
             StringBuilder sb = new StringBuilder(sql).append(", with parameters: ");
-            join(sb, params, ", ");
+            join(sb, allParams, ", ");
             sql = sb.toString();
         }
         return sql;
     }
 
+    /**
+     * Limit and offset are bound as parameters, so that all pages of a query are the same statement.
+     * SQL is only generated the first time a query of this shape is executed, see {@link SqlCache}.
+     *
+     * @param allParams parameters of query, values of limit and offset are added to them.
+     */
+    private String toSql(List<Object> allParams) {
+        if (fullQuery != null && !forPaginator) {
+            return fullQuery;
+        }
+        DefaultDialect dialect = DefaultDialect.of(metaModel.getDialect());
+        if (!dialect.bindsLimits()) {
+            return formSelect(dialect, null); // SQL differs by values of limit and offset
+        }
+        List<Object> key = SqlCache.key(metaModel.getModelClass(), metaModel.getTableName(), subQuery, fullQuery,
+                new ArrayList<String>(orderBys), limit != -1, offset != -1,
+                columns, columns == null ? null : new ArrayList<Association>(includes)); // includes add selected columns
+        String sql = SqlCache.get(key);
+        if (sql == null) {
+            sql = SqlCache.put(key, formSelect(dialect, new ArrayList<Object>()));
+        }
+        dialect.addLimitParams(allParams, limit, offset);
+        return sql;
+    }
+
+    private String formSelect(DefaultDialect dialect, List<Object> params) {
+        if(forPaginator){
+            return dialect.formSelect(null, fullQuery, orderBys, limit, offset, params);
+        }else if(columns != null){
+            String projection = dialect.selectColumns(metaModel.getTableName(), selectedColumns(), subQuery);
+            return dialect.formSelect(null, projection, orderBys, limit, offset, params);
+        }else{
+            return dialect.formSelect(metaModel.getTableName(), subQuery, orderBys, limit, offset, params);
+        }
+    }
+
+    /**
+     * @return records of this list from {@link QueryCache}, or <code>null</code> if they are not cached.
+     * Does not run the query.
+     */
+    List<T> fromCache() {
+        List<Object> paramList = new ArrayList<Object>(Arrays.asList(params));
+        String sql = toSql(paramList);
+        return (List<T>) QueryCache.instance().getItem(metaModel.getTableName(), sql, paramList.toArray());
+    }
+
+    /**
+     * Puts records into {@link QueryCache} as if they were loaded by this list.
+     */
+    void toCache(List<T> models) {
+        List<Object> paramList = new ArrayList<Object>(Arrays.asList(params));
+        String sql = toSql(paramList);
+        QueryCache.instance().addItem(metaModel.getTableName(), sql, paramList.toArray(),
+                Collections.unmodifiableList(models));
+    }
+
+    private DB db(MetaModel metaModel) {
+        DB db = new DB(metaModel.getDbName());
+        return queryTimeout < 0 ? db : db.queryTimeout(queryTimeout);
+    }
+
+    private LazyList<Model> withTimeout(LazyList<Model> list) {
+        list.queryTimeout = queryTimeout;
+        return list;
+    }
 
     @Override
     protected void hydrate() {
 
         if (hydrated()) { return; }
 
-        String sql= toSql(false);
+        List<Object> paramList = new ArrayList<Object>(Arrays.asList(params));
+        String sql = toSql(paramList);
+        Object[] allParams = paramList.toArray();
+        // partial models load missing attributes in place, so they are not shared through the cache
+        final boolean partial = columns != null;
+        boolean useCache = metaModel.cached() && !partial;
 
-        if(metaModel.cached()){
-            List<T> cached = (List<T>) QueryCache.instance().getItem(metaModel.getTableName(), sql, params);
+        if(useCache){
+            List<T> cached = (List<T>) QueryCache.instance().getItem(metaModel.getTableName(), sql, allParams);
             if(cached != null){
                 delegate = cached;
                 return;
@@ -326,17 +610,47 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         }
         delegate = new ArrayList<T>();
         long start = System.currentTimeMillis();
-        new DB(metaModel.getDbName()).find(sql, params).with(new RowListenerAdapter() {
-            @Override public void onNext(Map<String, Object> map) {
-                delegate.add(ModelDelegate.<T>instance(map, metaModel));
+        if (totalCountColumn != null) {
+            loadWithTotalCount(sql, allParams);
+        } else {
+            ModelDelegate.load(db(metaModel), metaModel, (Class<T>) metaModel.getModelClass(), new ModelListener<T>() {
+                @Override public void onModel(T model) {
+                    if (partial) {
+                        model.setPartial();
+                    }
+                    delegate.add(model);
+                }
+            }, sql, allParams);
+        }
+        LogFilter.logQuery(logger, sql, allParams, start);
+        if(useCache){
+            delegate = Collections.unmodifiableList(delegate);
+            QueryCache.instance().addItem(metaModel.getTableName(), sql, allParams, delegate);
+        }
+        if (!includes.isEmpty()) {
+            HydrationStats stats = ModelDelegate.hydrationStatsOf(metaModel);
+            long includesStart = System.nanoTime();
+            processIncludes();
+            if (stats != null) {
+                stats.addIncludesTime(System.nanoTime() - includesStart);
+            }
+        }
+    }
+
+    private void loadWithTotalCount(String sql, Object[] allParams) {
+        final Class<T> clazz = (Class<T>) metaModel.getModelClass();
+        final HydrationStats stats = ModelDelegate.hydrationStatsOf(metaModel);
+        db(metaModel).find(sql, allParams).with(new RowListenerAdapter() {
+            @Override public void onNext(Map<String, Object> row) {
+                if (totalCount < 0) {
+                    totalCount = Convert.toLong(row.get(totalCountColumn));
+                }
+                delegate.add(ModelDelegate.instance(row, metaModel, clazz, stats));
             }
         });
-        LogFilter.logQuery(logger, sql, params, start);
-        if(metaModel.cached()){
-            delegate = Collections.unmodifiableList(delegate);
-            QueryCache.instance().addItem(metaModel.getTableName(), sql, params, delegate);
+        if (delegate.isEmpty() && offset <= 0) {
+            totalCount = 0;
         }
-        processIncludes();
     }
 
     private boolean hydrated() {
@@ -378,7 +692,7 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         StringBuilder query = new StringBuilder().append(parentMetaModel.getIdName()).append(" IN (");
         appendQuestions(query, distinctParentIds.size());
         query.append(')');
-        for (Model parent : new LazyList<Model>(query.toString(), parentMetaModel, distinctParentIds.toArray())) {
+        for (Model parent : withTimeout(new LazyList<Model>(query.toString(), parentMetaModel, distinctParentIds.toArray()))) {
             parentById.put(association.getParentClassName() + ":" + parent.getId(), parent);
         }
 
@@ -406,7 +720,7 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         StringBuilder query = new StringBuilder().append(parentMetaModel.getIdName()).append(" IN (");
         appendQuestions(query, distinctParentIds.size());
         query.append(')');
-        for (Model parent : new LazyList<Model>(query.toString(), parentMetaModel, distinctParentIds.toArray())) {
+        for (Model parent : withTimeout(new LazyList<Model>(query.toString(), parentMetaModel, distinctParentIds.toArray()))) {
             parentById.put(parent.getId(), parent);
         }
         //now that we have the parents in the has, we need to distribute them into list of children that are
@@ -488,7 +802,7 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         StringBuilder query = new StringBuilder().append("parent_id IN (");
         appendQuestions(query, ids.size());
         query.append(") AND parent_type = '").append(association.getTypeLabel()).append('\'');
-        for (Model child : new LazyList<Model>(query.toString(), childMetaModel, ids.toArray()).orderBy(childMetaModel.getIdName())) {
+        for (Model child : withTimeout(new LazyList<Model>(query.toString(), childMetaModel, ids.toArray())).orderBy(childMetaModel.getIdName())) {
             if (childrenByParentId.get(child.get("parent_id")) == null) {
                 childrenByParentId.put(child.get("parent_id"), new SuperLazyList<Model>());
             }
@@ -515,7 +829,7 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         StringBuilder query = new StringBuilder().append(fkName).append(" IN (");
         appendQuestions(query, ids.size());
         query.append(')');
-        for (Model child : new LazyList<Model>(query.toString(), childMetaModel, ids.toArray()).orderBy(childMetaModel.getIdName())) {
+        for (Model child : withTimeout(new LazyList<Model>(query.toString(), childMetaModel, ids.toArray())).orderBy(childMetaModel.getIdName())) {
             if(childrenByParentId.get(child.get(fkName)) == null){
                 childrenByParentId.put(child.get(fkName), new SuperLazyList<Model>());
             }
@@ -536,7 +850,7 @@ public class LazyList<T extends Model> extends AbstractLazyList<T> implements Ex
         final MetaModel childMetaModel = metaModelOf(association.getTargetClass());
         final Map<Object, List<Model>> childrenByParentId = new HashMap<Object, List<Model>>();
         List<Object> ids = collect(metaModel.getIdName());
-        List<Map> childResults = new DB(childMetaModel.getDbName()).findAll(childMetaModel.getDialect().selectManyToManyAssociation(
+        List<Map> childResults = db(childMetaModel).findAll(childMetaModel.getDialect().selectManyToManyAssociation(
                 association, "the_parent_record_id", ids.size()), ids.toArray());
         for(Map res: childResults){
             Model child = ModelDelegate.instance(res, childMetaModel);
@@ -18,6 +18,7 @@ limitations under the License.
 package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.statistics.QueryExecutionEvent;
+import org.javalite.activejdbc.statistics.QueryTracker;
 import org.slf4j.Logger;
 
 import java.util.regex.Pattern;
@@ -67,6 +68,11 @@ public class LogFilter {
             }
             log(logger, log.append(", took: ").append(time).append(" milliseconds").toString());
         }
+
+        QueryTracker tracker = QueryTracker.current();
+        if (tracker != null) {
+            tracker.onQuery(query, time);
+        }
     }
 
     public static void log(Logger logger, String log){
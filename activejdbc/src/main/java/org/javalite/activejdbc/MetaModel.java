@@ -30,7 +30,6 @@ import static org.javalite.common.Inflector.*;
 
 public class MetaModel implements Serializable {
     private static final Logger logger = LoggerFactory.getLogger(MetaModel.class);
-    private static final ThreadLocal<HashMap<Class, String>> shardingTableNamesTL = new ThreadLocal<>();
 
     private Map<String, ColumnMetadata> columnMetadata;
     private final List<Association> associations = new ArrayList<Association>();
@@ -55,12 +54,6 @@ public class MetaModel implements Serializable {
         this.versionColumn = findVersionColumn(modelClass);
     }
 
-    static Map<Class,String> getTableNamesMap(){
-        if (shardingTableNamesTL.get() == null)
-            shardingTableNamesTL.set(new HashMap<Class, String>());
-        return shardingTableNamesTL.get();
-    }
-
     /**
      *
      *
@@ -82,7 +75,7 @@ public class MetaModel implements Serializable {
      * @param tableName name of a table this model will read from current thread.
      */
     public void setShardTableName(String tableName){
-        getTableNamesMap().put(modelClass, tableName);
+        ConnectionContext.current().setShardTableName(modelClass, tableName);
     }
 
     /**
@@ -92,7 +85,10 @@ public class MetaModel implements Serializable {
      * returning the value this {@link MetaModel} was initialized with during teh bootstrap phase.
      */
     public void clearShardTableName(){
-        getTableNamesMap().remove(modelClass);
+        ConnectionContext context = ConnectionContext.peek();
+        if (context != null) {
+            context.clearShardTableName(modelClass);
+        }
     }
 
     private boolean isCached(Class<? extends Model> modelClass) {
@@ -154,11 +150,9 @@ public class MetaModel implements Serializable {
      * @return table name currently associated with this model.
      */
     public String getTableName() {
-        if(getTableNamesMap().containsKey(modelClass)){
-            return getTableNamesMap().get(modelClass);
-        }else{
-            return tableName;
-        }
+        ConnectionContext context = ConnectionContext.peek();
+        String shardTableName = context == null ? null : context.getShardTableName(modelClass);
+        return shardTableName == null ? tableName : shardTableName;
     }
 
     void setColumnMetadata(Map<String, ColumnMetadata> columnMetadata){
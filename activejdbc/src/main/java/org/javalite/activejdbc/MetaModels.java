@@ -20,6 +20,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author Igor Polevoy
@@ -28,10 +31,11 @@ class MetaModels {
 
     private static final Logger logger = LoggerFactory.getLogger(MetaModels.class);
 
-    private final Map<String, MetaModel> metaModelsByTableName = new CaseInsensitiveMap<>();
-    private final Map<Class<? extends Model>, MetaModel> metaModelsByClass = new HashMap<>();
+    // models are only added while Registry initializes a DB, but are read by all threads without locking
+    private final Map<String, MetaModel> metaModelsByTableName = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<Class<? extends Model>, MetaModel> metaModelsByClass = new ConcurrentHashMap<>();
     //these are all many to many associations across all models.
-    private final List<Many2ManyAssociation> many2ManyAssociations = new ArrayList<Many2ManyAssociation>();
+    private final List<Many2ManyAssociation> many2ManyAssociations = new CopyOnWriteArrayList<Many2ManyAssociation>();
 
     void addMetaModel(MetaModel mm, Class<? extends Model> modelClass) {
         Object o = metaModelsByClass.put(modelClass, mm);
@@ -21,6 +21,7 @@ import org.javalite.activejdbc.cache.QueryCache;
 import org.javalite.activejdbc.conversion.BlankToNullConverter;
 import org.javalite.activejdbc.conversion.Converter;
 import org.javalite.activejdbc.conversion.ZeroToNullConverter;
+import org.javalite.activejdbc.dialects.DefaultDialect;
 import org.javalite.activejdbc.dialects.Dialect;
 import org.javalite.activejdbc.validation.NumericValidationBuilder;
 import org.javalite.activejdbc.validation.ValidationBuilder;
@@ -42,6 +43,8 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import static org.javalite.activejdbc.ModelDelegate.metaModelFor;
 import static org.javalite.activejdbc.ModelDelegate.metaModelOf;
@@ -62,6 +65,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     private Map<String, Object> attributes = new CaseInsensitiveMap<Object>();
     private final Set<String> dirtyAttributeNames = new CaseInsensitiveSet();
     private boolean frozen = false;
+    private boolean partial = false;
     private MetaModel metaModelLocal;
     private ModelRegistry modelRegistryLocal;
     private final Map<Class, Model> cachedParents = new HashMap<Class, Model>();
@@ -74,7 +78,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         metaModelLocal = metaModelOf(getClass());
     }
 
-    private void fireAfterLoad() {
+    void fireAfterLoad() {
         afterLoad();
         for (CallbackListener callback : modelRegistryLocal().callbacks()) {
             callback.afterLoad(this);
@@ -123,7 +127,7 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         }
     }
 
-    private void fireBeforeDelete() {
+    void fireBeforeDelete() {
         beforeDelete();
         for (CallbackListener callback : modelRegistryLocal().callbacks()) {
             callback.beforeDelete(this);
@@ -137,6 +141,14 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         }
     }
 
+    /**
+     * Freezes this model and calls after delete callbacks, when its record was deleted by a set-based statement.
+     */
+    void afterBulkDelete() {
+        frozen = true;
+        fireAfterDelete();
+    }
+
     private void fireBeforeValidation() {
         beforeValidation();
         for(CallbackListener callback: modelRegistryLocal().callbacks())
@@ -454,9 +466,11 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     /**
      * Deletes this record from associated table, as well as children.
      *
-     * Deletes current model and all of its child and many to many associations. This is not a high performance method, as it will
-     * load every row into a model instance before deleting, effectively calling (N + 1) per table queries to the DB, one to select all
-     * the associated records (per table), and one delete statement per record. Use it for small data sets.
+     * Deletes current model and all of its child and many to many associations. Children are deleted by set-based
+     * statements, one <code>DELETE ... WHERE fk IN (SELECT ...)</code> per association, in dependency order. Targets
+     * of many to many associations are selected before their links are deleted. Children of models that have delete
+     * callbacks are loaded before deletion, so that callbacks can be called, see {@link #deleteCascade(boolean)}
+     * to skip this for large data sets.
      *
      * <p/>
      * In cases of simple one to many and polymorphic associations, things are as expected, a parent is deleted an all children are
@@ -546,6 +560,19 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         deleteCascadeExcept();
     }
 
+    /**
+     * Same as {@link #deleteCascade()}, but allows to skip delete callbacks of children. Callbacks require to load
+     * every deleted child, which defeats set-based deletion of large numbers of children. Callbacks of this model
+     * are always called.
+     *
+     * @param fireCallbacks true to call delete callbacks of deleted children, false to skip them.
+     */
+    public void deleteCascade(boolean fireCallbacks){
+        new CascadeDelete(metaModelLocal.getDbName(), fireCallbacks).deleteDependencies(this,
+                Collections.<Association>emptyList());
+        delete();
+    }
+
     /**
      * This method does everything {@link #deleteCascade()} does, but in addition allows to exclude some associations
      * from this action. This is necessary because {@link #deleteCascade()} method can be far too eager to delete
@@ -560,28 +587,10 @@ public abstract class Model extends CallbackSupport implements Externalizable {
      * @param excludedAssociations associations
      */
     public void deleteCascadeExcept(Association ... excludedAssociations){
-        List<Association> excludedAssociationsList = Arrays.asList(excludedAssociations);
-        deleteMany2ManyDeep(metaModelLocal.getManyToManyAssociations(excludedAssociationsList));
-        deleteChildrenDeep(metaModelLocal.getOneToManyAssociations(excludedAssociationsList));
-        deleteChildrenDeep(metaModelLocal.getPolymorphicAssociations(excludedAssociationsList));
+        new CascadeDelete(metaModelLocal.getDbName(), true).deleteDependencies(this, Arrays.asList(excludedAssociations));
         delete();
     }
 
-
-
-    private void deleteMany2ManyDeep(List<Many2ManyAssociation> many2ManyAssociations){
-        List<Model>  allMany2ManyChildren = new ArrayList<Model>();
-        for (Association association : many2ManyAssociations) {
-            Class<? extends Model> targetModelClass = association.getTargetClass();
-            allMany2ManyChildren.addAll(getAll(targetModelClass));
-        }
-
-        deleteJoinsForManyToMany();
-        for (Model model : allMany2ManyChildren) {
-            model.deleteCascade();
-        }
-    }
-
     /**
      * Deletes this record from associated table, as well as its immediate children. This is a high performance method
      * because it does not walk through a chain of child dependencies like {@link #deleteCascade()} does, but rather issues
@@ -629,24 +638,6 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     }
 
 
-    private void deleteChildrenDeep(List<? extends Association> childAssociations){
-        for (Association association : childAssociations) {
-            String targetTableName = metaModelOf(association.getTargetClass()).getTableName();
-            Class c = Registry.instance().getModelClass(targetTableName, false);
-            if(c == null){// this model is probably not defined as a class, but the table exists!
-                logger.error("ActiveJDBC WARNING: failed to find a model class for: {}, maybe model is not defined for this table?"
-                        + " There might be a risk of running into integrity constrain violation if this model is not defined.",
-                        targetTableName);
-            }
-            else{
-                List<Model> dependencies = getAll(c);
-                for (Model model : dependencies) {
-                    model.deleteCascade();
-                }
-            }
-        }
-    }
-
     /**
      * Deletes some records from associated table. This method does not follow any associations.
      * If this model has one to many associations, you might end up with either orphan records in child
@@ -1255,10 +1246,28 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             throw new StaleModelException("Failed to refresh self because probably record with " +
                     "this ID does not exist anymore. Stale model: " + this);
         }
+        refresh(fresh);
+    }
+
+    /**
+     * Copies attributes of a freshly loaded instance of the same record to this instance.
+     */
+    void refresh(Model fresh) {
         fresh.copyTo(this);
         dirtyAttributeNames.clear();
     }
 
+    /**
+     * Re-reads attribute values of many models from DB. Same as calling {@link #refresh()} on each model, but
+     * selects all models of the same class with a few <code>IN</code> queries instead of one query per model.
+     *
+     * @param models models to refresh.
+     * @throws StaleModelException if a record of some model does not exist anymore.
+     */
+    public static void refreshAll(Collection<? extends Model> models) {
+        ModelDelegate.refreshAll(models);
+    }
+
     /**
      * Returns a value for attribute.
      * If there is a {@link Converter} registered for the attribute that converts from Class <code>S</code> to Class
@@ -1315,6 +1324,9 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         }
 
         if (metaModelLocal.hasAttribute(attributeName)) {
+            if (partial && !attributes.containsKey(attributeName)) {
+                loadMissingAttributes();
+            }
             Object value = attributes.get(attributeName);
             Converter<Object, Object> converter = modelRegistryLocal().converterForValue(attributeName, value, Object.class);
             return converter != null ? converter.convert(value) : value;
@@ -1353,9 +1365,56 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             throw new IllegalArgumentException("attributeName cannot be null");
         }
 
+        if (partial && !attributes.containsKey(attributeName) && metaModelLocal.hasAttribute(attributeName)) {
+            loadMissingAttributes();
+        }
+
         return attributes.get(attributeName);// TODO: this should account for nulls too!
     }
 
+    /**
+     * Marks this instance as partially loaded, see {@link LazyList#select(String...)}.
+     */
+    void setPartial() {
+        partial = true;
+    }
+
+    /**
+     * Loads attributes that were not selected when this instance was loaded as a part of a projection.
+     */
+    private void loadMissingAttributes() {
+        partial = false;
+        List<String> missing = new ArrayList<String>();
+        for (String attributeName : metaModelLocal.getAttributeNames()) {
+            if (!attributes.containsKey(attributeName)) {
+                missing.add(attributeName);
+            }
+        }
+        if (missing.isEmpty() || (getCompositeKeys() == null && getId() == null)) {
+            return;
+        }
+        StringBuilder where = new StringBuilder();
+        List<Object> values = new ArrayList<Object>();
+        if (getCompositeKeys() != null) {
+            String[] compositeKeys = getCompositeKeys();
+            for (int i = 0; i < compositeKeys.length; i++) {
+                where.append(i == 0 ? "" : " AND ").append(compositeKeys[i]).append(" = ?");
+                values.add(attributes.get(compositeKeys[i]));
+            }
+        } else {
+            where.append(metaModelLocal.getIdName()).append(" = ?");
+            values.add(getId());
+        }
+        String query = DefaultDialect.of(metaModelLocal.getDialect()).selectColumns(metaModelLocal.getTableName(), missing, where.toString());
+        List<Map> rows = new DB(metaModelLocal.getDbName()).findAll(query, values.toArray());
+        if (rows.isEmpty()) {
+            throw new StaleModelException("Failed to load attributes " + missing + " because probably record with "
+                    + "this ID does not exist anymore. Stale model: " + this);
+        }
+        LogFilter.log(logger, "Loaded attributes {} of partially selected {}", missing, getClass().getName());
+        hydrate(rows.get(0), false);
+    }
+
 
     private Object tryPolymorphicParent(String parentTable){
         MetaModel parentMM = inferTargetMetaModel(parentTable);
@@ -1923,6 +1982,15 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return ModelDelegate.validateWith(modelClass(), validator);
     }
 
+    /**
+     * Declares shards of this model. Call it in a static block of the model, see {@link ShardMap}.
+     *
+     * @param shardMap maps keys of this model to shards.
+     */
+    protected static void shardBy(ShardMap shardMap) {
+        ModelDelegate.shardBy(modelClass(), shardMap);
+    }
+
     /**
      * Adds a custom converter to the model.
      *
@@ -2235,6 +2303,29 @@ public abstract class Model extends CallbackSupport implements Externalizable {
 		return ModelDelegate.findByCompositeKeys(Model.<T>modelClass(), values);
 	}
 
+    /**
+     * Finds many models by IDs with as few queries as possible. Duplicate and <code>null</code> IDs are ignored.
+     * If the model is {@link org.javalite.activejdbc.annotations.Cached}, models already cached by
+     * {@link #findById(Object)} are taken from cache, and the rest are cached the same way. The rest are selected
+     * with <code>IN</code> queries of up to 512 IDs each.
+     *
+     * @param ids IDs of models to find.
+     * @return found models by ID, in order of IDs. Keys of this map are IDs as given, IDs not found are left out.
+     */
+    public static <T extends Model> Map<Object, T> findByIds(Collection<?> ids) {
+        return ModelDelegate.findByIds(Model.<T>modelClass(), ids);
+    }
+
+    /**
+     * Same as {@link #findByIds(Collection)}, for models with composite keys, see {@link CompositePK}.
+     *
+     * @param compositeKeys values of composite keys, each in exactly the same order as specified in {@link CompositePK}.
+     * @return found models by composite key, in order of keys. Keys not found are left out.
+     */
+    public static <T extends Model> Map<List<?>, T> findAllByCompositeKeys(Collection<? extends List<?>> compositeKeys) {
+        return ModelDelegate.findAllByCompositeKeys(Model.<T>modelClass(), compositeKeys);
+    }
+
     /**
      * Finder method for DB queries based on table represented by this model. Usually the SQL starts with:
      *
@@ -2352,6 +2443,22 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         ModelDelegate.findWith(modelClass(), listener, query, params);
     }
 
+    /**
+     * Processes records of a large table in parallel: the table is split into <code>partitions</code> contiguous
+     * ranges of primary key values, and ranges are scanned at the same time by threads of {@link AsyncExecutor},
+     * each with its own connection. Results are never cached. The scan runs in background, see {@link ParallelScan}
+     * for progress reporting and cancellation.
+     *
+     * @param listener receives instances of models found, called from several threads at the same time.
+     * @param partitions number of primary key ranges to split the table into.
+     * @param query sub-query (content after "WHERE" clause), <code>null</code> or "*" to process all records.
+     * @param params optional parameters for a query.
+     * @return scan in progress.
+     */
+    public static ParallelScan parallelForEach(final ModelListener listener, int partitions, String query, Object... params) {
+        return ModelDelegate.parallelForEach(modelClass(), listener, partitions, query, params);
+    }
+
     /**
      * Free form query finder. Example:
      * <pre>
@@ -2544,6 +2651,16 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         thaw();
     }
 
+    /**
+     * Same as {@link #save()}, but runs it on {@link AsyncExecutor} with a separate connection, in auto-commit mode.
+     * This model must not be used by current thread until the returned future is done.
+     *
+     * @return future result of {@link #save()}.
+     */
+    public Future<Boolean> saveAsync() {
+        return ModelDelegate.saveAsync(this);
+    }
+
     /**
      * This method will save data from this instance to a corresponding table in the DB.
      * It will generate insert SQL if the model is new, or update if the model exists in the DB.
@@ -2585,6 +2702,223 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return result;
     }
 
+    /**
+     * Inserts this model, or updates the record with the same ID (or the same values of composite keys) if such
+     * record already exists. This is meant for models with IDs assigned by the application, such as records
+     * synchronized from another system, where calling {@link #exists()} before {@link #insert()} or {@link #save()}
+     * takes two round trips, and can still fail if another process inserts the same record in between.
+     * <p></p>
+     * Where the dialect supports it, this is done with one statement: <code>INSERT ... ON CONFLICT</code> on
+     * PostgreSQL and SQLite, <code>INSERT ... ON DUPLICATE KEY UPDATE</code> on MySQL, <code>MERGE</code> on Oracle,
+     * SQL Server and H2. Otherwise the record is updated, and inserted if there was nothing to update.
+     * <p></p>
+     * An existing record only gets changed (dirty) attributes of this model. Its <code>created_at</code> is kept,
+     * <code>updated_at</code> is set, and the version of a versioned model is incremented. Optimistic locking does
+     * not apply, the last writer wins. Where the dialect can return the written row (see
+     * {@link DefaultDialect#returningAll(String)}), this model is updated from it. Otherwise it is not known if the record
+     * was inserted or updated, and the version attribute is removed from a versioned model: call {@link #refresh()}
+     * before updating it again.
+     * <p></p>
+     * A model without ID is simply inserted.
+     *
+     * @return true if the record was written, false if values did not pass validations.
+     * @see #upsertAll(Collection)
+     */
+    public boolean upsert() {
+        if (!beforeUpsert()) {
+            return false;
+        }
+        doUpsert();
+        return true;
+    }
+
+    /**
+     * Writes many models as {@link #upsert()} does. Models of the same class with the same set of columns
+     * are written by one batch of statements, so that a synchronization job takes one round trip per batch instead
+     * of two round trips per record. All models are validated before anything is written.
+     *
+     * @param models models to write.
+     * @throws ValidationException if some model did not pass validations.
+     */
+    public static void upsertAll(Collection<? extends Model> models) {
+        ModelDelegate.upsertAll(models);
+    }
+
+    /**
+     * Calls callbacks and validations before upsert.
+     *
+     * @return false if values did not pass validations.
+     */
+    boolean beforeUpsert() {
+        if (frozen) throw new FrozenException(this);
+        fireBeforeSave();
+        validate();
+        return !hasErrors();
+    }
+
+    /**
+     * Collects values of this model for an upsert statement.
+     *
+     * @param values values to bind to the statement are added to this list.
+     * @return upsert statement, or <code>null</code> if this model can only be written by {@link #doUpsert()}.
+     */
+    String upsertQuery(List<Object> values) {
+        List<String> keys = upsertKeys();
+        if (keys == null) {
+            return null;
+        }
+        MetaModel metaModel = metaModelLocal;
+        List<String> columns = new ArrayList<String>();
+        Set<String> updates = new CaseInsensitiveSet();
+        collectUpsert(keys, columns, values, updates);
+        return DefaultDialect.of(metaModel.getDialect()).upsertParametrized(metaModel.getTableName(), columns, keys, updates,
+                metaModel.isVersioned() ? metaModel.getVersionColumn() : null);
+    }
+
+    /**
+     * Writes this model with one upsert statement if the dialect has one, otherwise with update followed by insert.
+     */
+    void doUpsert() {
+        List<String> keys = upsertKeys();
+        if (keys == null) {
+            insert();
+            fireAfterSave();
+            return;
+        }
+        MetaModel metaModel = metaModelLocal;
+        String versionColumn = metaModel.isVersioned() ? metaModel.getVersionColumn() : null;
+        List<String> columns = new ArrayList<String>();
+        List<Object> values = new ArrayList<Object>();
+        Set<String> updates = new CaseInsensitiveSet();
+        collectUpsert(keys, columns, values, updates);
+
+        DefaultDialect dialect = DefaultDialect.of(metaModel.getDialect());
+        DB db = new DB(metaModel.getDbName());
+        String query = dialect.upsertParametrized(metaModel.getTableName(), columns, keys, updates, versionColumn);
+        String returning = query == null ? null : dialect.returningAll(query);
+        Map<String, Object> row = null;
+        if (returning != null) {
+            List<Map<String, Object>> rows = db.execReturning(returning, values.toArray());
+            row = rows.isEmpty() ? null : rows.get(0);
+        } else if (query != null) {
+            db.exec(query, values.toArray());
+        } else if (!updateExisting(db, keys, updates, versionColumn)) {
+            db.exec(dialect.insertParametrized(metaModel, columns, true), values.toArray());
+        }
+        afterUpsert(row);
+    }
+
+    /**
+     * @return names of key attributes, or <code>null</code> if some of them have no value.
+     */
+    private List<String> upsertKeys() {
+        String[] compositeKeys = getCompositeKeys();
+        List<String> keys = compositeKeys != null ? Arrays.asList(compositeKeys) : Collections.singletonList(getIdName());
+        for (String key : keys) {
+            if (attributes.get(key) == null) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    private void collectUpsert(List<String> keys, List<String> columns, List<Object> values, Set<String> updates) {
+        MetaModel metaModel = metaModelLocal;
+        doUpdatedAt();
+        Set<String> changed = metaModel.getAttributeNamesSkipGenerated(manageTime);
+        changed.retainAll(dirtyAttributeNames);
+        changed.removeAll(keys);
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            String name = entry.getKey();
+            if (!metaModel.getVersionColumn().equalsIgnoreCase(name)
+                    && (entry.getValue() != null || changed.contains(name))) {
+                columns.add(name);
+                values.add(entry.getValue());
+            }
+        }
+        updates.addAll(changed);
+        if (manageTime && metaModel.hasAttribute("updated_at")) {
+            updates.add("updated_at");
+        }
+        // created_at only goes to an inserted record, so it is not set on this model
+        if (manageTime && metaModel.hasAttribute("created_at") && attributes.get("created_at") == null) {
+            columns.add("created_at");
+            values.add(new Timestamp(System.currentTimeMillis()));
+        }
+        if (metaModel.isVersioned()) {
+            columns.add(metaModel.getVersionColumn());
+            values.add(1);
+        }
+    }
+
+    /**
+     * Updates an existing record for an upsert, when the dialect has no upsert statement.
+     *
+     * @return true if the record exists.
+     */
+    private boolean updateExisting(DB db, List<String> keys, Set<String> updates, String versionColumn) {
+        StringBuilder query = new StringBuilder().append("UPDATE ").append(metaModelLocal.getTableName()).append(" SET ");
+        List<Object> values = new ArrayList<Object>();
+        if (updates.isEmpty() && versionColumn == null) {
+            // nothing to change, but the update count still tells if the record exists
+            query.append(keys.get(0)).append(" = ").append(keys.get(0));
+        } else {
+            boolean first = true;
+            for (String column : updates) {
+                if (!first) { query.append(", "); }
+                query.append(column).append(" = ?");
+                values.add(attributes.get(column));
+                first = false;
+            }
+            if (versionColumn != null) {
+                if (!first) { query.append(", "); }
+                query.append(versionColumn).append(" = ").append(versionColumn).append(" + 1");
+            }
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            query.append(i == 0 ? " WHERE " : " AND ").append(keys.get(i)).append(" = ?");
+            values.add(attributes.get(keys.get(i)));
+        }
+        return db.exec(query.toString(), values.toArray()) > 0;
+    }
+
+    /**
+     * Updates state of this model after it was written by an upsert statement.
+     *
+     * @param row written row if the statement returned it, otherwise <code>null</code>.
+     */
+    void afterUpsert(Map<String, Object> row) {
+        MetaModel metaModel = metaModelLocal;
+        compositeKeyPersisted = true;
+        if (row != null) {
+            hydrate(row, false);
+        } else if (metaModel.isVersioned()) {
+            attributes.remove(metaModel.getVersionColumn());
+        }
+        if (metaModel.cached()) {
+            Registry.cacheManager().purgeTableCache(metaModel);
+        }
+        dirtyAttributeNames.clear();
+        fireAfterSave();
+    }
+
+    /**
+     * Same as {@link #where(String, Object...)}, but runs the query on {@link AsyncExecutor} with a separate
+     * connection and returns a list that is already loaded. Several such queries can run at the same time:
+     * <pre>
+     *     Future&lt;LazyList&lt;Book&gt;&gt; books = Book.findAsync("author_id = ?", id);
+     *     Future&lt;Long&gt; reviews = Review.countAsync("author_id = ?", id);
+     *     ... books.get() ... reviews.get() ...
+     * </pre>
+     *
+     * @param subquery this is a set of conditions that normally follow the "where" clause.
+     * @param params list of parameters corresponding to the place holders (?) in the subquery.
+     * @return future list of models, loaded from database.
+     */
+    public static <T extends Model> Future<LazyList<T>> findAsync(String subquery, Object... params) {
+        return ModelDelegate.findAsync(Model.<T>modelClass(), subquery, params);
+    }
+
     /**
      * Returns total count of records in table.
      *
@@ -2594,6 +2928,78 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return ModelDelegate.count(modelClass());
     }
 
+    /**
+     * Same as {@link #count()}, but runs the query on {@link AsyncExecutor} with a separate connection.
+     *
+     * @return future number of records in table.
+     */
+    public static Future<Long> countAsync() {
+        return ModelDelegate.countAsync(modelClass());
+    }
+
+    /**
+     * Same as {@link #count(String, Object...)}, but runs the query on {@link AsyncExecutor} with a separate
+     * connection.
+     *
+     * @param query query to select records to count.
+     * @param params parameters (if any) for the query.
+     * @return future number of records found.
+     */
+    public static Future<Long> countAsync(String query, Object... params) {
+        return ModelDelegate.countAsync(modelClass(), query, params);
+    }
+
+    /**
+     * Calls a task with this model mapped to the shard holding a key: inside the task, the connection to the
+     * database of this model is a connection to that shard, and the model uses the table of that shard.
+     * <pre>
+     *     Temperature t = Temperature.onShard(sensorId, new Callable&lt;Temperature&gt;() {
+     *         public Temperature call() {
+     *             return Temperature.findFirst("sensor_id = ?", sensorId);
+     *         }
+     *     });
+     * </pre>
+     *
+     * @param key sharding key, see {@link ShardMap#shardFor(Object)}
+     * @param task task to call
+     * @return result of the task.
+     */
+    public static <R> R onShard(Object key, Callable<R> task) {
+        return ModelDelegate.onShard(modelClass(), key, task);
+    }
+
+    /**
+     * Finds records on all shards of this model at the same time, each shard with a separate connection.
+     * See {@link ShardedQuery}.
+     *
+     * @param subquery this is a set of conditions that normally follow the "where" clause.
+     * @param params list of parameters corresponding to the place holders (?) in the subquery.
+     * @return query to order, limit and execute.
+     */
+    public static <T extends Model> ShardedQuery<T> findAcrossShards(String subquery, Object... params) {
+        return ModelDelegate.findAcrossShards(Model.<T>modelClass(), subquery, params);
+    }
+
+    /**
+     * Counts records on all shards of this model at the same time, each shard with a separate connection.
+     *
+     * @return total number of records on all shards.
+     */
+    public static Long countAcrossShards() {
+        return ModelDelegate.countAcrossShards(modelClass(), null);
+    }
+
+    /**
+     * Counts records on all shards of this model at the same time, each shard with a separate connection.
+     *
+     * @param query query to select records to count.
+     * @param params parameters (if any) for the query.
+     * @return total number of records found on all shards.
+     */
+    public static Long countAcrossShards(String query, Object... params) {
+        return ModelDelegate.countAcrossShards(modelClass(), query, params);
+    }
+
     /**
      * Returns count of records in table under a condition.
      *
@@ -2639,7 +3045,18 @@ public abstract class Model extends CallbackSupport implements Externalizable {
             boolean containsId = (attributes.get(metaModel.getIdName()) != null); // do not use containsKey
             boolean done;
             String query = metaModel.getDialect().insertParametrized(metaModel, columns, containsId);
-            if (containsId || getCompositeKeys() != null) {
+            String returning = DefaultDialect.of(metaModel.getDialect()).returningAll(query);
+            if (returning != null) {
+                // generated ID and values set by the database come back in the same round trip
+                List<Map<String, Object>> rows = new DB(metaModel.getDbName()).execReturning(returning, values.toArray());
+                done = rows.size() == 1;
+                if (done) {
+                    hydrate(rows.get(0), false);
+                }
+                if (containsId || getCompositeKeys() != null) {
+                    compositeKeyPersisted = done;
+                }
+            } else if (containsId || getCompositeKeys() != null) {
                 compositeKeyPersisted  = done = (1 == new DB(metaModel.getDbName()).exec(query, values.toArray()));
             } else {
                 Object id = new DB(metaModel.getDbName()).execInsert(query, metaModel.getIdName(), values.toArray());
@@ -2683,54 +3100,65 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         doUpdatedAt();
 
         MetaModel metaModel = metaModelLocal;
-        StringBuilder query = new StringBuilder().append("UPDATE ").append(metaModel.getTableName()).append(" SET ");
         Set<String> attributeNames = metaModel.getAttributeNamesSkipGenerated(manageTime);
         attributeNames.retainAll(dirtyAttributeNames);
-        if(attributeNames.size() > 0) {
-            join(query, attributeNames, " = ?, ");
-            query.append(" = ?");
-        }
+        boolean updatedAt = manageTime && metaModel.hasAttribute("updated_at");
 
         List<Object> values = getAttributeValues(attributeNames);
-
-        if (manageTime && metaModel.hasAttribute("updated_at")) {
-            if(values.size() > 0)
-                query.append(", ");
-            query.append("updated_at = ?");
+        if (updatedAt) {
             values.add(get("updated_at"));
         }
-
         if(metaModel.isVersioned()){
-            if(values.size() > 0)
-                query.append(", ");
-            query.append(metaModelLocal.getVersionColumn()).append(" = ?");
             values.add(getLong(metaModelLocal.getVersionColumn()) + 1);
         }
         if(values.isEmpty())
             return false;
 
 		if (getCompositeKeys() != null) {
-			String[] compositeKeys = getCompositeKeys();
-			for (int i = 0; i < compositeKeys.length; i++) {
-				query.append(i == 0 ? " WHERE " : " AND ").append(compositeKeys[i]).append(" = ?");
-				values.add(get(compositeKeys[i]));
+			for (String compositeKey : getCompositeKeys()) {
+				values.add(get(compositeKey));
 			}
 		} else {
-			query.append(" WHERE ").append(metaModel.getIdName()).append(" = ?");
 			values.add(getId());
 		}
         if (metaModel.isVersioned()) {
-            query.append(" AND ").append(metaModelLocal.getVersionColumn()).append(" = ?");
             values.add(get(metaModelLocal.getVersionColumn()));
         }
-        int updated = new DB(metaModel.getDbName()).exec(query.toString(), values.toArray());
+
+        // changed columns are the only variable part of UPDATE, so SQL is only built once per combination of them
+        BitSet changed = new BitSet();
+        int index = 0;
+        for (String attributeName : metaModel.getAttributeNamesSkipId()) {
+            if (attributeNames.contains(attributeName)) {
+                changed.set(index);
+            }
+            index++;
+        }
+        List<Object> key = SqlCache.key("UPDATE", getClass(), metaModel.getTableName(), changed, updatedAt);
+        String query = SqlCache.get(key);
+        if (query == null) {
+            query = SqlCache.put(key, updateSql(attributeNames, updatedAt));
+        }
+
+        String returning = DefaultDialect.of(metaModel.getDialect()).returningAll(query);
+        int updated;
+        if (returning != null) {
+            // the new version and values set by the database come back in the same round trip
+            List<Map<String, Object>> rows = new DB(metaModel.getDbName()).execReturning(returning, values.toArray());
+            updated = rows.size();
+            if (updated > 0) {
+                hydrate(rows.get(0), false);
+            }
+        } else {
+            updated = new DB(metaModel.getDbName()).exec(query, values.toArray());
+        }
         if(metaModel.isVersioned() && updated == 0){
             throw new StaleModelException("Failed to update record for model '" + getClass() +
                     "', with " + getIdName() + " = " + getId() + " and " + metaModelLocal.getVersionColumn()
                     + " = " + get(metaModelLocal.getVersionColumn()) +
                     ". Either this record does not exist anymore, or has been updated to have another "
                     + metaModelLocal.getVersionColumn() + '.');
-        }else if(metaModel.isVersioned()){
+        }else if(metaModel.isVersioned() && returning == null){
             set(metaModelLocal.getVersionColumn(), getLong(metaModelLocal.getVersionColumn()) + 1);
         }
         if(metaModel.cached()){
@@ -2741,6 +3169,38 @@ public abstract class Model extends CallbackSupport implements Externalizable {
         return updated > 0;
     }
 
+    private String updateSql(Set<String> attributeNames, boolean updatedAt) {
+        MetaModel metaModel = metaModelLocal;
+        StringBuilder query = new StringBuilder().append("UPDATE ").append(metaModel.getTableName()).append(" SET ");
+        if(attributeNames.size() > 0) {
+            join(query, attributeNames, " = ?, ");
+            query.append(" = ?");
+        }
+        if (updatedAt) {
+            if(attributeNames.size() > 0)
+                query.append(", ");
+            query.append("updated_at = ?");
+        }
+        if(metaModel.isVersioned()){
+            if(attributeNames.size() > 0 || updatedAt)
+                query.append(", ");
+            query.append(metaModelLocal.getVersionColumn()).append(" = ?");
+        }
+
+		if (getCompositeKeys() != null) {
+			String[] compositeKeys = getCompositeKeys();
+			for (int i = 0; i < compositeKeys.length; i++) {
+				query.append(i == 0 ? " WHERE " : " AND ").append(compositeKeys[i]).append(" = ?");
+			}
+		} else {
+			query.append(" WHERE ").append(metaModel.getIdName()).append(" = ?");
+		}
+        if (metaModel.isVersioned()) {
+            query.append(" AND ").append(metaModelLocal.getVersionColumn()).append(" = ?");
+        }
+        return query.toString();
+    }
+
     private List<Object> getAttributeValues(Set<String> attributeNames) {
         List<Object> values = new ArrayList<Object>();
         for (String attribute : attributeNames) {
@@ -2953,11 +3413,13 @@ public abstract class Model extends CallbackSupport implements Externalizable {
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeObject(attributes);
+        out.writeBoolean(partial);
     }
 
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         attributes = new CaseInsensitiveMap<Object>();
         attributes.putAll((Map<String, Object>) in.readObject());
+        partial = in.readBoolean();
     }
 }
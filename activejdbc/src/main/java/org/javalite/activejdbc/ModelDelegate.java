@@ -2,18 +2,28 @@ package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.cache.QueryCache;
 
+import java.sql.PreparedStatement;
 import java.sql.Timestamp;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import org.javalite.activejdbc.associations.BelongsToAssociation;
 import org.javalite.activejdbc.associations.Many2ManyAssociation;
 import org.javalite.activejdbc.conversion.BlankToNullConverter;
 import org.javalite.activejdbc.conversion.Converter;
 import org.javalite.activejdbc.conversion.ZeroToNullConverter;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.statistics.HydrationStats;
 import org.javalite.activejdbc.validation.DateConverter;
 import org.javalite.activejdbc.validation.EmailValidator;
 import org.javalite.activejdbc.validation.NumericValidationBuilder;
@@ -21,7 +31,9 @@ import org.javalite.activejdbc.validation.RangeValidator;
 import org.javalite.activejdbc.validation.RegexpValidator;
 import org.javalite.activejdbc.validation.TimestampConverter;
 import org.javalite.activejdbc.validation.ValidationBuilder;
+import org.javalite.activejdbc.validation.ValidationException;
 import org.javalite.activejdbc.validation.Validator;
+import org.javalite.common.ConversionException;
 import org.javalite.common.Convert;
 
 import org.slf4j.Logger;
@@ -214,6 +226,301 @@ public final class ModelDelegate {
         return list.isEmpty() ? null : list.get(0);
     }
     
+    /**
+     * Maximum number of keys selected by one query of {@link #findByIds(Class, Collection)}.
+     */
+    static final int MAX_KEYS_PER_QUERY = 512;
+
+    public static <T extends Model> Map<Object, T> findByIds(Class<T> clazz, Collection<?> ids) {
+        MetaModel metaModel = metaModelOf(clazz);
+        Map<Object, Object[]> keys = new LinkedHashMap<Object, Object[]>();
+        for (Object id : ids) {
+            if (id != null && !keys.containsKey(normalizeKey(id))) {
+                keys.put(normalizeKey(id), new Object[]{id});
+            }
+        }
+        Map<Object, T> found = findByKeys(clazz, metaModel, new String[]{metaModel.getIdName()}, keys, true);
+        Map<Object, T> res = new LinkedHashMap<Object, T>();
+        for (Map.Entry<Object, Object[]> key : keys.entrySet()) {
+            T model = found.get(key.getKey());
+            if (model != null) {
+                res.put(key.getValue()[0], model);
+            }
+        }
+        return res;
+    }
+
+    public static <T extends Model> Map<List<?>, T> findAllByCompositeKeys(Class<T> clazz, Collection<? extends List<?>> compositeKeys) {
+        MetaModel metaModel = metaModelOf(clazz);
+        String[] columns = metaModel.getCompositeKeys();
+        if (columns == null) {
+            throw new IllegalArgumentException(clazz.getName() + " does not have composite keys");
+        }
+        Map<Object, Object[]> keys = new LinkedHashMap<Object, Object[]>();
+        Map<Object, List<?>> originals = new HashMap<Object, List<?>>();
+        for (List<?> values : compositeKeys) {
+            if (values.size() != columns.length) {
+                throw new IllegalArgumentException("expected " + columns.length + " values of composite key, got: " + values);
+            }
+            Object key = normalizeKey(values.toArray());
+            if (!keys.containsKey(key)) {
+                keys.put(key, values.toArray());
+                originals.put(key, values);
+            }
+        }
+        Map<Object, T> found = findByKeys(clazz, metaModel, columns, keys, true);
+        Map<List<?>, T> res = new LinkedHashMap<List<?>, T>();
+        for (Object key : keys.keySet()) {
+            T model = found.get(key);
+            if (model != null) {
+                res.put(originals.get(key), model);
+            }
+        }
+        return res;
+    }
+
+    public static void upsertAll(Collection<? extends Model> models) {
+        for (Model model : models) {
+            if (!model.beforeUpsert()) {
+                throw new ValidationException(model);
+            }
+        }
+        // models with the same statement are written by one batch, each batch is keyed by database and statement
+        Map<List<String>, List<Model>> modelsByBatch = new LinkedHashMap<List<String>, List<Model>>();
+        Map<List<String>, List<Object[]>> valuesByBatch = new HashMap<List<String>, List<Object[]>>();
+        for (Model model : models) {
+            List<Object> values = new ArrayList<Object>();
+            String query = model.upsertQuery(values);
+            if (query == null) {
+                model.doUpsert();
+                continue;
+            }
+            List<String> batch = Arrays.asList(metaModelOf(model.getClass()).getDbName(), query);
+            List<Model> batchModels = modelsByBatch.get(batch);
+            if (batchModels == null) {
+                modelsByBatch.put(batch, batchModels = new ArrayList<Model>());
+                valuesByBatch.put(batch, new ArrayList<Object[]>());
+            }
+            batchModels.add(model);
+            valuesByBatch.get(batch).add(values.toArray());
+        }
+        for (Map.Entry<List<String>, List<Model>> entry : modelsByBatch.entrySet()) {
+            DB db = new DB(entry.getKey().get(0));
+            String query = entry.getKey().get(1);
+            List<Model> batchModels = entry.getValue();
+            // where the database can return written rows, drivers that allow it return them from a batch as generated keys
+            boolean returning = DefaultDialect.of(metaModelOf(batchModels.get(0).getClass()).getDialect()).returningAll(query) != null;
+            PreparedStatement ps = returning ? db.startBatchReturning(query) : db.startBatch(query);
+            List<Map<String, Object>> rows = Collections.emptyList();
+            try {
+                for (Object[] values : valuesByBatch.get(entry.getKey())) {
+                    db.addBatch(ps, values);
+                }
+                db.executeBatch(ps);
+                if (returning) {
+                    rows = db.generatedRows(ps);
+                }
+            } finally {
+                closeQuietly(ps);
+            }
+            // rows can only be matched to models when there is one row for each of them
+            boolean matched = rows.size() == batchModels.size();
+            for (int i = 0; i < batchModels.size(); i++) {
+                batchModels.get(i).afterUpsert(matched ? rows.get(i) : null);
+            }
+        }
+    }
+
+    /**
+     * Re-reads attributes of many models from database, with as few queries as possible.
+     */
+    public static void refreshAll(Collection<? extends Model> models) {
+        Map<Class<? extends Model>, List<Model>> byClass = new LinkedHashMap<Class<? extends Model>, List<Model>>();
+        for (Model model : models) {
+            List<Model> list = byClass.get(model.getClass());
+            if (list == null) {
+                byClass.put(model.getClass(), list = new ArrayList<Model>());
+            }
+            list.add(model);
+        }
+        for (Map.Entry<Class<? extends Model>, List<Model>> entry : byClass.entrySet()) {
+            MetaModel metaModel = metaModelOf(entry.getKey());
+            String[] columns = metaModel.getCompositeKeys() == null
+                    ? new String[]{metaModel.getIdName()} : metaModel.getCompositeKeys();
+            Map<Object, Object[]> keys = new LinkedHashMap<Object, Object[]>();
+            for (Model model : entry.getValue()) {
+                Object[] values = keyValues(model, columns);
+                keys.put(normalizeKey(values), values);
+            }
+            // refresh must not see stale data, so the cache is not consulted
+            Map<Object, Model> fresh = findByKeys((Class<Model>) entry.getKey(), metaModel, columns, keys, false);
+            for (Model model : entry.getValue()) {
+                Model freshModel = fresh.get(normalizeKey(keyValues(model, columns)));
+                if (freshModel == null) {
+                    throw new StaleModelException("Failed to refresh self because probably record with " +
+                            "this ID does not exist anymore. Stale model: " + model);
+                }
+                model.refresh(freshModel);
+            }
+        }
+    }
+
+    private static Object[] keyValues(Model model, String[] columns) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = model.get(columns[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Keys given by callers and keys read from database can be of different types, such as <code>Integer</code>
+     * and <code>Long</code>, so they are compared by normalized values.
+     */
+    static Object normalizeKey(Object... values) {
+        if (values.length == 1) {
+            Object value = values[0];
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                    || value instanceof java.math.BigInteger) {
+                return ((Number) value).longValue();
+            } else if (value instanceof java.math.BigDecimal) {
+                java.math.BigDecimal decimal = ((java.math.BigDecimal) value).stripTrailingZeros();
+                return decimal.scale() <= 0 && decimal.toBigInteger().bitLength() < 64 ? (Object) decimal.longValue() : decimal;
+            }
+            return value;
+        }
+        List<Object> key = new ArrayList<Object>(values.length);
+        for (Object value : values) {
+            key.add(normalizeKey(value));
+        }
+        return key;
+    }
+
+    /**
+     * Finds models by many keys. Keys found in {@link QueryCache} under the same entries {@link #findById(Class, Object)}
+     * and {@link #findByCompositeKeys(Class, Object...)} use are not selected again. Other keys are selected with
+     * <code>IN</code> queries of up to {@link #MAX_KEYS_PER_QUERY} keys. Number of keys in a query is rounded up to
+     * a power of two by repeating the last key, so that the database sees only a few distinct statements.
+     *
+     * Keys are matched to selected rows after they are converted to types of values read from database, so that
+     * a key given as <code>"5"</code> finds a row with numeric key 5.
+     *
+     * @param keys values of key columns, by normalized key
+     * @return found models by normalized key, the same as in <code>keys</code>
+     * @throws IllegalArgumentException if a key cannot be converted to the type of its column.
+     */
+    private static <T extends Model> Map<Object, T> findByKeys(Class<T> clazz, MetaModel metaModel, String[] columns,
+            Map<Object, Object[]> keys, boolean useCache) {
+        Map<Object, T> found = new HashMap<Object, T>();
+        List<Object[]> misses = new ArrayList<Object[]>();
+        boolean cached = useCache && metaModel.cached();
+        for (Map.Entry<Object, Object[]> key : keys.entrySet()) {
+            List<T> list = cached ? ModelDelegate.<T>singleKeyList(metaModel, columns, key.getValue()).fromCache() : null;
+            if (list == null) {
+                misses.add(key.getValue());
+            } else if (!list.isEmpty()) {
+                found.put(key.getKey(), list.get(0));
+            }
+        }
+
+        final List<T> loaded = new ArrayList<T>();
+        for (int from = 0; from < misses.size(); from += MAX_KEYS_PER_QUERY) {
+            List<Object[]> bucket = misses.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, misses.size()));
+            int size = Integer.highestOneBit(bucket.size());
+            if (size < bucket.size()) {
+                size <<= 1;
+            }
+            List<Object> params = new ArrayList<Object>(size * columns.length);
+            for (int i = 0; i < size; i++) {
+                params.addAll(Arrays.asList(bucket.get(Math.min(i, bucket.size() - 1))));
+            }
+            String sql = metaModel.getDialect().selectStar(metaModel.getTableName(),
+                    DefaultDialect.of(metaModel.getDialect()).keysInCondition(Arrays.asList(columns), size));
+            long start = System.currentTimeMillis();
+            load(new DB(metaModel.getDbName()), metaModel, clazz, new ModelListener<T>() {
+                @Override public void onModel(T model) {
+                    loaded.add(model);
+                }
+            }, sql, params.toArray());
+            LogFilter.logQuery(logger, sql, params.toArray(), start);
+        }
+
+        if (loaded.isEmpty()) {
+            return found;
+        }
+        Class[] types = new Class[columns.length];
+        Object[] sample = keyValues(loaded.get(0), columns);
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = sample[i] == null ? null : sample[i].getClass();
+        }
+        Map<Object, T> loadedByKey = new HashMap<Object, T>();
+        for (T model : loaded) {
+            loadedByKey.put(typedKey(columns, types, keyValues(model, columns)), model);
+        }
+        for (Map.Entry<Object, Object[]> key : keys.entrySet()) {
+            if (!found.containsKey(key.getKey())) {
+                T model = loadedByKey.get(typedKey(columns, types, key.getValue()));
+                if (model != null) {
+                    found.put(key.getKey(), model);
+                }
+            }
+        }
+        if (cached) {
+            for (Object[] values : misses) {
+                T model = found.get(normalizeKey(values));
+                ModelDelegate.<T>singleKeyList(metaModel, columns, values).toCache(
+                        model == null ? Collections.<T>emptyList() : Collections.singletonList(model));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Converts values of a key to types of values read from database, numbers are normalized.
+     */
+    private static Object typedKey(String[] columns, Class[] types, Object[] values) {
+        List<Object> key = new ArrayList<Object>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            Class type = types[i];
+            if (value == null || type == null || type.isInstance(value)) {
+                key.add(normalizeKey(value));
+            } else if (Number.class.isAssignableFrom(type)) {
+                try {
+                    key.add(normalizeKey(Convert.toBigDecimal(value)));
+                } catch (ConversionException e) {
+                    throw new IllegalArgumentException("key value '" + value + "' of column " + columns[i]
+                            + " is not a number", e);
+                }
+            } else if (type == String.class) {
+                key.add(value.toString());
+            } else if (type == UUID.class) {
+                try {
+                    key.add(UUID.fromString(value.toString()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("key value '" + value + "' of column " + columns[i]
+                            + " is not a UUID", e);
+                }
+            } else {
+                throw new IllegalArgumentException("key value '" + value + "' of type " + value.getClass().getName()
+                        + " cannot be matched to column " + columns[i] + " of type " + type.getName());
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return list selecting one model by key, exactly as {@link #findById(Class, Object)} and
+     * {@link #findByCompositeKeys(Class, Object...)} do.
+     */
+    private static <T extends Model> LazyList<T> singleKeyList(MetaModel metaModel, String[] columns, Object[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            sb.append(i == 0 ? "" : " AND ").append(columns[i]).append(" = ?");
+        }
+        return new LazyList<T>(sb.toString(), metaModel, values).limit(1);
+    }
+
     public static <T extends Model> LazyList<T> findBySql(Class<T> clazz, String fullQuery, Object... params) {
         return new LazyList<T>(false, metaModelOf(clazz), fullQuery,  params);
     }
@@ -228,23 +535,81 @@ public final class ModelDelegate {
         long start = System.currentTimeMillis();
         final MetaModel metaModel = metaModelOf(clazz);
         String sql = metaModel.getDialect().selectStar(metaModel.getTableName(), query);
-        new DB(metaModel.getDbName()).find(sql, params).with(new RowListenerAdapter() {
-            @Override
-            public void onNext(Map<String, Object> row) {
-                listener.onModel(instance(row, metaModel, clazz));
-            }
-        });
+        load(new DB(metaModel.getDbName()), metaModel, clazz, listener, sql, params);
         LogFilter.logQuery(logger, sql, null, start);
     }
 
+    public static <T extends Model, M extends T> ParallelScan parallelForEach(Class<M> clazz, ModelListener<T> listener,
+            int partitions, String query, Object... params) {
+        return ParallelScan.start(clazz, listener, partitions, query, params);
+    }
+
+    /**
+     * Executes a query and passes a new model instance for each row to a listener. If statistics are collected,
+     * time spent on executing the query, fetching rows, hydrating instances and running callbacks is added to
+     * {@link HydrationStats} of the model.
+     */
+    static <T extends Model> void load(DB db, final MetaModel metaModel, final Class<? extends T> clazz,
+            final ModelListener<T> listener, String sql, Object... params) {
+        final HydrationStats stats = hydrationStatsOf(metaModel);
+        if (stats == null) {
+            db.find(sql, params).with(new RowListenerAdapter() {
+                @Override public void onNext(Map<String, Object> row) {
+                    listener.onModel(instance(row, metaModel, clazz));
+                }
+            });
+        } else {
+            long start = System.nanoTime();
+            RowProcessor processor = db.find(sql, params);
+            long executed = System.nanoTime();
+            // rows, nanos spent outside of result set: hydrating and in the listener
+            final long[] counters = new long[2];
+            processor.with(new RowListenerAdapter() {
+                @Override public void onNext(Map<String, Object> row) {
+                    long rowStart = System.nanoTime();
+                    listener.onModel(instance(row, metaModel, clazz, stats));
+                    counters[0]++;
+                    counters[1] += System.nanoTime() - rowStart;
+                }
+            });
+            stats.addQuery(executed - start, System.nanoTime() - executed - counters[1], counters[0]);
+        }
+    }
+
+    /**
+     * @return hydration statistics of a model, or <code>null</code> if statistics are not collected
+     */
+    static HydrationStats hydrationStatsOf(MetaModel metaModel) {
+        Registry registry = Registry.instance();
+        return registry.getConfiguration().collectStatistics()
+                ? registry.getStatisticsQueue().hydrationStatsOf(metaModel.getModelClass()) : null;
+    }
+
     static <T extends Model> T instance(Map<String, Object> map, MetaModel metaModel) {
         return (T) instance(map, metaModel, metaModel.getModelClass());
     }
 
     static <T extends Model> T instance(Map<String, Object> map, MetaModel metaModel, Class<T> clazz) {
+        return instance(map, metaModel, clazz, null);
+    }
+
+    /**
+     * @param stats if not <code>null</code>, time spent hydrating the instance and running its callbacks is added to it
+     */
+    static <T extends Model> T instance(Map<String, Object> map, MetaModel metaModel, Class<T> clazz, HydrationStats stats) {
         try {
-            T instance = clazz.newInstance();
-            instance.hydrate(map, true);
+            T instance;
+            if (stats == null) {
+                instance = clazz.newInstance();
+                instance.hydrate(map, true);
+            } else {
+                long start = System.nanoTime();
+                instance = clazz.newInstance();
+                instance.hydrate(map, false);
+                long hydrated = System.nanoTime();
+                instance.fireAfterLoad();
+                stats.addInstance(hydrated - start, System.nanoTime() - hydrated, HydrationStats.estimateSize(map));
+            }
             return instance;
         } catch(InstantiationException e) {
             throw new InitException("Failed to create a new instance of: " + metaModel.getModelClass() + ", are you sure this class has a default constructor?");
@@ -404,6 +769,73 @@ public final class ModelDelegate {
         return new LazyList<T>(subquery, metaModelOf(clazz), params);
     }
 
+    public static <T extends Model> Future<LazyList<T>> findAsync(final Class<T> clazz, final String subquery,
+            final Object... params) {
+        return AsyncExecutor.instance().submit(MetaModel.getDbName(clazz), new Callable<LazyList<T>>() {
+            @Override public LazyList<T> call() {
+                return where(clazz, subquery, params).<T>load();
+            }
+        });
+    }
+
+    public static Future<Long> countAsync(final Class<? extends Model> clazz) {
+        return AsyncExecutor.instance().submit(MetaModel.getDbName(clazz), new Callable<Long>() {
+            @Override public Long call() {
+                return count(clazz);
+            }
+        });
+    }
+
+    public static Future<Long> countAsync(final Class<? extends Model> clazz, final String query, final Object... params) {
+        return AsyncExecutor.instance().submit(MetaModel.getDbName(clazz), new Callable<Long>() {
+            @Override public Long call() {
+                return count(clazz, query, params);
+            }
+        });
+    }
+
+    public static Future<Boolean> saveAsync(final Model model) {
+        return AsyncExecutor.instance().submit(MetaModel.getDbName(model.getClass()), new Callable<Boolean>() {
+            @Override public Boolean call() {
+                return model.save();
+            }
+        });
+    }
+
+    public static void shardBy(Class<? extends Model> clazz, ShardMap shardMap) {
+        ShardMap.register(clazz, shardMap);
+    }
+
+    public static <R> R onShard(Class<? extends Model> clazz, Object key, Callable<R> task) {
+        try {
+            return ShardMap.of(clazz).shardFor(key).call(clazz, task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DBException(e);
+        }
+    }
+
+    public static <T extends Model> ShardedQuery<T> findAcrossShards(Class<T> clazz, String subquery, Object... params) {
+        return new ShardedQuery<T>(clazz, subquery, params);
+    }
+
+    public static Long countAcrossShards(final Class<? extends Model> clazz, final String query, final Object... params) {
+        List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        for (Shard shard : ShardMap.of(clazz).getShards()) {
+            futures.add(shard.submit(clazz, new Callable<Long>() {
+                @Override public Long call() {
+                    return query == null ? count(clazz) : count(clazz, query, params);
+                }
+            }));
+        }
+        long res = 0;
+        for (Long count : ShardedQuery.getAll(futures)) {
+            res += count;
+        }
+        return res;
+    }
+
     public static void zeroToNull(Class<? extends Model> clazz, String... attributeNames) {
         modelRegistryOf(clazz).convertWith(ZeroToNullConverter.instance(), attributeNames);
     }
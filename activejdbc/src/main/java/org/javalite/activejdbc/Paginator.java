@@ -18,9 +18,19 @@ limitations under the License.
 package org.javalite.activejdbc;
 
 import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.common.Base64;
 import org.javalite.common.Convert;
 
-import java.io.Serializable;
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,7 +42,17 @@ import static org.javalite.activejdbc.ModelDelegate.metaModelFor;
  * cache the total count of records returned by {@link #getCount()}, as LazyList will cache the result sets.
  * This class is thread safe and the same instance could be used across multiple web requests and even
  * across multiple users/sessions. It is lightweight class, you can generate an instance each time you need one,
- * or you can cache an instance in a session or even servlet context.
+ * or you can cache an instance in a session or even servlet context. Methods configuring an instance, such as
+ * {@link #orderBy(String)}, {@link #queryTimeout(int)} or {@link #estimateCountAbove(long)}, change it and return it,
+ * so call them before sharing the instance. An instance configured with {@link #countWithPage()} reads the count from
+ * the last page it returned, and should not be shared.
+ * <p></p>
+ * Pages returned by {@link #getPage(int)} are selected with OFFSET, which makes the database read and discard all
+ * records of previous pages, so deep pages get slower and slower. For large tables use keyset pagination instead,
+ * see {@link #keyset(String)}.
+ * <p></p>
+ * Counting records can cost as much as selecting a page. See {@link #countWithPage()},
+ * {@link #estimateCountAbove(long)} and {@link #getCountAsync()} for cheaper ways to get the count.
  *
  * @author Igor Polevoy
  */
@@ -47,8 +67,17 @@ public class Paginator<T extends Model> implements Serializable {
     private int currentPage;
     private final boolean fullQuery;
     private final String countQuery;
+    private static final String TOTAL_COUNT_COLUMN = "activejdbc_total_count";
+
     private boolean suppressCounts = false;
-    private Long count = 0L;
+    private volatile Long count;
+    private volatile boolean countEstimated;
+    private int queryTimeout = -1;
+    private boolean countWithPage;
+    private long estimateThreshold;
+    private transient volatile LazyList<T> lastPage;
+    private List<String> keyColumns;
+    private boolean[] keyDescending;
 
 
     /**
@@ -131,6 +160,262 @@ public class Paginator<T extends Model> implements Serializable {
         return this;
     }
 
+    /**
+     * Switches this paginator to keyset (seek) pagination. Instead of skipping records of previous pages with OFFSET,
+     * every page starts right after (or before) the record a cursor points to:
+     * <pre>
+     * Paginator&lt;Event&gt; p = new Paginator&lt;Event&gt;(Event.class, 50, "type = ?", "audit").keyset("created_at DESC, id DESC");
+     * KeysetPage&lt;Event&gt; first = p.getPageAfter(null);
+     * KeysetPage&lt;Event&gt; second = p.getPageAfter(first.getNextCursor());
+     * </pre>
+     * which is executed as <code>... WHERE (type = ?) AND (created_at, id) &lt; (?, ?) ORDER BY created_at DESC, id DESC</code>,
+     * so with an index on the key columns every page takes the same time, no matter how deep it is.
+     * <p></p>
+     * Key columns must be attributes of the model, must not be null, and together must be unique, otherwise records
+     * with equal keys on the edge of a page can be skipped. Keyset pagination is not available for full queries.
+     * This ordering is also used by {@link #getPage(int)}.
+     *
+     * @param orderBys comma-separated list of key columns, each optionally followed by "asc" or "desc",
+     *                 for example: <code>"created_at, id"</code>
+     * @return instance to self.
+     */
+    public Paginator<T> keyset(String orderBys) {
+        if (fullQuery) {
+            throw new IllegalArgumentException("keyset pagination cannot be used with a full query");
+        }
+        String[] keys = orderBys.split(",");
+        List<String> columns = new ArrayList<String>(keys.length);
+        boolean[] descending = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String[] parts = keys[i].trim().split("\\s+");
+            if (parts[0].isEmpty() || parts.length > 2
+                    || (parts.length == 2 && !parts[1].equalsIgnoreCase("asc") && !parts[1].equalsIgnoreCase("desc"))) {
+                throw new IllegalArgumentException("invalid key column: '" + keys[i].trim() + "', expected: column [asc|desc]");
+            }
+            columns.add(parts[0]);
+            descending[i] = parts.length == 2 && parts[1].equalsIgnoreCase("desc");
+        }
+        this.keyColumns = columns;
+        this.keyDescending = descending;
+        this.orderBys = orderBys;
+        return this;
+    }
+
+    /**
+     * Returns a page of records following the record pointed to by a cursor. Requires {@link #keyset(String)}.
+     *
+     * @param cursor cursor returned by {@link KeysetPage#getNextCursor()}, or <code>null</code> for the first page.
+     * @return page of at most <code>pageSize</code> records.
+     */
+    public KeysetPage<T> getPageAfter(String cursor) {
+        List<T> items = seek(cursor, false);
+        boolean hasNext = items.size() > pageSize;
+        if (hasNext) {
+            items = items.subList(0, pageSize);
+        }
+        return keysetPage(items, cursor != null, hasNext);
+    }
+
+    /**
+     * Returns a page of records preceding the record pointed to by a cursor. Requires {@link #keyset(String)}.
+     *
+     * @param cursor cursor returned by {@link KeysetPage#getPreviousCursor()}, or <code>null</code> for the last page.
+     * @return page of at most <code>pageSize</code> records, in order of this paginator.
+     */
+    public KeysetPage<T> getPageBefore(String cursor) {
+        List<T> items = seek(cursor, true);
+        boolean hasPrevious = items.size() > pageSize;
+        if (hasPrevious) {
+            items = items.subList(0, pageSize);
+        }
+        Collections.reverse(items);
+        return keysetPage(items, hasPrevious, cursor != null);
+    }
+
+    /**
+     * Selects one record more than a page, to find out if there is anything beyond it.
+     */
+    private List<T> seek(String cursor, boolean backwards) {
+        if (keyColumns == null) {
+            throw new IllegalStateException("keyset pagination is not configured, call keyset() first");
+        }
+        List<Object> allParams = new ArrayList<Object>(Arrays.asList(params));
+        String subQuery = query.equals("*") ? null : query;
+        if (cursor != null) {
+            boolean[] descending = keyDescending;
+            if (backwards) {
+                descending = new boolean[keyDescending.length];
+                for (int i = 0; i < descending.length; i++) {
+                    descending[i] = !keyDescending[i];
+                }
+            }
+            String condition = DefaultDialect.of(metaModel.getDialect()).keysetCondition(keyColumns, descending,
+                    decodeCursor(cursor, keyColumns.size()), allParams);
+            subQuery = subQuery == null ? condition : "(" + subQuery + ") AND " + condition;
+        }
+        LazyList<T> list = new LazyList<T>(subQuery, metaModel, allParams.toArray()).limit(pageSize + 1);
+        for (int i = 0; i < keyColumns.size(); i++) {
+            list.orderBy(keyColumns.get(i) + (keyDescending[i] != backwards ? " DESC" : ""));
+        }
+        if (queryTimeout >= 0) {
+            list.queryTimeout(queryTimeout);
+        }
+        return new ArrayList<T>(list);
+    }
+
+    private KeysetPage<T> keysetPage(List<T> items, boolean hasPrevious, boolean hasNext) {
+        String previousCursor = items.isEmpty() ? null : cursorOf(items.get(0));
+        String nextCursor = items.isEmpty() ? null : cursorOf(items.get(items.size() - 1));
+        return new KeysetPage<T>(items, previousCursor, nextCursor, hasPrevious, hasNext);
+    }
+
+    /**
+     * Returns cursor pointing to a record, to start a page right after or before it.
+     * Requires {@link #keyset(String)}.
+     *
+     * @param model record of this paginator.
+     * @return opaque cursor to pass to {@link #getPageAfter(String)} or {@link #getPageBefore(String)}.
+     */
+    public String cursorOf(T model) {
+        if (keyColumns == null) {
+            throw new IllegalStateException("keyset pagination is not configured, call keyset() first");
+        }
+        Object[] values = new Object[keyColumns.size()];
+        for (int i = 0; i < values.length; i++) {
+            String column = keyColumns.get(i);
+            values[i] = model.get(column.substring(column.lastIndexOf('.') + 1));
+            if (values[i] == null) {
+                throw new IllegalArgumentException("key column " + column + " is null, keyset pagination requires non-null keys");
+            }
+        }
+        return encodeCursor(values);
+    }
+
+    /**
+     * Cursors only carry values of simple types, so that decoding a cursor received from a client
+     * is not a deserialization of arbitrary objects.
+     */
+    static String encodeCursor(Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (Object value : values) {
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    out.writeByte('l');
+                    out.writeLong(((Number) value).longValue());
+                } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+                    out.writeByte('b');
+                    out.writeUTF(value.toString());
+                } else if (value instanceof Double || value instanceof Float) {
+                    out.writeByte('f');
+                    out.writeDouble(((Number) value).doubleValue());
+                } else if (value instanceof java.sql.Date) {
+                    out.writeByte('d');
+                    out.writeLong(((java.sql.Date) value).getTime());
+                } else if (value instanceof java.sql.Time) {
+                    out.writeByte('h');
+                    out.writeLong(((java.sql.Time) value).getTime());
+                } else if (value instanceof java.util.Date) {
+                    out.writeByte('t');
+                    out.writeLong(((java.util.Date) value).getTime());
+                    out.writeInt(value instanceof java.sql.Timestamp ? ((java.sql.Timestamp) value).getNanos() : -1);
+                } else if (value instanceof Boolean) {
+                    out.writeByte('z');
+                    out.writeBoolean((Boolean) value);
+                } else {
+                    out.writeByte('s');
+                    out.writeUTF(value.toString());
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new InternalException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Object[] decodeCursor(String cursor, int count) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                switch (in.readByte()) {
+                    case 'l': values[i] = in.readLong(); break;
+                    case 'b': values[i] = new BigDecimal(in.readUTF()); break;
+                    case 'f': values[i] = in.readDouble(); break;
+                    case 'd': values[i] = new java.sql.Date(in.readLong()); break;
+                    case 'h': values[i] = new java.sql.Time(in.readLong()); break;
+                    case 't':
+                        java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+                        int nanos = in.readInt();
+                        if (nanos >= 0) {
+                            timestamp.setNanos(nanos);
+                        }
+                        values[i] = timestamp;
+                        break;
+                    case 'z': values[i] = in.readBoolean(); break;
+                    case 's': values[i] = in.readUTF(); break;
+                    default: throw new IOException("unknown value type");
+                }
+            }
+            if (in.read() != -1) {
+                throw new IOException("unexpected data after values");
+            }
+            return values;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Fetches the total count together with a page, using <code>COUNT(*) OVER()</code>, instead of running
+     * a separate count query. {@link #getCount()} then reads the count from the last page returned by
+     * {@link #getPage(int)}, loading it if needed. Falls back to a count query if the database does not support
+     * window functions, the page is empty or it comes from cache. Not available for full queries.
+     * Because the count is read from a page, an instance with this option should not be shared between threads.
+     *
+     * @return instance to self.
+     */
+    public Paginator<T> countWithPage() {
+        this.countWithPage = true;
+        return this;
+    }
+
+    /**
+     * Uses an estimate made by the query planner instead of an exact count if the estimate is not less than a threshold.
+     * Exact counts of large results are expensive, while their users rarely need more than an approximate number of
+     * pages. Only supported by some databases, such as PostgreSQL, ignored by others.
+     *
+     * @param threshold minimum estimated number of records to use the estimate for, smaller results are counted exactly.
+     * @return instance to self.
+     * @see #isCountEstimated()
+     */
+    public Paginator<T> estimateCountAbove(long threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("threshold must be positive");
+        this.estimateThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * @return true if the last count returned by {@link #getCount()} is an estimate, see {@link #estimateCountAbove(long)}.
+     */
+    public boolean isCountEstimated() {
+        return countEstimated;
+    }
+
+    /**
+     * Sets timeout of queries selecting pages and counting records, overriding <code>queryTimeout</code>
+     * from <code>activejdbc.properties</code>. See {@link DB#queryTimeout(int)}.
+     *
+     * @param seconds timeout in seconds, 0 for no timeout.
+     * @return instance to self.
+     */
+    public Paginator<T> queryTimeout(int seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("timeout cannot be negative");
+        this.queryTimeout = seconds;
+        return this;
+    }
+
     /**
      * This method will return a list of records for a specific page.
      *
@@ -143,10 +428,22 @@ public class Paginator<T extends Model> implements Serializable {
         if (pageNumber < 1) throw new IllegalArgumentException("minimum page index == 1");
 
         try {
-            LazyList<T> list = find(query, params).offset((pageNumber - 1) * pageSize).limit(pageSize);
+            String withTotalCount = countWithPage && !fullQuery
+                    ? DefaultDialect.of(metaModel.getDialect()).selectStarWithTotalCount(
+                            metaModel.getTableName(), query.equals("*") ? null : query, TOTAL_COUNT_COLUMN)
+                    : null;
+            LazyList<T> list = withTotalCount == null ? find(query, params)
+                    : new LazyList<T>(true, metaModel, withTotalCount, params).totalCountColumn(TOTAL_COUNT_COLUMN);
+            list.offset((pageNumber - 1) * pageSize).limit(pageSize);
             if (orderBys != null) {
                 list.orderBy(orderBys);
             }
+            if (queryTimeout >= 0) {
+                list.queryTimeout(queryTimeout);
+            }
+            if (withTotalCount != null) {
+                lastPage = list;
+            }
             currentPage = pageNumber;
             return list;
         } catch (Exception mustNeverHappen) {
@@ -221,24 +518,79 @@ public class Paginator<T extends Model> implements Serializable {
      * @return total count of records based on provided criteria
      */
     public Long getCount() {
-        if (count == 0L || !suppressCounts) {
-            if (metaModel.cached()) {
-                count = (Long) QueryCache.instance().getItem(metaModel.getTableName(), countQuery, params);
-                if (count == null || count == 0) {
-                    count = doCount();
-                    QueryCache.instance().addItem(metaModel.getTableName(), countQuery, params, count);
-                }
+        if (count == null || !suppressCounts) {
+            LazyList<T> page = lastPage;
+            long total = page == null ? -1 : page.getTotalCount();
+            if (total >= 0) {
+                countEstimated = false;
+                count = total;
             } else {
-                count = doCount();
+                count = countRecords();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts records in a background thread, so that a page can be rendered without waiting for the count.
+     * The count is also kept by this instance, so that {@link #getCount()} does not run the count query again
+     * if <code>suppressCounts</code> is set.
+     *
+     * @return future total count of records.
+     * @see AsyncExecutor
+     */
+    public Future<Long> getCountAsync() {
+        return AsyncExecutor.instance().submit(metaModel.getDbName(), new Callable<Long>() {
+            @Override public Long call() {
+                Long total = countRecords();
+                count = total;
+                return total;
             }
-            return count;
+        });
+    }
 
+    /**
+     * Counts records with a count query or an estimate. Zero counts are cached too, so that empty results
+     * are not counted over and over.
+     */
+    private Long countRecords() {
+        if (estimateThreshold > 0) {
+            long estimate = doEstimate();
+            if (estimate >= estimateThreshold) {
+                countEstimated = true;
+                return estimate;
+            }
+        }
+        countEstimated = false;
+        if (metaModel.cached()) {
+            Long cached = (Long) QueryCache.instance().getItem(metaModel.getTableName(), countQuery, params);
+            if (cached == null) {
+                cached = doCount();
+                QueryCache.instance().addItem(metaModel.getTableName(), countQuery, params, cached);
+            }
+            return cached;
         } else {
-            return count;
+            return doCount();
+        }
+    }
+
+    private long doEstimate() {
+        String table = metaModel.getTableName();
+        String estimated = fullQuery ? query : query.equals("*") ? null : "SELECT 1 FROM " + table + " WHERE " + query;
+        DefaultDialect dialect = DefaultDialect.of(metaModel.getDialect());
+        String estimateQuery = dialect.selectCountEstimate(table, estimated);
+        if (estimateQuery == null) {
+            return -1;
         }
+        return dialect.toCountEstimate(db().firstCell(estimateQuery, estimated == null ? new Object[0] : params));
     }
 
     private Long doCount() {
-        return Convert.toLong(new DB(metaModel.getDbName()).firstCell(countQuery, params));
+        return Convert.toLong(db().firstCell(countQuery, params));
+    }
+
+    private DB db() {
+        DB db = new DB(metaModel.getDbName());
+        return queryTimeout >= 0 ? db.queryTimeout(queryTimeout) : db;
     }
 }
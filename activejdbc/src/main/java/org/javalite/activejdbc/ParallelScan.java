@@ -0,0 +1,260 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.javalite.common.Util.*;
+
+
+/**
+ * Scan of a table split into contiguous ranges of primary key values, which are processed in parallel, each range
+ * by one thread with its own connection. See {@link Model#parallelForEach(ModelListener, int, String, Object...)}.
+ * <pre>
+ *     ParallelScan scan = Order.parallelForEach(new ModelListener&lt;Order&gt;() {
+ *         public void onModel(Order order) {
+ *             ...
+ *         }
+ *     }, 16, "status = ?", "NEW");
+ *     ...
+ *     scan.await();
+ * </pre>
+ * Ranges are computed from minimum and maximum values of the primary key, which therefore must be a single numeric
+ * column. Ranges are distributed to up to <code>async.maxConcurrency</code> tasks on {@link AsyncExecutor}, which
+ * take the next range as soon as they are done with the previous one, so that uneven ranges are balanced.
+ * <p></p>
+ * The listener is called from several threads at the same time and must be thread safe. Models are hydrated on
+ * the scanning threads, so hydration scales with the number of threads too.
+ */
+public class ParallelScan {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelScan.class);
+
+    private final String tableName;
+    private final List<Range> ranges;
+    private final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    private final AtomicInteger nextRange = new AtomicInteger();
+    private final AtomicInteger completedRanges = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final long startTime = System.currentTimeMillis();
+    private volatile boolean cancelled;
+
+    private ParallelScan(String tableName, List<Range> ranges) {
+        this.tableName = tableName;
+        this.ranges = ranges;
+    }
+
+    static <T extends Model> ParallelScan start(final Class<? extends T> clazz, final ModelListener<T> listener, int partitions,
+            final String query, final Object... params) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("number of partitions must be positive");
+        }
+        final MetaModel metaModel = ModelDelegate.metaModelOf(clazz);
+        if (metaModel.getCompositeKeys() != null) {
+            throw new IllegalArgumentException("parallel scan is not supported for composite keys: " + metaModel.getModelClass());
+        }
+        final String dbName = metaModel.getDbName();
+        final String idName = metaModel.getIdName();
+        final boolean all = blank(query) || query.trim().equals("*");
+        String boundsQuery = "SELECT MIN(" + idName + ") AS lo, MAX(" + idName + ") AS hi FROM " + metaModel.getTableName()
+                + (all ? "" : " WHERE " + query);
+        Map bounds = get(AsyncExecutor.instance().submit(dbName, findBounds(dbName, boundsQuery, params)),
+                metaModel.getTableName());
+
+        final ParallelScan scan = new ParallelScan(metaModel.getTableName(),
+                split(bounds.get("lo"), bounds.get("hi"), partitions, metaModel));
+        int workers = Math.min(scan.ranges.size(), Registry.instance().getConfiguration().getAsyncMaxConcurrency(dbName));
+        final String rangeQuery = (all ? "" : "(" + query + ") AND ") + idName + " >= ? AND " + idName + " <= ?";
+        for (int i = 0; i < workers; i++) {
+            scan.futures.add(AsyncExecutor.instance().submit(dbName, new Callable<Void>() {
+                @Override public Void call() {
+                    scan.work(clazz, listener, rangeQuery, params);
+                    return null;
+                }
+            }));
+        }
+        return scan;
+    }
+
+    private static Callable<Map> findBounds(final String dbName, final String boundsQuery, final Object... params) {
+        return new Callable<Map>() {
+            @Override public Map call() {
+                return new DB(dbName).findAll(boundsQuery, params).get(0);
+            }
+        };
+    }
+
+    private static List<Range> split(Object lo, Object hi, int partitions, MetaModel metaModel) {
+        List<Range> res = new ArrayList<Range>();
+        if (lo == null || hi == null) {
+            return res; // nothing to scan
+        }
+        if (!(lo instanceof Number) || !(hi instanceof Number)) {
+            throw new DBException("parallel scan requires a numeric primary key, but " + metaModel.getTableName()
+                    + "." + metaModel.getIdName() + " is " + lo.getClass().getName());
+        }
+        long from = ((Number) lo).longValue();
+        long to = ((Number) hi).longValue();
+        long size = to - from + 1;
+        long step = Math.max(1, size / partitions + (size % partitions == 0 ? 0 : 1));
+        for (long start = from; start <= to; start += step) {
+            long end = start + step - 1;
+            if (end >= to || end < start) { // also guards overflow at Long.MAX_VALUE
+                res.add(new Range(start, to));
+                break;
+            }
+            res.add(new Range(start, end));
+        }
+        return res;
+    }
+
+    private <T extends Model> void work(Class<? extends T> clazz, final ModelListener<T> listener, String rangeQuery, Object[] params) {
+        Object[] rangeParams = new Object[params.length + 2];
+        System.arraycopy(params, 0, rangeParams, 0, params.length);
+        ModelListener<T> counting = new ModelListener<T>() {
+            @Override public void onModel(T model) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+                listener.onModel(model);
+                processed.incrementAndGet();
+            }
+        };
+        int index;
+        while (!cancelled && (index = nextRange.getAndIncrement()) < ranges.size()) {
+            Range range = ranges.get(index);
+            rangeParams[params.length] = range.from;
+            rangeParams[params.length + 1] = range.to;
+            try {
+                ModelDelegate.findWith(clazz, counting, rangeQuery, rangeParams);
+            } catch (CancellationException e) {
+                return;
+            }
+            int completed = completedRanges.incrementAndGet();
+            if (logger.isInfoEnabled()) {
+                LogFilter.log(logger, "Parallel scan of {}: range {} of {} done, {} models processed",
+                        tableName, completed, ranges.size(), processed.get());
+            }
+        }
+    }
+
+    /**
+     * Stops the scan: ranges not started yet are skipped, and ranges being scanned stop before the next model.
+     * Does not wait for scanning threads to stop, use {@link #await()} for that.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Waits until all ranges are scanned, or the scan is cancelled. If one of the ranges failed, the scan is
+     * cancelled and the exception is re-thrown.
+     *
+     * @return number of models passed to the listener.
+     */
+    public long await() {
+        for (Future<Void> future : futures) {
+            try {
+                get(future, tableName);
+            } catch (RuntimeException | Error e) {
+                cancel();
+                throw e;
+            }
+        }
+        return processed.get();
+    }
+
+    private static <R> R get(Future<R> future, String tableName) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBException("interrupted while waiting for parallel scan of " + tableName, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new DBException(cause);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if all scanning threads finished, because all ranges were scanned, the scan was cancelled, or failed.
+     */
+    public boolean isDone() {
+        for (Future<Void> future : futures) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of primary key ranges the table was split into.
+     */
+    public int getRangeCount() {
+        return ranges.size();
+    }
+
+    /**
+     * @return number of ranges scanned completely.
+     */
+    public int getCompletedRangeCount() {
+        return completedRanges.get();
+    }
+
+    /**
+     * @return number of models passed to the listener so far.
+     */
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    /**
+     * @return time in milliseconds since the scan started.
+     */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private static final class Range {
+        private final long from;
+        private final long to;
+
+        private Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
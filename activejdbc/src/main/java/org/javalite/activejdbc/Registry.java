@@ -24,6 +24,8 @@ import org.javalite.activejdbc.statistics.StatisticsQueue;
 import java.lang.reflect.Method;
 import java.sql.DatabaseMetaData;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.sql.SQLException;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -45,10 +47,13 @@ public enum Registry {
     private static final Logger logger = LoggerFactory.getLogger(Registry.class);
 
     private final MetaModels metaModels = new MetaModels();
-    private final Map<Class, ModelRegistry> modelRegistries = new HashMap<Class, ModelRegistry>();
+    private final ConcurrentMap<Class, ModelRegistry> modelRegistries = new ConcurrentHashMap<Class, ModelRegistry>();
     private final Configuration configuration = new Configuration();
     private final StatisticsQueue statisticsQueue;
-    private final Set<String> initedDbs = new HashSet<String>();
+    //immutable snapshot of fully initialized DBs, replaced when a DB is initialized, so that reads need no lock
+    private volatile Set<String> initedDbs = Collections.emptySet();
+    //DBs being initialized, guarded by this
+    private final Set<String> initingDbs = new HashSet<String>();
 
     private Registry() {
         statisticsQueue = configuration.collectStatistics()
@@ -96,6 +101,10 @@ public enum Registry {
     }
 
     public MetaModel getMetaModel(Class<? extends Model> modelClass) {
+        MetaModel mm = metaModels.getMetaModel(modelClass);
+        if (mm != null && initedDbs.contains(mm.getDbName())) {
+            return mm;
+        }
 
         String dbName = MetaModel.getDbName(modelClass);
         init(dbName);
@@ -106,18 +115,26 @@ public enum Registry {
     ModelRegistry modelRegistryOf(Class<? extends Model> modelClass) {
         ModelRegistry registry = modelRegistries.get(modelClass);
         if (registry == null) {
-            registry = new ModelRegistry();
-            modelRegistries.put(modelClass, registry);
+            ModelRegistry existing = modelRegistries.putIfAbsent(modelClass, registry = new ModelRegistry());
+            if (existing != null) {
+                registry = existing;
+            }
         }
         return registry;
     }
 
-     synchronized void init(String dbName) {
+    void init(String dbName) {
+        // lock is only taken until the DB is initialized
+        if (!initedDbs.contains(dbName)) {
+            initSynchronized(dbName);
+        }
+    }
+
+    private synchronized void initSynchronized(String dbName) {
 
-        if (initedDbs.contains(dbName)) {
+        // a DB being initialized is skipped, because initialization itself calls this method for the same DB
+        if (initedDbs.contains(dbName) || !initingDbs.add(dbName)) {
             return;
-        } else {
-            initedDbs.add(dbName);
         }
 
         try {
@@ -143,8 +160,11 @@ public enum Registry {
             for (String table : tables) {
                 discoverAssociationsFor(table, dbName);
             }
+
+            Set<String> inited = new HashSet<String>(initedDbs);
+            inited.add(dbName);
+            initedDbs = Collections.unmodifiableSet(inited);
         } catch (Exception e) {
-            initedDbs.remove(dbName);
             if (e instanceof InitException) {
                 throw (InitException) e;
             }
@@ -153,6 +173,8 @@ public enum Registry {
             } else {
                 throw new InitException(e);
             }
+        } finally {
+            initingDbs.remove(dbName);
         }
     }
 
@@ -0,0 +1,210 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.pool.ConnectionPool;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Read replicas of a database. When a replica set is registered for a connection name, queries executed by
+ * {@link DB} read methods (<code>find</code>, <code>findAll</code>, <code>firstCell</code>,
+ * <code>firstColumn</code>, and so model finders, <code>count</code> and <code>exists</code>) go to a replica,
+ * while writes go to the primary connection opened as usual. Reads stay on the primary when:
+ * <ul>
+ *     <li>the primary connection is in a transaction</li>
+ *     <li>current thread wrote to the primary less than <code>stickyAfterWrite</code> milliseconds ago, so that it
+ *     reads its own writes despite replication lag</li>
+ * </ul>
+ * A thread takes a replica connection on first read and keeps it until the primary connection is closed.
+ * Replica sets are configured in <code>database.properties</code>, replicas share driver, user and password of
+ * the primary unless overridden:
+ * <pre>
+ * production.driver=org.postgresql.Driver
+ * production.username=app
+ * production.password=secret
+ * production.url=jdbc:postgresql://primary/app
+ * production.replica.1.url=jdbc:postgresql://replica1/app
+ * production.replica.2.url=jdbc:postgresql://replica2/app
+ * production.replica.2.username=reader
+ * production.replicas.strategy=least_loaded
+ * production.replicas.stickyAfterWrite=2000
+ * </pre>
+ * or registered in code with {@link #register(String, ReplicaSet)}.
+ */
+public class ReplicaSet {
+
+    /**
+     * How a replica is picked for a thread.
+     */
+    public enum Strategy {
+        /**
+         * Replicas take turns.
+         */
+        ROUND_ROBIN,
+        /**
+         * Replica with fewest connections in use. Requires replicas to be {@link ConnectionPool}s, otherwise
+         * falls back to round robin.
+         */
+        LEAST_LOADED
+    }
+
+    /**
+     * Default number of milliseconds reads stay on primary after a write.
+     */
+    public static final long DEFAULT_STICKY_AFTER_WRITE = 1000;
+
+    private static final String REPLICA_SUFFIX = "@replica";
+    private static final ConcurrentMap<String, ReplicaSet> replicaSets = new ConcurrentHashMap<String, ReplicaSet>();
+
+    private final List<DataSource> replicas;
+    private final Strategy strategy;
+    private final long stickyAfterWrite;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    /**
+     * @param replicas data sources of replicas, usually connection pools
+     * @param strategy how a replica is picked for a thread
+     * @param stickyAfterWrite milliseconds reads stay on primary after current thread wrote to it
+     */
+    public ReplicaSet(List<? extends DataSource> replicas, Strategy strategy, long stickyAfterWrite) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("at least one replica is required");
+        }
+        if (stickyAfterWrite < 0) {
+            throw new IllegalArgumentException("stickyAfterWrite cannot be negative");
+        }
+        this.replicas = Collections.unmodifiableList(new ArrayList<DataSource>(replicas));
+        this.strategy = strategy;
+        this.stickyAfterWrite = stickyAfterWrite;
+    }
+
+    /**
+     * Routes reads of a connection name to replicas.
+     *
+     * @param dbName name of connection, see {@link DB#DB(String)}
+     * @param replicaSet replicas, <code>null</code> to stop routing reads
+     */
+    public static void register(String dbName, ReplicaSet replicaSet) {
+        if (replicaSet == null) {
+            replicaSets.remove(dbName);
+        } else {
+            replicaSets.put(dbName, replicaSet);
+        }
+    }
+
+    static void registerIfAbsent(String dbName, ReplicaSet replicaSet) {
+        replicaSets.putIfAbsent(dbName, replicaSet);
+    }
+
+    /**
+     * @param dbName name of connection
+     * @return replicas of connection, or <code>null</code> if reads are not routed
+     */
+    public static ReplicaSet of(String dbName) {
+        return replicaSets.get(dbName);
+    }
+
+    static String replicaName(String dbName) {
+        return dbName + REPLICA_SUFFIX;
+    }
+
+    static boolean isReplicaName(String name) {
+        return name.endsWith(REPLICA_SUFFIX);
+    }
+
+    /**
+     * Provides connection for a read of current thread.
+     */
+    Connection readConnection(String dbName, Connection primary) throws SQLException {
+        ConnectionContext context = ConnectionContext.current();
+        if (!primary.getAutoCommit()
+                || System.currentTimeMillis() - context.getLastWrite(dbName) < stickyAfterWrite) {
+            primaryReads.incrementAndGet();
+            return primary;
+        }
+        String replicaName = replicaName(dbName);
+        Connection replica = context.connections.get(replicaName);
+        if (replica == null) {
+            replica = pick().getConnection();
+            ConnectionsAccess.attach(replicaName, replica, "replica of " + dbName);
+        }
+        replicaReads.incrementAndGet();
+        return replica;
+    }
+
+    private DataSource pick() {
+        if (strategy == Strategy.LEAST_LOADED) {
+            DataSource res = null;
+            int min = Integer.MAX_VALUE;
+            for (DataSource replica : replicas) {
+                if (!(replica instanceof ConnectionPool)) {
+                    res = null;
+                    break;
+                }
+                int active = ((ConnectionPool) replica).getActive();
+                if (active < min) {
+                    min = active;
+                    res = replica;
+                }
+            }
+            if (res != null) {
+                return res;
+            }
+        }
+        return replicas.get((next.getAndIncrement() & Integer.MAX_VALUE) % replicas.size());
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public long getStickyAfterWrite() {
+        return stickyAfterWrite;
+    }
+
+    /**
+     * @return number of reads sent to replicas.
+     */
+    public long getReplicaReadCount() {
+        return replicaReads.get();
+    }
+
+    /**
+     * @return number of reads kept on primary, because of a transaction or a recent write.
+     */
+    public long getPrimaryReadCount() {
+        return primaryReads.get();
+    }
+}
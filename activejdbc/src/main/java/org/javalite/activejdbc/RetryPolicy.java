@@ -0,0 +1,141 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Settings of {@link DB#inTransaction(java.util.concurrent.Callable, RetryPolicy)}: how many times a transaction
+ * that failed with a deadlock or a serialization failure is re-run, and how long to wait between attempts.
+ * <pre>
+ *     Base.inTransaction(new Callable&lt;Void&gt;() {
+ *         public Void call() {
+ *             ...
+ *         }
+ *     }, new RetryPolicy().maxAttempts(5).name("transfer"));
+ * </pre>
+ * The wait grows exponentially from <code>initialBackoff</code> up to <code>maxBackoff</code>, and the actual
+ * wait is a random time between zero and that value, so that transactions which collided do not collide again.
+ */
+public class RetryPolicy {
+
+    private int maxAttempts = 3;
+    private long initialBackoff = 50;
+    private long maxBackoff = 2000;
+    private double multiplier = 2;
+    private String name;
+
+    /**
+     * @param maxAttempts maximum number of times a transaction is run, including the first one, default 3.
+     * @return this policy.
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param initialBackoff maximum wait in milliseconds before the second attempt, default 50.
+     * @return this policy.
+     */
+    public RetryPolicy initialBackoff(long initialBackoff) {
+        if (initialBackoff < 0) {
+            throw new IllegalArgumentException("initialBackoff cannot be negative");
+        }
+        this.initialBackoff = initialBackoff;
+        return this;
+    }
+
+    /**
+     * @param maxBackoff limit of wait in milliseconds between attempts, default 2000.
+     * @return this policy.
+     */
+    public RetryPolicy maxBackoff(long maxBackoff) {
+        if (maxBackoff < 0) {
+            throw new IllegalArgumentException("maxBackoff cannot be negative");
+        }
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * @param multiplier factor the wait grows by after each attempt, default 2.
+     * @return this policy.
+     */
+    public RetryPolicy multiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * @param name name retries are counted under in {@link DB#retryStats()}, default is the class name of the task.
+     * @return this policy.
+     */
+    public RetryPolicy name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param attempt number of attempt that just failed, starting with 1.
+     * @return milliseconds to wait before the next attempt.
+     */
+    long backoff(int attempt) {
+        double limit = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, attempt - 1));
+        long bound = (long) limit;
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+            "maxAttempts=" + maxAttempts +
+            ", initialBackoff=" + initialBackoff +
+            ", maxBackoff=" + maxBackoff +
+            ", multiplier=" + multiplier +
+            ", name='" + name + '\'' +
+            '}';
+    }
+}
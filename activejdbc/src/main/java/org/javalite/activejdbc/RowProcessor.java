@@ -42,6 +42,10 @@ public class RowProcessor {
             //TODO: shouldn't these be closed in the same scope they were created?
             closeQuietly(rs);
             closeQuietly(s);
+            ConnectionContext context = ConnectionContext.peek();
+            if (context != null) {
+                context.finished(s);
+            }
         }
     }
 
@@ -0,0 +1,122 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+
+/**
+ * One shard of a sharded model: a data source to take connections from and, optionally, a table the
+ * model is stored in on this shard. Shards of a model are declared with a {@link ShardMap}.
+ *
+ * @see Model#shardBy(ShardMap)
+ */
+public class Shard {
+
+    private final String name;
+    private final DataSource dataSource;
+    private final String tableName;
+
+    /**
+     * @param name unique name of shard, used in logs and to limit concurrent queries, see {@link AsyncExecutor}
+     * @param dataSource data source of the database holding this shard
+     * @param tableName table holding the model on this shard, <code>null</code> to use the table of the model
+     */
+    public Shard(String name, DataSource dataSource, String tableName) {
+        if (name == null || dataSource == null) {
+            throw new IllegalArgumentException("shard name and data source cannot be null");
+        }
+        this.name = name;
+        this.dataSource = dataSource;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Shard holding the model in the table of the model.
+     *
+     * @param name unique name of shard
+     * @param dataSource data source of the database holding this shard
+     */
+    public Shard(String name, DataSource dataSource) {
+        this(name, dataSource, null);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return table holding the model on this shard, or <code>null</code> if it is the table of the model.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Calls a task on current thread with a connection to this shard attached under the database name of the model,
+     * and the model mapped to the table of this shard. Query cache keys of the task include the name of this shard. Other connections of current thread are still available
+     * to the task, and are not affected.
+     */
+    <T> T call(final Class<? extends Model> modelClass, final Callable<T> task) throws Exception {
+        final String dbName = MetaModel.getDbName(modelClass);
+        ConnectionContext context = ConnectionContext.current().fork();
+        context.connections.remove(dbName);
+        return context.call(new Callable<T>() {
+            @Override public T call() throws Exception {
+                DB db = new DB(dbName);
+                db.open(dataSource);
+                try {
+                    return bound(modelClass, task).call();
+                } finally {
+                    db.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #call(Class, Callable)}, but runs the task on {@link AsyncExecutor}.
+     */
+    <T> Future<T> submit(Class<? extends Model> modelClass, Callable<T> task) {
+        return AsyncExecutor.instance().submit(name, MetaModel.getDbName(modelClass), dataSource, bound(modelClass, task));
+    }
+
+    private <T> Callable<T> bound(final Class<? extends Model> modelClass, final Callable<T> task) {
+        return new Callable<T>() {
+            @Override public T call() throws Exception {
+                ConnectionContext context = ConnectionContext.current();
+                context.setShardName(name);
+                if (tableName != null) {
+                    context.setShardTableName(modelClass, tableName);
+                }
+                return task.call();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Shard{name='" + name + "', tableName='" + tableName + "'}";
+    }
+}
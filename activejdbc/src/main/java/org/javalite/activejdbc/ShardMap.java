@@ -0,0 +1,131 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Maps keys of a sharded model to its {@link Shard}s. A map is declared in a static block of the model:
+ * <pre>
+ * public class Temperature extends Model {
+ *     static {
+ *         shardBy(ShardMap.hashed(
+ *                 new Shard("east", eastDataSource, "temperatures_east"),
+ *                 new Shard("west", westDataSource, "temperatures_west")));
+ *     }
+ * }
+ * </pre>
+ * Subclasses can implement any other mapping, for instance by ranges of keys or by a lookup table.
+ *
+ * @see Model#onShard(Object, java.util.concurrent.Callable)
+ * @see Model#findAcrossShards(String, Object...)
+ */
+public abstract class ShardMap {
+
+    private static final ConcurrentMap<Class, ShardMap> shardMaps = new ConcurrentHashMap<Class, ShardMap>();
+
+    private final List<Shard> shards;
+
+    /**
+     * @param shards all shards of the model, in the order results from different shards are concatenated in
+     *               when a query is not ordered
+     */
+    protected ShardMap(List<Shard> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("there must be at least one shard");
+        }
+        Set<String> names = new HashSet<String>();
+        for (Shard shard : shards) {
+            if (!names.add(shard.getName())) {
+                throw new IllegalArgumentException("duplicate shard name: " + shard.getName());
+            }
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<Shard>(shards));
+    }
+
+    /**
+     * @return all shards of the model.
+     */
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * @param key sharding key, such as an ID or a tenant ID
+     * @return shard holding records with this key.
+     */
+    public abstract Shard shardFor(Object key);
+
+    /**
+     * Creates a map spreading keys evenly across shards: numeric keys by their value modulo the number of shards,
+     * all others by their string hash code modulo the number of shards. Adding a shard moves most of the keys,
+     * so the list of shards is expected to be fixed.
+     *
+     * @param shards all shards of the model
+     * @return new shard map.
+     */
+    public static ShardMap hashed(Shard... shards) {
+        return new Hashed(shards);
+    }
+
+    static void register(Class<? extends Model> modelClass, ShardMap shardMap) {
+        if (shardMap == null) {
+            throw new IllegalArgumentException("shard map cannot be null");
+        }
+        shardMaps.put(modelClass, shardMap);
+    }
+
+    /**
+     * @param modelClass sharded model
+     * @return shard map of the model.
+     * @throws InitException if the model is not sharded.
+     */
+    public static ShardMap of(Class<? extends Model> modelClass) {
+        ShardMap shardMap = shardMaps.get(modelClass);
+        if (shardMap == null) {
+            throw new InitException("Model " + modelClass.getName()
+                    + " is not sharded, declare its shards with shardBy() in a static block of the model");
+        }
+        return shardMap;
+    }
+
+    private static final class Hashed extends ShardMap {
+
+        private Hashed(Shard... shards) {
+            super(shards == null ? null : Arrays.asList(shards));
+        }
+
+        @Override
+        public Shard shardFor(Object key) {
+            if (key == null) {
+                throw new IllegalArgumentException("sharding key cannot be null");
+            }
+            long hash = key instanceof Number ? ((Number) key).longValue() : key.toString().hashCode();
+            int size = getShards().size();
+            return getShards().get((int) (((hash % size) + size) % size));
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.common.Convert;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+
+/**
+ * Query of a sharded model executed on all shards at the same time, each on a separate connection, see
+ * {@link Model#findAcrossShards(String, Object...)}:
+ * <pre>
+ *     List&lt;Temperature&gt; hottest = Temperature.findAcrossShards("recorded_at &gt; ?", since)
+ *             .orderBy("temp desc").limit(10).load();
+ * </pre>
+ * Each shard only returns up to <code>offset + limit</code> records, in requested order. Results of shards are then
+ * merged in the same order, so only columns present in the selected models can be used in {@link #orderBy(String)}.
+ * Only plain columns, not expressions, can be used in the order. Numbers are compared by value, whatever types
+ * drivers of shards return them as. Nulls are placed where the database places them, unless <code>nulls first</code>
+ * or <code>nulls last</code> is given. Text is compared by Java rules, character by character, which matches binary
+ * collations only: with a case-insensitive or language specific collation, records of different shards might be
+ * merged in a different order than a single database would return them in.
+ * Without an order, results of shards are concatenated in order shards are listed in the {@link ShardMap}.
+ * <p></p>
+ * Results of each shard are loaded into memory whole before they are merged, so a query matching many records
+ * should have a limit. Shards are queried by {@link AsyncExecutor}, which limits the number of concurrent queries
+ * per shard.
+ */
+public class ShardedQuery<T extends Model> implements Iterable<T> {
+
+    private final Class<T> modelClass;
+    private final String subquery;
+    private final Object[] params;
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("[A-Za-z_][\\w$]*(\\.[A-Za-z_][\\w$]*)*");
+
+    private final List<String> orderBys = new ArrayList<String>();
+    private final List<Term> terms = new ArrayList<Term>();
+    private long limit = -1;
+    private long offset;
+
+    ShardedQuery(Class<T> modelClass, String subquery, Object... params) {
+        this.modelClass = modelClass;
+        this.subquery = subquery;
+        this.params = params;
+    }
+
+    /**
+     * Orders results by a column, see {@link LazyList#orderBy(String)}.
+     *
+     * @param orderBy column name, optionally followed by "asc" or "desc" and "nulls first" or "nulls last"; several
+     *                columns can be separated by commas.
+     * @return this query.
+     * @throws IllegalArgumentException if the order is not made of plain columns, so results cannot be merged by it.
+     */
+    public ShardedQuery<T> orderBy(String orderBy) {
+        terms.addAll(parse(orderBy));
+        orderBys.add(orderBy);
+        return this;
+    }
+
+    /**
+     * @param limit maximum number of records returned from all shards together.
+     * @return this query.
+     */
+    public ShardedQuery<T> limit(long limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit cannot be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @param offset number of records to skip in merged results.
+     * @return this query.
+     */
+    public ShardedQuery<T> offset(long offset) {
+        if (offset < 0) throw new IllegalArgumentException("offset cannot be negative");
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Executes the query on all shards and merges results.
+     *
+     * @return merged results.
+     */
+    public List<T> load() {
+        List<T> res = new ArrayList<T>();
+        for (T model : this) {
+            res.add(model);
+        }
+        return res;
+    }
+
+    /**
+     * Executes the query on all shards. Without an order, models of the first shard are available as soon as that
+     * shard responds, otherwise results of all shards are waited for before the first model is returned.
+     *
+     * @return iterator over merged results.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        List<Future<LazyList<T>>> futures = new ArrayList<Future<LazyList<T>>>();
+        try {
+            for (Shard shard : ShardMap.of(modelClass).getShards()) {
+                futures.add(shard.submit(modelClass, new Callable<LazyList<T>>() {
+                    @Override public LazyList<T> call() {
+                        LazyList<T> list = ModelDelegate.where(modelClass, subquery, params);
+                        for (String orderBy : orderBys) {
+                            list.orderBy(orderBy);
+                        }
+                        if (limit >= 0) {
+                            list.limit(offset + limit);
+                        }
+                        return list.load();
+                    }
+                }));
+            }
+        } catch (RuntimeException e) {
+            cancel(futures);
+            throw e;
+        }
+        Iterator<T> merged = orderBys.isEmpty() ? new Concatenation<T>(futures)
+                : new Merge<T>(getAll(futures), comparator());
+        return new Window<T>(merged, offset, limit);
+    }
+
+    private static List<Term> parse(String orderBy) {
+        List<Term> res = new ArrayList<Term>();
+        for (String term : orderBy.split(",")) {
+            String[] parts = term.trim().split("\\s+");
+            if (!COLUMN_PATTERN.matcher(parts[0]).matches()) {
+                throw unsupported(orderBy);
+            }
+            int i = 1;
+            boolean descending = false;
+            if (i < parts.length && (parts[i].equalsIgnoreCase("asc") || parts[i].equalsIgnoreCase("desc"))) {
+                descending = parts[i++].equalsIgnoreCase("desc");
+            }
+            Boolean nullsFirst = null;
+            if (i + 1 < parts.length && parts[i].equalsIgnoreCase("nulls")
+                    && (parts[i + 1].equalsIgnoreCase("first") || parts[i + 1].equalsIgnoreCase("last"))) {
+                nullsFirst = parts[i + 1].equalsIgnoreCase("first");
+                i += 2;
+            }
+            if (i < parts.length) {
+                throw unsupported(orderBy);
+            }
+            res.add(new Term(parts[0].substring(parts[0].lastIndexOf('.') + 1), descending, nullsFirst));
+        }
+        return res;
+    }
+
+    private static IllegalArgumentException unsupported(String orderBy) {
+        return new IllegalArgumentException("cannot merge results of shards ordered by: '" + orderBy
+                + "', only columns optionally followed by asc, desc, nulls first or nulls last are supported");
+    }
+
+    /**
+     * Orders models the way databases of shards ordered them.
+     */
+    private Comparator<T> comparator() {
+        final boolean nullsHigh = DefaultDialect.of(ModelDelegate.metaModelOf(modelClass).getDialect()).nullsSortHigh();
+        return new Comparator<T>() {
+            @Override public int compare(T left, T right) {
+                for (Term term : terms) {
+                    Object leftValue = left.get(term.column);
+                    Object rightValue = right.get(term.column);
+                    if (leftValue == null || rightValue == null) {
+                        if (leftValue != rightValue) {
+                            boolean nullsFirst = term.nullsFirst != null ? term.nullsFirst : nullsHigh == term.descending;
+                            return (leftValue == null) == nullsFirst ? -1 : 1;
+                        }
+                    } else {
+                        int res = compareValues(leftValue, rightValue);
+                        if (res != 0) {
+                            return term.descending ? -res : res;
+                        }
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compareValues(Object left, Object right) {
+        if (left.getClass() != right.getClass()) {
+            if (left instanceof Number && right instanceof Number) {
+                return Convert.toBigDecimal(left).compareTo(Convert.toBigDecimal(right));
+            }
+            if (left instanceof Date && right instanceof Date) {
+                long leftTime = ((Date) left).getTime();
+                long rightTime = ((Date) right).getTime();
+                return leftTime < rightTime ? -1 : leftTime == rightTime ? 0 : 1;
+            }
+            if ((left instanceof CharSequence || left instanceof Character)
+                    && (right instanceof CharSequence || right instanceof Character)) {
+                return left.toString().compareTo(right.toString());
+            }
+        }
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /**
+     * Waits for results of all shards. If one of them failed, the remaining ones are cancelled.
+     */
+    static <R> List<R> getAll(List<Future<R>> futures) {
+        List<R> res = new ArrayList<R>(futures.size());
+        for (Future<R> future : futures) {
+            res.add(get(future, futures));
+        }
+        return res;
+    }
+
+    private static <R> R get(Future<R> future, List<? extends Future<?>> all) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            cancel(all);
+            Thread.currentThread().interrupt();
+            throw new DBException("interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            cancel(all);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new DBException(cause);
+        }
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
+    private abstract static class ReadOnlyIterator<E> implements Iterator<E> {
+        @Override public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Results of shards one after another, each shard is waited for only when the previous one is exhausted.
+     */
+    private static final class Concatenation<E extends Model> extends ReadOnlyIterator<E> {
+        private final List<Future<LazyList<E>>> futures;
+        private int next;
+        private Iterator<E> current;
+
+        private Concatenation(List<Future<LazyList<E>>> futures) {
+            this.futures = futures;
+        }
+
+        @Override public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (next == futures.size()) return false;
+                current = get(futures.get(next++), futures).iterator();
+            }
+            return true;
+        }
+
+        @Override public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+    }
+
+    /**
+     * K-way merge of ordered results of shards.
+     */
+    private static final class Merge<E extends Model> extends ReadOnlyIterator<E> {
+        private final PriorityQueue<Head<E>> heads;
+
+        private Merge(List<LazyList<E>> lists, final Comparator<E> comparator) {
+            heads = new PriorityQueue<Head<E>>(lists.size(), new Comparator<Head<E>>() {
+                @Override public int compare(Head<E> left, Head<E> right) {
+                    int res = comparator.compare(left.value, right.value);
+                    return res != 0 ? res : left.shard - right.shard; // stable across shards
+                }
+            });
+            for (int i = 0; i < lists.size(); i++) {
+                Iterator<E> iterator = lists.get(i).iterator();
+                if (iterator.hasNext()) {
+                    heads.add(new Head<E>(i, iterator));
+                }
+            }
+        }
+
+        @Override public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override public E next() {
+            Head<E> head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            E res = head.value;
+            if (head.advance()) {
+                heads.add(head);
+            }
+            return res;
+        }
+    }
+
+    private static final class Head<E> {
+        private final int shard;
+        private final Iterator<E> iterator;
+        private E value;
+
+        private Head(int shard, Iterator<E> iterator) {
+            this.shard = shard;
+            this.iterator = iterator;
+            advance();
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) return false;
+            value = iterator.next();
+            return true;
+        }
+    }
+
+    /**
+     * Applies offset and limit to merged results.
+     */
+    private static final class Window<E> extends ReadOnlyIterator<E> {
+        private final Iterator<E> iterator;
+        private final long limit;
+        private long skip;
+        private long returned;
+
+        private Window(Iterator<E> iterator, long offset, long limit) {
+            this.iterator = iterator;
+            this.skip = offset;
+            this.limit = limit;
+        }
+
+        @Override public boolean hasNext() {
+            if (limit >= 0 && returned >= limit) return false;
+            while (skip > 0 && iterator.hasNext()) {
+                iterator.next();
+                skip--;
+            }
+            return iterator.hasNext();
+        }
+
+        @Override public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            returned++;
+            return iterator.next();
+        }
+    }
+
+    /**
+     * Column of the order of a query.
+     */
+    private static final class Term {
+        private final String column;
+        private final boolean descending;
+        private final Boolean nullsFirst;
+
+        private Term(String column, boolean descending, Boolean nullsFirst) {
+            this.column = column;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+        }
+    }
+}
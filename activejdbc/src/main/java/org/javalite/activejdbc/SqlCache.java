@@ -0,0 +1,75 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of SQL generated by the framework, keyed by shape of a query: model, table, conditions, order, presence of
+ * limit and offset, or changed columns of an update. Queries of the same shape only differ by parameters, so their
+ * SQL is built once and then found by a hash lookup. All queries of the same shape also share one
+ * <code>String</code> instance.
+ * <p></p>
+ * The cache is cleared when it grows over {@link #MAX_SIZE} entries, which only happens if an application builds
+ * conditions with values inlined into SQL instead of parameters.
+ */
+final class SqlCache {
+
+    static final int MAX_SIZE = 4096;
+
+    private static final ConcurrentMap<List<Object>, String> cache = new ConcurrentHashMap<List<Object>, String>();
+
+    private SqlCache() {}
+
+    /**
+     * @param parts values describing shape of a query, compared with <code>equals()</code>
+     * @return key of a query shape
+     */
+    static List<Object> key(Object... parts) {
+        return Arrays.asList(parts);
+    }
+
+    /**
+     * @return SQL of a query shape, or <code>null</code> if it was not generated yet.
+     */
+    static String get(List<Object> key) {
+        return cache.get(key);
+    }
+
+    /**
+     * @return SQL kept for a query shape, which is the given one unless another thread put it first.
+     */
+    static String put(List<Object> key, String sql) {
+        if (cache.size() >= MAX_SIZE) {
+            cache.clear();
+        }
+        String existing = cache.putIfAbsent(key, sql);
+        return existing == null ? sql : existing;
+    }
+
+    static int size() {
+        return cache.size();
+    }
+
+    static void clear() {
+        cache.clear();
+    }
+}
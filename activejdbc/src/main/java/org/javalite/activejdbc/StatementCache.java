@@ -17,12 +17,15 @@ limitations under the License.
 
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.statistics.StatementCacheStats;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.javalite.common.Util.*;
 
@@ -35,6 +38,8 @@ enum StatementCache {
     static StatementCache instance() { return INSTANCE; }
 
     private final ConcurrentMap<Connection, Map<String, PreparedStatement>> statementCache = new ConcurrentHashMap<Connection, Map<String, PreparedStatement>>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
     private StatementCache() { }
 
@@ -42,7 +47,9 @@ enum StatementCache {
         if (!statementCache.containsKey(connection)) {
             statementCache.put(connection, new HashMap<String, PreparedStatement>());
         }
-        return statementCache.get(connection).get(query);
+        PreparedStatement ps = statementCache.get(connection).get(query);
+        (ps == null ? misses : hits).incrementAndGet();
+        return ps;
     }
 
     public void cache(Connection connection, String query, PreparedStatement ps) {
@@ -57,4 +64,13 @@ enum StatementCache {
 			}
 	   }
     }
+
+    StatementCacheStats getStats() {
+        int statements = 0;
+        // maps are owned by threads using connections, their sizes are only approximate here
+        for (Map<String, PreparedStatement> cached : statementCache.values()) {
+            statements += cached.size();
+        }
+        return new StatementCacheStats(statementCache.size(), statements, hits.get(), misses.get());
+    }
 }
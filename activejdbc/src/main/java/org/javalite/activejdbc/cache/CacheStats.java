@@ -0,0 +1,74 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts hits and misses of {@link QueryCache} for one table.
+ *
+ * @see QueryCache#getStats()
+ */
+public class CacheStats {
+
+    private final String tableName;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    CacheStats(String tableName) {
+        this.tableName = tableName;
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return share of cache lookups that found an item, from 0 to 1, or 0 if there were no lookups yet
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+            "tableName='" + tableName + '\'' +
+            ", hits=" + getHits() +
+            ", misses=" + getMisses() +
+            '}';
+    }
+}
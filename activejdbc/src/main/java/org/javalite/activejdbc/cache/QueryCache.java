@@ -18,6 +18,7 @@ limitations under the License.
 package org.javalite.activejdbc.cache;
 
 
+import org.javalite.activejdbc.ConnectionContext;
 import org.javalite.activejdbc.LogFilter;
 import org.javalite.activejdbc.MetaModel;
 import org.javalite.activejdbc.Registry;
@@ -25,6 +26,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.javalite.activejdbc.ModelDelegate.metaModelFor;
 import static org.javalite.common.Util.*;
@@ -43,6 +48,8 @@ public enum QueryCache {
 
     private final CacheManager cacheManager;
 
+    private final ConcurrentMap<String, CacheStats> statsByTable = new ConcurrentHashMap<String, CacheStats>();
+
     //singleton
     QueryCache() {
         cacheManager = Registry.instance().getConfiguration().getCacheManager();
@@ -85,9 +92,12 @@ public enum QueryCache {
         if (enabled) {
             String key = getKey(tableName, query, params);
             Object item = cacheManager.getCache(tableName, key);
+            CacheStats stats = statsOf(tableName);
             if (item == null) {
+                stats.miss();
                 logAccess(query, params, "MISS");
             } else {
+                stats.hit();
                 logAccess(query, params, "HIT");
             }
             return item;
@@ -96,6 +106,24 @@ public enum QueryCache {
         }
     }
 
+    private CacheStats statsOf(String tableName) {
+        CacheStats stats = statsByTable.get(tableName);
+        if (stats == null) {
+            CacheStats existing = statsByTable.putIfAbsent(tableName, stats = new CacheStats(tableName));
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return hits and misses of this cache keyed by table names, empty if caching is not enabled.
+     */
+    public Map<String, CacheStats> getStats() {
+        return new HashMap<String, CacheStats>(statsByTable);
+    }
+
     static void logAccess(String query, Object[] params, String access) {
         if (logger.isInfoEnabled()) {
             StringBuilder log = new StringBuilder().append(access).append(", ").append('"').append(query).append('"');
@@ -110,7 +138,9 @@ public enum QueryCache {
 
 
     private String getKey(String tableName, String query, Object[] params) {
-        return tableName + query + (params == null ? null : Arrays.asList(params).toString());
+        String shardName = ConnectionContext.currentShardName();
+        return (shardName == null ? "" : shardName + '@') + tableName + query
+                + (params == null ? null : Arrays.asList(params).toString());
     }
 
     /**
@@ -20,6 +20,9 @@ import static org.javalite.common.Util.blank;
 import static org.javalite.common.Util.join;
 import static org.javalite.common.Util.joinAndRepeat;
 
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +47,28 @@ public class DefaultDialect implements Dialect {
     protected static final Pattern GROUP_BY_PATTERN = Pattern.compile("^\\s*GROUP\\s+BY",
             Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
 
+    /**
+     * Methods of this class which are not declared by {@link Dialect}, such as
+     * {@link #formSelect(String, String, List, long, long, List)} or {@link #validationQuery()}, are only declared
+     * here, so that implementations of <code>Dialect</code> which do not extend this class keep compiling.
+     * They are called through this method, which adapts such implementations.
+     *
+     * @param dialect any dialect
+     * @return <code>dialect</code> if it extends this class, otherwise an adapter passing methods of
+     * <code>Dialect</code> to it and forming standard SQL for the others.
+     */
+    public static DefaultDialect of(Dialect dialect) {
+        return dialect instanceof DefaultDialect ? (DefaultDialect) dialect : new DialectAdapter(dialect);
+    }
+
+    /**
+     * @return true if limit and offset are bound as parameters by
+     * {@link #formSelect(String, String, List, long, long, List)}, false if they are always literals.
+     */
+    public boolean bindsLimits() {
+        return true;
+    }
+
     @Override
     public String selectStar(String table) {
         return "SELECT * FROM " + table;
@@ -54,6 +79,20 @@ public class DefaultDialect implements Dialect {
         return where != null ? "SELECT * FROM " + table + " WHERE " + where : selectStar(table);
     }
 
+    /**
+     * @param table table name
+     * @param columns columns to select
+     * @param where condition, can be <code>null</code>
+     * @return query selecting only given columns of a table
+     */
+    public String selectColumns(String table, List<String> columns, String where) {
+        StringBuilder query = new StringBuilder().append("SELECT ");
+        join(query, columns, ", ");
+        query.append(" FROM ").append(table);
+        appendSubQuery(query, where);
+        return query.toString();
+    }
+
     /**
      * Produces a parametrized AND query.
      * Example:
@@ -119,11 +158,51 @@ public class DefaultDialect implements Dialect {
 
     @Override
     public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+        return formSelect(tableName, subQuery, orderBys, limit, offset, null);
+    }
+
+    /**
+     * Same as {@link #formSelect(String, String, List, long, long)}, but limit and offset are bound as parameters,
+     * so that all pages of a query share the same SQL text, and therefore the same execution plan in the database
+     * and the same entry in caches keyed by SQL.
+     *
+     * @param params parameters of the sub-query. Values of limit and offset are inserted into this list at positions
+     *               of their placeholders. If <code>null</code>, values are written into SQL as literals.
+     */
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
         StringBuilder fullQuery = new StringBuilder();
         appendSelect(fullQuery, tableName, null, subQuery, orderBys);
         return fullQuery.toString();
     }
 
+    /**
+     * Appends value of limit or offset: a placeholder if parameters are bound, or a literal otherwise.
+     * Values of placeholders are added by {@link #addLimitParams(List, long, long)}.
+     *
+     * @param params parameters of query, or <code>null</code> to append a literal.
+     */
+    protected void appendLimitValue(StringBuilder query, long value, List<Object> params) {
+        if (params == null) {
+            query.append(value);
+        } else {
+            query.append('?');
+        }
+    }
+
+    /**
+     * Adds values of limit and offset to parameters at positions of their placeholders, exactly as
+     * {@link #formSelect(String, String, List, long, long, List)} does. SQL formed once can then be reused for
+     * all queries of the same shape, which only differ by values of limit and offset.
+     *
+     * @param params parameters of the sub-query
+     * @param limit limit value, -1 if not needed.
+     * @param offset offset value, -1 if not needed.
+     */
+    public void addLimitParams(List<Object> params, long limit, long offset) {
+        // limit and offset are not supported
+    }
+
     @Override
     public Object overrideDriverTypeConversion(MetaModel mm, String attributeName, Object value) {
 	    return value;
@@ -187,6 +266,83 @@ public class DefaultDialect implements Dialect {
         return query.toString();
     }
 
+    /**
+     * Forms a statement that inserts a row or, if a row with the same key already exists, updates it. This way
+     * a row is written in one round trip, without a race between checking that it exists and writing it.
+     * <p></p>
+     * Returns <code>null</code>, there is no such statement common to all databases.
+     *
+     * @param table table name
+     * @param columns columns of inserted row, values are bound in this order
+     * @param keys columns identifying the row, included in <code>columns</code>
+     * @param updates columns to overwrite in an existing row, included in <code>columns</code>
+     * @param versionColumn column to increment in an existing row, or <code>null</code>
+     * @return statement, or <code>null</code> if the database cannot do this with one statement.
+     */
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        return null;
+    }
+
+    /**
+     * Makes an <code>INSERT</code>, <code>UPDATE</code> or upsert statement return all columns of written rows as
+     * a result set, so that values set by the database, such as generated IDs, defaults or values set by triggers,
+     * are read in the same round trip.
+     *
+     * @param statement statement formed by this dialect
+     * @return statement returning written rows, or <code>null</code> if the database cannot do this.
+     */
+    public String returningAll(String statement) {
+        return null;
+    }
+
+    /**
+     * Forms a standard <code>MERGE</code> statement, for dialects of databases that support it.
+     */
+    protected String merge(String table, List<String> columns, List<String> keys, Collection<String> updates,
+            String versionColumn) {
+        StringBuilder query = new StringBuilder().append("MERGE INTO ").append(table).append(" t USING ");
+        appendMergeSource(query, columns);
+        query.append(" ON (");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) { query.append(" AND "); }
+            query.append("t.").append(keys.get(i)).append(" = s.").append(keys.get(i));
+        }
+        query.append(')');
+        if (!updates.isEmpty() || versionColumn != null) {
+            query.append(" WHEN MATCHED THEN UPDATE SET ");
+            boolean first = true;
+            for (String column : updates) {
+                if (!first) { query.append(", "); }
+                query.append("t.").append(column).append(" = s.").append(column);
+                first = false;
+            }
+            if (versionColumn != null) {
+                if (!first) { query.append(", "); }
+                query.append("t.").append(versionColumn).append(" = t.").append(versionColumn).append(" + 1");
+            }
+        }
+        query.append(" WHEN NOT MATCHED THEN INSERT (");
+        join(query, columns, ", ");
+        query.append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) { query.append(", "); }
+            query.append("s.").append(columns.get(i));
+        }
+        return query.append(')').toString();
+    }
+
+    /**
+     * Appends source of a <code>MERGE</code> statement: one row of values of given columns, aliased as <code>s</code>.
+     */
+    protected void appendMergeSource(StringBuilder query, List<String> columns) {
+        query.append("(VALUES (");
+        appendQuestions(query, columns.size());
+        query.append(")) s (");
+        join(query, columns, ", ");
+        query.append(')');
+    }
+
     @Override
     public String deleteManyToManyAssociation(Many2ManyAssociation association) {
         return "DELETE FROM " + association.getJoin()
@@ -284,4 +440,172 @@ public class DefaultDialect implements Dialect {
         }
     	return query.toString();
     }
+
+    /**
+     * @return cheap query used to check that a pooled connection is still alive.
+     */
+    public String validationQuery() {
+        return "SELECT 1";
+    }
+
+    /**
+     * SQLState class "40" (transaction rollback) covers serialization failures and deadlocks in most databases.
+     *
+     * @param e exception thrown in a transaction
+     * @return true if the transaction failed because of contention with other transactions, such as a deadlock or
+     * a serialization failure, and can be rolled back and run again.
+     */
+    public boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("40");
+    }
+
+    /**
+     * Forms a condition selecting rows that come after a given row in a given ordering. Used by keyset pagination,
+     * which seeks to the start of a page through an index instead of skipping rows with OFFSET.
+     * <p></p>
+     * Uses a row value comparison if the dialect supports it and all columns are sorted in the same direction,
+     * otherwise expands it into <code>(a &gt; ? OR (a = ? AND b &gt; ?))</code>.
+     *
+     * @param columns key columns, together they must be unique
+     * @param descending for each column, true if ordering by it is descending
+     * @param values values of key columns in the row to seek past
+     * @param params values are added to this list at positions of their placeholders
+     * @return condition, such as <code>(created_at, id) &gt; (?, ?)</code>
+     */
+    public String keysetCondition(List<String> columns, boolean[] descending, Object[] values, List<Object> params) {
+        if (columns.isEmpty() || columns.size() != descending.length || columns.size() != values.length) {
+            throw new IllegalArgumentException("need a value and a direction for each key column");
+        }
+        boolean sameDirection = true;
+        for (boolean desc : descending) {
+            sameDirection &= desc == descending[0];
+        }
+        StringBuilder query = new StringBuilder();
+        if (columns.size() > 1 && sameDirection && supportsRowValueComparison()) {
+            query.append('(');
+            join(query, columns, ", ");
+            query.append(descending[0] ? ") < (" : ") > (");
+            appendQuestions(query, columns.size());
+            query.append(')');
+            params.addAll(Arrays.asList(values));
+            return query.toString();
+        }
+        query.append('(');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) { query.append(" OR ("); }
+            for (int j = 0; j < i; j++) {
+                query.append(columns.get(j)).append(" = ? AND ");
+                params.add(values[j]);
+            }
+            query.append(columns.get(i)).append(descending[i] ? " < ?" : " > ?");
+            params.add(values[i]);
+            if (i > 0) { query.append(')'); }
+        }
+        return query.append(')').toString();
+    }
+
+    /**
+     * Forms a condition selecting rows by several keys at once.
+     * <p></p>
+     * Uses row value IN for composite keys if the dialect supports row value comparison, otherwise
+     * <code>(a = ? AND b = ?) OR (a = ? AND b = ?)</code>.
+     *
+     * @param columns key columns, one column or columns of a composite key
+     * @param count number of keys
+     * @return condition with placeholders for values of all keys, key after key, such as <code>id IN (?, ?, ?)</code>
+     * or <code>(a, b) IN ((?, ?), (?, ?))</code>
+     */
+    public String keysInCondition(List<String> columns, int count) {
+        if (columns.isEmpty() || count < 1) {
+            throw new IllegalArgumentException("need at least one column and one key");
+        }
+        StringBuilder query = new StringBuilder();
+        if (columns.size() == 1) {
+            query.append(columns.get(0)).append(" IN (");
+            appendQuestions(query, count);
+            return query.append(')').toString();
+        }
+        if (supportsRowValueComparison()) {
+            query.append('(');
+            join(query, columns, ", ");
+            query.append(") IN (");
+            for (int i = 0; i < count; i++) {
+                query.append(i == 0 ? "(" : ", (");
+                appendQuestions(query, columns.size());
+                query.append(')');
+            }
+            return query.append(')').toString();
+        }
+        query.append('(');
+        for (int i = 0; i < count; i++) {
+            query.append(i == 0 ? "(" : " OR (");
+            join(query, columns, " = ? AND ");
+            query.append(" = ?)");
+        }
+        return query.append(')').toString();
+    }
+
+    /**
+     * @return true if the database can compare row values, as in <code>(a, b) &gt; (?, ?)</code>, and use
+     * an index on <code>(a, b)</code> for it.
+     */
+    protected boolean supportsRowValueComparison() {
+        return false;
+    }
+
+    /**
+     * Forms a query selecting all columns of a table together with the total number of selected rows, computed by
+     * a window function, so that a page and the total count are fetched by one query.
+     *
+     * @param table table name
+     * @param where condition, can be <code>null</code>
+     * @param countColumn name of column to return the total count in
+     * @return query, or <code>null</code> if the database does not support window functions.
+     */
+    public String selectStarWithTotalCount(String table, String where, String countColumn) {
+        if (!supportsWindowFunctions()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder().append("SELECT ").append(table).append(".*, COUNT(*) OVER() AS ")
+                .append(countColumn).append(" FROM ").append(table);
+        appendSubQuery(query, where);
+        return query.toString();
+    }
+
+    /**
+     * @return true if the database supports window functions, such as <code>COUNT(*) OVER()</code>.
+     */
+    protected boolean supportsWindowFunctions() {
+        return false;
+    }
+
+    /**
+     * Forms a query returning an estimate of the number of rows, made from statistics of the database
+     * without running the query.
+     *
+     * @param table table name
+     * @param query query to estimate, or <code>null</code> to estimate number of all rows in the table
+     * @return query returning the estimate in its first cell, to pass to {@link #toCountEstimate(Object)},
+     * or <code>null</code> if estimates are not supported.
+     */
+    public String selectCountEstimate(String table, String query) {
+        return null;
+    }
+
+    /**
+     * @param value first cell returned by query from {@link #selectCountEstimate(String, String)}
+     * @return estimated number of rows, or -1 if the database has no statistics.
+     */
+    public long toCountEstimate(Object value) {
+        return value == null ? -1 : Convert.toLong(value);
+    }
+
+    /**
+     * @return true if <code>NULL</code> values go after all other values in ascending order and before them in
+     * descending order, false if the other way round.
+     */
+    public boolean nullsSortHigh() {
+        return false;
+    }
 }
@@ -0,0 +1,123 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.dialects;
+
+import java.util.List;
+import java.util.Map;
+import org.javalite.activejdbc.MetaModel;
+import org.javalite.activejdbc.associations.Many2ManyAssociation;
+
+/**
+ * Lets a {@link Dialect} which does not extend {@link DefaultDialect} be used where methods of
+ * <code>DefaultDialect</code> are needed, see {@link DefaultDialect#of(Dialect)}. Methods of <code>Dialect</code>
+ * are passed to the adapted dialect. Limits and offsets are formed by it as literals, the other methods of
+ * <code>DefaultDialect</code> form standard SQL.
+ */
+final class DialectAdapter extends DefaultDialect {
+
+    private final Dialect dialect;
+
+    DialectAdapter(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+        return dialect.formSelect(tableName, subQuery, orderBys, limit, offset);
+    }
+
+    @Override
+    public boolean bindsLimits() {
+        return false;
+    }
+
+    /**
+     * Ignores <code>params</code>, limit and offset are always literals.
+     */
+    @Override
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
+        return dialect.formSelect(tableName, subQuery, orderBys, limit, offset);
+    }
+
+    @Override
+    public Object overrideDriverTypeConversion(MetaModel mm, String attributeName, Object value) {
+        return dialect.overrideDriverTypeConversion(mm, attributeName, value);
+    }
+
+    @Override
+    public String selectStar(String table) {
+        return dialect.selectStar(table);
+    }
+
+    @Override
+    public String selectStar(String table, String where) {
+        return dialect.selectStar(table, where);
+    }
+
+    @Override
+    public String selectStarParametrized(String table, String... parameters) {
+        return dialect.selectStarParametrized(table, parameters);
+    }
+
+    @Override
+    public String selectCount(String from) {
+        return dialect.selectCount(from);
+    }
+
+    @Override
+    public String selectCount(String table, String where) {
+        return dialect.selectCount(table, where);
+    }
+
+    @Override
+    public String selectExists(MetaModel mm) {
+        return dialect.selectExists(mm);
+    }
+
+    @Override
+    public String selectManyToManyAssociation(Many2ManyAssociation association, String sourceFkColumnName,
+            int questionsCount) {
+        return dialect.selectManyToManyAssociation(association, sourceFkColumnName, questionsCount);
+    }
+
+    @Override
+    public String insertManyToManyAssociation(Many2ManyAssociation association) {
+        return dialect.insertManyToManyAssociation(association);
+    }
+
+    @Override
+    public String insertParametrized(MetaModel metaModel, List<String> columns, boolean containsId) {
+        return dialect.insertParametrized(metaModel, columns, containsId);
+    }
+
+    @Override
+    public String deleteManyToManyAssociation(Many2ManyAssociation association) {
+        return dialect.deleteManyToManyAssociation(association);
+    }
+
+    @Override
+    public String insert(MetaModel metaModel, Map<String, Object> attributes) {
+        return dialect.insert(metaModel, attributes);
+    }
+
+    @Override
+    public String update(MetaModel metaModel, Map<String, Object> attributes) {
+        return dialect.update(metaModel, attributes);
+    }
+}
@@ -3,6 +3,11 @@
  */
 package org.javalite.activejdbc.dialects;
 
+import java.util.Collection;
+import java.util.List;
+
+import static org.javalite.common.Util.join;
+
 /**
  * Supports features of the h2 sql dialect.
  * 
@@ -14,4 +19,57 @@ package org.javalite.activejdbc.dialects;
  */
 public class H2Dialect extends PostgreSQLDialect {
 
+    /**
+     * Older versions of H2 do not use indexes for row value comparisons.
+     */
+    @Override
+    protected boolean supportsRowValueComparison() {
+        return false;
+    }
+
+    /**
+     * Window functions are only supported by newer versions of H2.
+     */
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return false;
+    }
+
+    @Override
+    public String selectCountEstimate(String table, String query) {
+        return null;
+    }
+
+    @Override
+    public boolean nullsSortHigh() {
+        return false;
+    }
+
+    /**
+     * Uses H2 <code>MERGE ... KEY</code>, which overwrites all given columns of an existing row. Older versions
+     * of H2 have no statement which keeps some of given columns or increments a version, so <code>null</code> is
+     * returned in such cases.
+     */
+    @Override
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        if (versionColumn != null || keys.size() + updates.size() < columns.size()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder().append("MERGE INTO ").append(table).append(" (");
+        join(query, columns, ", ");
+        query.append(") KEY (");
+        join(query, keys, ", ");
+        query.append(") VALUES (");
+        appendQuestions(query, columns.size());
+        return query.append(')').toString();
+    }
+
+    /**
+     * Older versions of H2 have no <code>RETURNING</code>.
+     */
+    @Override
+    public String returningAll(String statement) {
+        return null;
+    }
 }
@@ -1,5 +1,7 @@
 package org.javalite.activejdbc.dialects;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -11,6 +13,20 @@ public class MSSQLDialect extends DefaultDialect {
     protected final Pattern selectPattern = Pattern.compile("^\\s*SELECT\\s*",
             Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
 
+    private final boolean outputInserted;
+
+    public MSSQLDialect() {
+        this(false);
+    }
+
+    /**
+     * @param outputInserted true to read written rows back with <code>OUTPUT INSERTED.*</code>,
+     *                       see {@link #returningAll(String)}
+     */
+    public MSSQLDialect(boolean outputInserted) {
+        this.outputInserted = outputInserted;
+    }
+
     /**
      * Generates adds limit, offset and order bys to a sub-query
      *
@@ -20,10 +36,12 @@ public class MSSQLDialect extends DefaultDialect {
      * @param orderBys
      * @param limit
      * @param offset
+     * @param params parameters to bind limit and offset to, <code>null</code> to inline them
      * @return query with
      */
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
         boolean needLimit = limit != -1;
         boolean needOffset = offset != -1;
 
@@ -38,7 +56,11 @@ public class MSSQLDialect extends DefaultDialect {
             Util.join(fullQuery, orderBys, ", ");
             fullQuery.append(") AS rownumber,");
         } else if (needLimit) {
-            fullQuery.append("SELECT TOP ").append(limit);
+            if (params == null) {
+                fullQuery.append("SELECT TOP ").append(limit);
+            } else {
+                fullQuery.append("SELECT TOP (?)");
+            }
         } else {
             keepSelect = true;
         }
@@ -63,18 +85,36 @@ public class MSSQLDialect extends DefaultDialect {
         if (needOffset) {
             // T-SQL offset starts with 1, not like MySQL with 0;
             if (needLimit) {
-                fullQuery.append(") AS sq WHERE rownumber BETWEEN ").append(offset + 1)
-                        .append(" AND ").append(limit + offset);
+                fullQuery.append(") AS sq WHERE rownumber BETWEEN ");
+                appendLimitValue(fullQuery, offset + 1, params);
+                fullQuery.append(" AND ");
+                appendLimitValue(fullQuery, limit + offset, params);
             } else {
-                fullQuery.append(") AS sq WHERE rownumber >= ").append(offset + 1);
+                fullQuery.append(") AS sq WHERE rownumber >= ");
+                appendLimitValue(fullQuery, offset + 1, params);
             }
         } else {
             appendOrderBy(fullQuery, orderBys);
         }
+        if (params != null) {
+            addLimitParams(params, limit, offset);
+        }
 
         return fullQuery.toString();
     }
 
+    @Override
+    public void addLimitParams(List<Object> params, long limit, long offset) {
+        if (offset != -1) {
+            params.add(offset + 1);
+            if (limit != -1) {
+                params.add(limit + offset);
+            }
+        } else if (limit != -1) {
+            params.add(0, limit); // placeholder of TOP precedes the sub-query
+        }
+    }
+
     /**
      * TDS converts a number of important data types to String. This isn't what we want, nor helpful. Here, we change them back.
      */
@@ -105,4 +145,53 @@ public class MSSQLDialect extends DefaultDialect {
     protected void appendTimestamp(StringBuilder query, java.sql.Timestamp value) {
         query.append("CONVERT(datetime2, '").append(value.toString()).append("')");
     }
+
+    /**
+     * Deadlock victim (1205) and snapshot isolation update conflict (3960).
+     */
+    @Override
+    public boolean isRetryable(SQLException e) {
+        return super.isRetryable(e) || e.getErrorCode() == 1205 || e.getErrorCode() == 3960;
+    }
+
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return true;
+    }
+
+    /**
+     * SQL Server requires <code>MERGE</code> to be terminated with a semicolon.
+     */
+    @Override
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        return merge(table, columns, keys, updates, versionColumn) + ';';
+    }
+
+    /**
+     * Adds <code>OUTPUT INSERTED.*</code> to the statement. SQL Server rejects this clause on tables with enabled
+     * triggers, so it is only added if enabled by <code>mssql.outputInserted=true</code> in
+     * <code>activejdbc.properties</code>, for databases where tables of models have no triggers. Otherwise
+     * returns <code>null</code>, and written rows are not read back.
+     */
+    @Override
+    public String returningAll(String statement) {
+        if (!outputInserted) {
+            return null;
+        }
+        int index;
+        if (statement.startsWith("INSERT ")) {
+            index = statement.indexOf(" DEFAULT VALUES");
+            if (index == -1) {
+                index = statement.indexOf(" VALUES (");
+            }
+        } else if (statement.startsWith("UPDATE ")) {
+            index = statement.indexOf(" WHERE ");
+        } else if (statement.startsWith("MERGE ") && statement.endsWith(";")) {
+            index = statement.length() - 1;
+        } else {
+            return null;
+        }
+        return index == -1 ? null : statement.substring(0, index) + " OUTPUT INSERTED.*" + statement.substring(index);
+    }
 }
@@ -17,6 +17,8 @@ limitations under the License.
 
 package org.javalite.activejdbc.dialects;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import org.javalite.activejdbc.MetaModel;
 
@@ -25,15 +27,73 @@ import org.javalite.activejdbc.MetaModel;
  */
 public class MySQLDialect extends PostgreSQLDialect {
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
         if (limit == -1L && offset != -1L) {
             throw new IllegalArgumentException("MySQL does not support OFFSET without LIMIT. OFFSET is a parameter of LIMIT function");
         }
-        return super.formSelect(tableName, subQuery, orderBys, limit, offset);
+        return super.formSelect(tableName, subQuery, orderBys, limit, offset, params);
     }
 
     @Override
     protected void appendEmptyRow(MetaModel metaModel, StringBuilder query) {
         query.append("() VALUES ()");
     }
+
+    /**
+     * Also retries InnoDB lock wait timeouts (1205), which are reported with a generic SQLState.
+     */
+    @Override
+    public boolean isRetryable(SQLException e) {
+        return super.isRetryable(e) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    @Override
+    public boolean nullsSortHigh() {
+        return false;
+    }
+
+    /**
+     * Window functions are only supported since MySQL 8.
+     */
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return false;
+    }
+
+    @Override
+    public String selectCountEstimate(String table, String query) {
+        return null;
+    }
+
+    @Override
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        StringBuilder query = new StringBuilder();
+        appendInsert(query, table, columns);
+        query.append(" ON DUPLICATE KEY UPDATE ");
+        if (updates.isEmpty() && versionColumn == null) {
+            // nothing to change, but the clause cannot be empty
+            return query.append(keys.get(0)).append(" = ").append(keys.get(0)).toString();
+        }
+        boolean first = true;
+        for (String column : updates) {
+            if (!first) { query.append(", "); }
+            query.append(column).append(" = VALUES(").append(column).append(')');
+            first = false;
+        }
+        if (versionColumn != null) {
+            if (!first) { query.append(", "); }
+            query.append(versionColumn).append(" = ").append(versionColumn).append(" + 1");
+        }
+        return query.toString();
+    }
+
+    /**
+     * MySQL has no <code>RETURNING</code>.
+     */
+    @Override
+    public String returningAll(String statement) {
+        return null;
+    }
 }
@@ -15,6 +15,8 @@ limitations under the License.
 */
 package org.javalite.activejdbc.dialects;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import org.javalite.activejdbc.MetaModel;
 
@@ -43,13 +45,15 @@ public class OracleDialect extends DefaultDialect {
      * @param orderBys collection of order by: "dob desc" - one example
      * @param limit limit value, -1 if not needed.
      * @param offset offset value, -1 if not needed.
+     * @param params parameters to bind limit and offset to, <code>null</code> to inline them
      * @return Oracle - specific select query. Here is one example:
      *
      * <pre>SELECT * FROM (SELECT t2.*, ROWNUM AS oracle_row_number FROM (SELECT t.* FROM pages t WHERE &lt;conditions&gt; ORDER BY id) t2) WHERE oracle_row_number &gt;= 20 AND rownum &lt;= 10;</pre>
      * Can't think of an uglier thing. Shame on you, Oracle.
      */
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
 
         boolean needLimit = limit != -1L;
         boolean needOffset = offset != -1L;
@@ -65,17 +69,33 @@ public class OracleDialect extends DefaultDialect {
 
         if (needOffset) {
             // Oracle offset starts with 1, not like MySQL with 0;
-            fullQuery.append(") t2) WHERE oracle_row_number >= ").append(offset + 1);
+            fullQuery.append(") t2) WHERE oracle_row_number >= ");
+            appendLimitValue(fullQuery, offset + 1, params);
             if (needLimit) {
-                fullQuery.append(" AND ROWNUM <= ").append(limit);
+                fullQuery.append(" AND ROWNUM <= ");
+                appendLimitValue(fullQuery, limit, params);
             }
         } else if (needLimit) {
-            fullQuery.append(") t2) WHERE ROWNUM <= ").append(limit);            
+            fullQuery.append(") t2) WHERE ROWNUM <= ");
+            appendLimitValue(fullQuery, limit, params);
+        }
+        if (params != null) {
+            addLimitParams(params, limit, offset);
         }
 
         return fullQuery.toString();
     }
 
+    @Override
+    public void addLimitParams(List<Object> params, long limit, long offset) {
+        if (offset != -1L) {
+            params.add(offset + 1);
+        }
+        if (limit != -1L) {
+            params.add(limit);
+        }
+    }
+
     @Override
     protected void appendEmptyRow(MetaModel metaModel, StringBuilder query) {
         query.append('(').append(metaModel.getIdName()).append(") VALUES (")
@@ -88,4 +108,43 @@ public class OracleDialect extends DefaultDialect {
         // Oracle has no TIME type
         appendTimestamp(query, new java.sql.Timestamp(value.getTime()));
     }
+
+    @Override
+    public String validationQuery() {
+        return "SELECT 1 FROM DUAL";
+    }
+
+    /**
+     * ORA-00060 (deadlock detected) and ORA-08177 (can't serialize access), Oracle does not use SQLState class 40.
+     */
+    @Override
+    public boolean isRetryable(SQLException e) {
+        return super.isRetryable(e) || e.getErrorCode() == 60 || e.getErrorCode() == 8177;
+    }
+
+    @Override
+    public boolean nullsSortHigh() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return true;
+    }
+
+    @Override
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        return merge(table, columns, keys, updates, versionColumn);
+    }
+
+    @Override
+    protected void appendMergeSource(StringBuilder query, List<String> columns) {
+        query.append("(SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) { query.append(", "); }
+            query.append("? ").append(columns.get(i));
+        }
+        query.append(" FROM DUAL) s");
+    }
 }
@@ -1,11 +1,18 @@
 package org.javalite.activejdbc.dialects;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.javalite.common.Util.join;
 
 
 
 public class PostgreSQLDialect extends DefaultDialect {
 
+    private static final Pattern PLAN_ROWS_PATTERN = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
     /**
      * Generates adds limit, offset and order bys to a sub-query
      *
@@ -15,22 +22,116 @@ public class PostgreSQLDialect extends DefaultDialect {
      * @param orderBys
      * @param limit
      * @param offset
+     * @param params parameters to bind limit and offset to, <code>null</code> to inline them
      * @return query with
      */
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
         StringBuilder fullQuery = new StringBuilder();
         
         appendSelect(fullQuery, tableName, null, subQuery, orderBys);
 
         if(limit != -1){
-            fullQuery.append(" LIMIT ").append(limit);
+            fullQuery.append(" LIMIT ");
+            appendLimitValue(fullQuery, limit, params);
         }
 
         if(offset != -1){
-            fullQuery.append(" OFFSET ").append(offset);
+            fullQuery.append(" OFFSET ");
+            appendLimitValue(fullQuery, offset, params);
+        }
+        if (params != null) {
+            addLimitParams(params, limit, offset);
         }
 
         return fullQuery.toString();
     }
+
+    @Override
+    public void addLimitParams(List<Object> params, long limit, long offset) {
+        if (limit != -1) {
+            params.add(limit);
+        }
+        if (offset != -1) {
+            params.add(offset);
+        }
+    }
+
+    @Override
+    protected boolean supportsRowValueComparison() {
+        return true;
+    }
+
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return true;
+    }
+
+    /**
+     * Uses <code>pg_class.reltuples</code> for a whole table, and row estimate of the top plan node of
+     * <code>EXPLAIN</code> for a query.
+     */
+    @Override
+    public String selectCountEstimate(String table, String query) {
+        return query == null
+                ? "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = '" + table.replace("'", "''") + "'::regclass"
+                : "EXPLAIN (FORMAT JSON) " + query;
+    }
+
+    @Override
+    public long toCountEstimate(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        Matcher m = PLAN_ROWS_PATTERN.matcher(String.valueOf(value));
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    @Override
+    public boolean nullsSortHigh() {
+        return true;
+    }
+
+    protected void appendInsert(StringBuilder query, String table, List<String> columns) {
+        query.append("INSERT INTO ").append(table).append(" (");
+        join(query, columns, ", ");
+        query.append(") VALUES (");
+        appendQuestions(query, columns.size());
+        query.append(')');
+    }
+
+    /**
+     * Uses <code>INSERT ... ON CONFLICT</code>, supported since PostgreSQL 9.5 and SQLite 3.24.
+     */
+    @Override
+    public String upsertParametrized(String table, List<String> columns, List<String> keys,
+            Collection<String> updates, String versionColumn) {
+        StringBuilder query = new StringBuilder();
+        appendInsert(query, table, columns);
+        query.append(" ON CONFLICT (");
+        join(query, keys, ", ");
+        if (updates.isEmpty() && versionColumn == null) {
+            return query.append(") DO NOTHING").toString();
+        }
+        query.append(") DO UPDATE SET ");
+        boolean first = true;
+        for (String column : updates) {
+            if (!first) { query.append(", "); }
+            query.append(column).append(" = EXCLUDED.").append(column);
+            first = false;
+        }
+        if (versionColumn != null) {
+            if (!first) { query.append(", "); }
+            // the existing row is referred to by table name, without schema
+            query.append(versionColumn).append(" = ").append(table.substring(table.lastIndexOf('.') + 1))
+                    .append('.').append(versionColumn).append(" + 1");
+        }
+        return query.toString();
+    }
+
+    @Override
+    public String returningAll(String statement) {
+        return statement + " RETURNING *";
+    }
 }
@@ -25,11 +25,12 @@ import org.javalite.common.Convert;
  */
 public class SQLiteDialect extends PostgreSQLDialect {
     @Override
-    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset) {
+    public String formSelect(String tableName, String subQuery, List<String> orderBys, long limit, long offset,
+            List<Object> params) {
         if (limit == -1L && offset != -1L) {
             throw new IllegalArgumentException("SQLite does not support OFFSET without LIMIT. OFFSET is a parameter of LIMIT function");
         }
-        return super.formSelect(tableName, subQuery, orderBys, limit, offset);
+        return super.formSelect(tableName, subQuery, orderBys, limit, offset, params);
     }
 
     @Override
@@ -65,4 +66,38 @@ public class SQLiteDialect extends PostgreSQLDialect {
         // See https://www.sqlite.org/lang_datefunc.html
         query.append("datetime('").append(value.toString()).append("')");
     }
+
+    /**
+     * Row values are only supported since SQLite 3.15.
+     */
+    @Override
+    protected boolean supportsRowValueComparison() {
+        return false;
+    }
+
+    /**
+     * Window functions are only supported since SQLite 3.25.
+     */
+    @Override
+    protected boolean supportsWindowFunctions() {
+        return false;
+    }
+
+    @Override
+    public String selectCountEstimate(String table, String query) {
+        return null;
+    }
+
+    /**
+     * <code>RETURNING</code> is only supported since SQLite 3.35, override this method to use it on newer versions.
+     */
+    @Override
+    public String returningAll(String statement) {
+        return null;
+    }
+
+    @Override
+    public boolean nullsSortHigh() {
+        return false;
+    }
 }
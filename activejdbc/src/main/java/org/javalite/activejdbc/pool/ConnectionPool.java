@@ -0,0 +1,489 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.pool;
+
+import org.javalite.activejdbc.ConnectionJdbcSpec;
+import org.javalite.activejdbc.InitException;
+import org.javalite.activejdbc.LogFilter;
+import org.javalite.activejdbc.Registry;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.javalite.common.Util.closeQuietly;
+
+
+/**
+ * Lightweight JDBC connection pool without external dependencies. It is used transparently by
+ * {@link org.javalite.activejdbc.DB#open(org.javalite.activejdbc.ConnectionSpec)} when <code>pool.*</code> properties
+ * are configured in <code>database.properties</code> (see {@link PoolConfig}), and can also be used directly as
+ * a <code>DataSource</code>:
+ * <pre>
+ *     ConnectionPool pool = new ConnectionPool(new ConnectionJdbcSpec(driver, url, user, password), new PoolConfig(10));
+ *     Base.open(pool);
+ *     ...
+ *     Base.close(); // returns connection to pool
+ * </pre>
+ *
+ * Idle connections are kept in a lock-free deque and handed out most recently used first, so that a busy pool keeps
+ * reusing warm connections and rarely used ones age out. The number of connections in use is bounded by a semaphore:
+ * when a connection is available, borrowing it takes no locks. Connections idle for longer than
+ * <code>validationInterval</code> are checked with the validation query of the database's dialect before they are
+ * handed out, broken ones are replaced. Idle connections above <code>minSize</code> are closed by a background
+ * thread after <code>idleTimeout</code>.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final ConcurrentMap<String, ConnectionPool> pools = new ConcurrentHashMap<String, ConnectionPool>();
+    private static ScheduledExecutorService evictor;
+
+    private final ConnectionJdbcSpec spec;
+    private final PoolConfig config;
+    private final String name;
+    private final Deque<PoolEntry> idle = new ConcurrentLinkedDeque<PoolEntry>();
+    private final Semaphore permits;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private volatile String validationQuery;
+    private volatile boolean closed;
+    private ScheduledFuture<?> evictionTask;
+    private PrintWriter logWriter;
+    private int loginTimeout;
+
+    /**
+     * @param spec JDBC connection specification, used to open physical connections.
+     * @param config pool settings.
+     */
+    public ConnectionPool(ConnectionJdbcSpec spec, PoolConfig config) {
+        this.spec = spec;
+        this.config = config;
+        this.name = spec.getUrl();
+        this.validationQuery = config.getValidationQuery();
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        try {
+            Class.forName(spec.getDriver());
+        } catch (ClassNotFoundException e) {
+            throw new InitException("Failed to load JDBC driver: " + spec.getDriver(), e);
+        }
+        for (int i = 0; i < config.getMinSize(); i++) {
+            try {
+                idle.offerFirst(create());
+            } catch (SQLException e) {
+                throw new InitException("Failed to connect to JDBC URL: " + name, e);
+            }
+        }
+        scheduleEviction();
+    }
+
+    /**
+     * Returns the pool for a connection specification, creating it on first use. This method is used
+     * by the framework.
+     *
+     * @param spec JDBC specification with pool settings.
+     * @return pool shared by all specifications with the same driver, URL and user.
+     */
+    public static ConnectionPool of(ConnectionJdbcSpec spec) {
+        String key = spec.getDriver() + '|' + spec.getUrl() + '|' + spec.getUser();
+        ConnectionPool pool = pools.get(key);
+        if (pool == null) {
+            synchronized (pools) { // opening min connections twice would be wasteful, the lock is only taken once
+                pool = pools.get(key);
+                if (pool == null) {
+                    pool = new ConnectionPool(spec, spec.getPoolConfig());
+                    pools.put(key, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * @return all pools created by {@link #of(ConnectionJdbcSpec)}.
+     */
+    public static Collection<ConnectionPool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        borrows.incrementAndGet();
+        // barging past queued threads would starve them under load, so they are served first
+        if (permits.hasQueuedThreads() || !permits.tryAcquire()) {
+            acquireSlowly();
+        }
+        try {
+            PoolEntry entry;
+            while ((entry = idle.pollFirst()) != null && !isUsable(entry)) {
+                destroy(entry);
+            }
+            if (entry == null) {
+                entry = create();
+            }
+            active.incrementAndGet();
+            return new PooledConnection(this, entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquireSlowly() throws SQLException {
+        waits.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeout()
+                        + " milliseconds waiting for a connection from pool " + name + ", " + this);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        } finally {
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private PoolEntry create() throws SQLException {
+        Connection connection = spec.getProps() != null
+                ? DriverManager.getConnection(spec.getUrl(), spec.getProps())
+                : DriverManager.getConnection(spec.getUrl(), spec.getUser(), spec.getPassword());
+        size.incrementAndGet();
+        created.incrementAndGet();
+        if (validationQuery == null) {
+            resolveValidationQuery(connection);
+        }
+        LogFilter.log(logger, "Opened pooled connection: {}", connection);
+        return new PoolEntry(connection);
+    }
+
+    private void resolveValidationQuery(Connection connection) {
+        try {
+            validationQuery = DefaultDialect.of(Registry.instance().getConfiguration()
+                    .getDialect(connection.getMetaData().getDatabaseProductName())).validationQuery();
+        } catch (SQLException e) {
+            logger.warn("Failed to find out type of database, using default validation query", e);
+            validationQuery = "SELECT 1";
+        }
+    }
+
+    private boolean isUsable(PoolEntry entry) {
+        if (!config.isValidate() || System.currentTimeMillis() - entry.lastUsed < config.getValidationInterval()) {
+            return true;
+        }
+        try (Statement statement = entry.connection.createStatement()) {
+            statement.execute(validationQuery);
+            return true;
+        } catch (SQLException e) {
+            validationFailures.incrementAndGet();
+            logger.warn("Pooled connection {} failed validation, it will be replaced: {}", entry.connection, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Called by {@link PooledConnection#close()}.
+     */
+    void release(PoolEntry entry) {
+        active.decrementAndGet();
+        try {
+            if (closed || size.get() > config.getMaxSize() || !reset(entry.connection)) {
+                destroy(entry);
+            } else {
+                entry.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            }
+        } finally {
+            permits.release();
+        }
+        if (closed) { // pool could be closed while this entry was being returned
+            closeIdle();
+        }
+    }
+
+    /**
+     * Rolls back a transaction left open and restores auto-commit, so that the next borrower does not inherit it.
+     *
+     * @return false if the connection is broken and should be discarded
+     */
+    private boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.warn("Failed to reset pooled connection {}, it will be closed: {}", connection, e.getMessage());
+            return false;
+        }
+    }
+
+    private void destroy(PoolEntry entry) {
+        size.decrementAndGet();
+        destroyed.incrementAndGet();
+        closeQuietly(entry.connection);
+    }
+
+    private void closeIdle() {
+        PoolEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    /**
+     * Closes idle connections above <code>minSize</code> which were not used for <code>idleTimeout</code>
+     * milliseconds. Least recently used connections are at the tail of the deque, so it stops at the first
+     * connection used recently.
+     */
+    void evict() {
+        if (config.getIdleTimeout() == 0) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() - config.getIdleTimeout();
+        PoolEntry entry;
+        while (size.get() > config.getMinSize() && (entry = idle.pollLast()) != null) {
+            if (entry.lastUsed > deadline) {
+                idle.offerLast(entry);
+                break;
+            }
+            destroy(entry);
+        }
+    }
+
+    private void scheduleEviction() {
+        if (config.getIdleTimeout() == 0) {
+            return;
+        }
+        long interval = Math.max(config.getIdleTimeout() / 2, 1000);
+        synchronized (ConnectionPool.class) {
+            if (evictor == null) {
+                evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override public Thread newThread(Runnable runnable) {
+                        Thread res = new Thread(runnable);
+                        res.setDaemon(true);
+                        res.setName("Connection pool evictor thread");
+                        return res;
+                    }
+                });
+            }
+            evictionTask = evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    try {
+                        evict();
+                    } catch (Exception e) {
+                        logger.warn("Failed to evict idle connections from pool " + name, e);
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops handing out new ones. Connections in use are closed when returned.
+     */
+    public void close() {
+        closed = true;
+        pools.values().remove(this);
+        synchronized (ConnectionPool.class) {
+            if (evictionTask != null) {
+                evictionTask.cancel(false);
+            }
+        }
+        closeIdle();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return number of open physical connections, idle and in use.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return number of connections in use.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return number of idle connections.
+     */
+    public int getIdle() {
+        return Math.max(size.get() - active.get(), 0);
+    }
+
+    /**
+     * @return number of threads waiting for a connection right now.
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return total number of connections handed out.
+     */
+    public long getBorrowCount() {
+        return borrows.get();
+    }
+
+    /**
+     * @return number of times a thread had to wait for a connection because all of them were in use.
+     */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /**
+     * @return total time in milliseconds threads spent waiting for connections.
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    /**
+     * @return number of times a thread gave up waiting for a connection after <code>acquireTimeout</code>.
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return number of physical connections opened.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return number of physical connections closed, because they were idle, broken or the pool was closed.
+     */
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    /**
+     * @return number of connections which failed validation.
+     */
+    public long getValidationFailureCount() {
+        return validationFailures.get();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+            "name=" + name +
+            ", size=" + getSize() +
+            ", active=" + getActive() +
+            ", waiting=" + getWaiting() +
+            ", maxSize=" + config.getMaxSize() +
+            '}';
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections are opened with credentials of the pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Physical connection with pool bookkeeping.
+     */
+    static final class PoolEntry {
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PoolEntry(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
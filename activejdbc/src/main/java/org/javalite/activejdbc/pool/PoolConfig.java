@@ -0,0 +1,194 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.pool;
+
+import org.javalite.common.Convert;
+
+import java.util.Properties;
+
+
+/**
+ * Settings of a {@link ConnectionPool}. In <code>database.properties</code> the pool is turned on for an environment
+ * by setting <code>pool.maxSize</code>, all other settings are optional:
+ * <pre>
+ * development.driver=com.mysql.jdbc.Driver
+ * development.username=john
+ * development.password=pwd
+ * development.url=jdbc:mysql://localhost/proj_dev
+ * development.pool.maxSize=20
+ * development.pool.minSize=2
+ * development.pool.acquireTimeout=5000
+ * development.pool.idleTimeout=300000
+ * </pre>
+ * <ul>
+ *     <li><code>pool.maxSize</code> - maximum number of connections, required</li>
+ *     <li><code>pool.minSize</code> - number of idle connections kept open, default 0</li>
+ *     <li><code>pool.acquireTimeout</code> - milliseconds to wait for a free connection before giving up, default 30000</li>
+ *     <li><code>pool.idleTimeout</code> - milliseconds after which an idle connection above <code>minSize</code> is closed,
+ *     0 to never close, default 600000</li>
+ *     <li><code>pool.validate</code> - check that a connection is alive before handing it out, default true</li>
+ *     <li><code>pool.validationInterval</code> - connections used less than this many milliseconds ago are not checked,
+ *     default 1000</li>
+ *     <li><code>pool.validationQuery</code> - query used to check connections, default is provided by
+ *     the {@link org.javalite.activejdbc.dialects.Dialect} of the database</li>
+ * </ul>
+ */
+public class PoolConfig {
+
+    private int maxSize;
+    private int minSize;
+    private long acquireTimeout = 30000;
+    private long idleTimeout = 600000;
+    private boolean validate = true;
+    private long validationInterval = 1000;
+    private String validationQuery;
+
+    /**
+     * @param maxSize maximum number of connections in pool.
+     */
+    public PoolConfig(int maxSize) {
+        maxSize(maxSize);
+    }
+
+    /**
+     * Reads pool settings from properties.
+     *
+     * @param props properties, usually content of <code>database.properties</code>
+     * @param prefix prefix of pool properties, such as "development.pool."
+     * @return pool settings, or <code>null</code> if <code>maxSize</code> is not set.
+     */
+    public static PoolConfig fromProperties(Properties props, String prefix) {
+        String maxSize = props.getProperty(prefix + "maxSize");
+        if (maxSize == null) {
+            return null;
+        }
+        PoolConfig config = new PoolConfig(Convert.toInteger(maxSize.trim()));
+        String value;
+        if ((value = props.getProperty(prefix + "minSize")) != null) {
+            config.minSize(Convert.toInteger(value.trim()));
+        }
+        if ((value = props.getProperty(prefix + "acquireTimeout")) != null) {
+            config.acquireTimeout(Convert.toLong(value.trim()));
+        }
+        if ((value = props.getProperty(prefix + "idleTimeout")) != null) {
+            config.idleTimeout(Convert.toLong(value.trim()));
+        }
+        if ((value = props.getProperty(prefix + "validate")) != null) {
+            config.validate(Convert.toBoolean(value.trim()));
+        }
+        if ((value = props.getProperty(prefix + "validationInterval")) != null) {
+            config.validationInterval(Convert.toLong(value.trim()));
+        }
+        if ((value = props.getProperty(prefix + "validationQuery")) != null) {
+            config.validationQuery(value.trim());
+        }
+        return config;
+    }
+
+    public PoolConfig maxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public PoolConfig minSize(int minSize) {
+        if (minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("minSize must be between 0 and maxSize");
+        }
+        this.minSize = minSize;
+        return this;
+    }
+
+    public PoolConfig acquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = notNegative("acquireTimeout", acquireTimeout);
+        return this;
+    }
+
+    public PoolConfig idleTimeout(long idleTimeout) {
+        this.idleTimeout = notNegative("idleTimeout", idleTimeout);
+        return this;
+    }
+
+    public PoolConfig validate(boolean validate) {
+        this.validate = validate;
+        return this;
+    }
+
+    public PoolConfig validationInterval(long validationInterval) {
+        this.validationInterval = notNegative("validationInterval", validationInterval);
+        return this;
+    }
+
+    /**
+     * @param validationQuery query overriding the one provided by dialect, <code>null</code> to use dialect's.
+     */
+    public PoolConfig validationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+        return this;
+    }
+
+    private static long notNegative(String name, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " cannot be negative");
+        }
+        return value;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public boolean isValidate() {
+        return validate;
+    }
+
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+            "maxSize=" + maxSize +
+            ", minSize=" + minSize +
+            ", acquireTimeout=" + acquireTimeout +
+            ", idleTimeout=" + idleTimeout +
+            ", validate=" + validate +
+            ", validationInterval=" + validationInterval +
+            ", validationQuery=" + validationQuery +
+            '}';
+    }
+}
@@ -0,0 +1,218 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents statistical information on loading of one model class: where the time goes when
+ * a {@link org.javalite.activejdbc.LazyList} is loaded. Time is split into:
+ * <ul>
+ *     <li><code>execute</code> - executing a query until a result set is returned</li>
+ *     <li><code>fetch</code> - iterating the result set and reading values from it</li>
+ *     <li><code>hydrate</code> - creating model instances and setting their attributes, including
+ *     driver type conversions of a dialect</li>
+ *     <li><code>callbacks</code> - <code>afterLoad()</code> callbacks</li>
+ *     <li><code>includes</code> - loading of included associations, see
+ *     {@link org.javalite.activejdbc.LazyList#include(Class[])}</li>
+ * </ul>
+ * Retained bytes is a rough estimate of memory held by attributes of created instances.
+ * <p></p>
+ * Instances of this class are collected by {@link StatisticsQueue} and are safe to update from multiple threads.
+ */
+public class HydrationStats {
+
+    private final String modelClass;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong instances = new AtomicLong();
+    private final AtomicLong executeNanos = new AtomicLong();
+    private final AtomicLong fetchNanos = new AtomicLong();
+    private final AtomicLong hydrateNanos = new AtomicLong();
+    private final AtomicLong callbackNanos = new AtomicLong();
+    private final AtomicLong includesNanos = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public HydrationStats(String modelClass) {
+        this.modelClass = modelClass;
+    }
+
+    /**
+     * Adds results of one query.
+     *
+     * @param executeNanos time in nanoseconds it took to execute the query
+     * @param fetchNanos time in nanoseconds spent iterating the result set, excluding time spent creating instances
+     * @param rows number of rows read from result set
+     */
+    public void addQuery(long executeNanos, long fetchNanos, long rows) {
+        queries.incrementAndGet();
+        this.executeNanos.addAndGet(executeNanos);
+        this.fetchNanos.addAndGet(fetchNanos);
+        this.rows.addAndGet(rows);
+    }
+
+    /**
+     * Adds one created instance.
+     *
+     * @param hydrateNanos time in nanoseconds it took to create and populate the instance
+     * @param callbackNanos time in nanoseconds spent in <code>afterLoad()</code> callbacks
+     * @param bytes estimated size of instance attributes, see {@link #estimateSize(Map)}
+     */
+    public void addInstance(long hydrateNanos, long callbackNanos, long bytes) {
+        instances.incrementAndGet();
+        this.hydrateNanos.addAndGet(hydrateNanos);
+        this.callbackNanos.addAndGet(callbackNanos);
+        this.bytes.addAndGet(bytes);
+    }
+
+    /**
+     * @param includesNanos time in nanoseconds spent loading included associations
+     */
+    public void addIncludesTime(long includesNanos) {
+        this.includesNanos.addAndGet(includesNanos);
+    }
+
+    /**
+     * Very rough estimate of memory retained by a map of attributes, assuming compressed references.
+     * It is meant to compare model classes to each other, not to measure exact heap usage.
+     *
+     * @param attributes attributes of a model
+     * @return estimated number of bytes
+     */
+    public static long estimateSize(Map<String, Object> attributes) {
+        long size = 48; // map itself with its table
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            size += 40; // entry and table slot, keys are shared column labels
+            size += estimateSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Date) {
+            return value instanceof BigDecimal ? 40 : 24;
+        } else {
+            return 64;
+        }
+    }
+
+    public String getModelClass() {
+        return modelClass;
+    }
+
+    /**
+     * @return number of queries executed to load instances of this model
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * @return number of rows read from result sets
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return number of created instances
+     */
+    public long getInstances() {
+        return instances.get();
+    }
+
+    /**
+     * @return time in milliseconds spent executing queries
+     */
+    public long getExecuteTime() {
+        return millis(executeNanos);
+    }
+
+    /**
+     * @return time in milliseconds spent iterating result sets
+     */
+    public long getFetchTime() {
+        return millis(fetchNanos);
+    }
+
+    /**
+     * @return time in milliseconds spent creating and populating instances
+     */
+    public long getHydrateTime() {
+        return millis(hydrateNanos);
+    }
+
+    /**
+     * @return time in milliseconds spent in <code>afterLoad()</code> callbacks
+     */
+    public long getCallbackTime() {
+        return millis(callbackNanos);
+    }
+
+    /**
+     * @return time in milliseconds spent loading included associations
+     */
+    public long getIncludesTime() {
+        return millis(includesNanos);
+    }
+
+    /**
+     * @return sum of all times in milliseconds
+     */
+    public long getTotalTime() {
+        return TimeUnit.NANOSECONDS.toMillis(executeNanos.get() + fetchNanos.get() + hydrateNanos.get()
+                + callbackNanos.get() + includesNanos.get());
+    }
+
+    /**
+     * @return estimated number of bytes retained by attributes of created instances
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    private static long millis(AtomicLong nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "HydrationStats{" +
+            "modelClass='" + modelClass + '\'' +
+            ", queries=" + getQueries() +
+            ", rows=" + getRows() +
+            ", instances=" + getInstances() +
+            ", execute=" + getExecuteTime() +
+            ", fetch=" + getFetchTime() +
+            ", hydrate=" + getHydrateTime() +
+            ", callbacks=" + getCallbackTime() +
+            ", includes=" + getIncludesTime() +
+            ", bytes=" + getBytes() +
+            '}';
+    }
+}
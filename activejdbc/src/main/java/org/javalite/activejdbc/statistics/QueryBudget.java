@@ -0,0 +1,91 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+/**
+ * Limits applied to queries tracked by a {@link QueryTracker}. A value of 0 means "no limit".
+ *
+ * @see QueryTracker
+ */
+public class QueryBudget {
+
+    /**
+     * Default number of executions of the same query after which the query is reported as a suspected N+1.
+     */
+    public static final int DEFAULT_REPEAT_THRESHOLD = 5;
+
+    private final int maxQueries;
+    private final long maxDbTime;
+    private final int repeatThreshold;
+    private final boolean failFast;
+
+    /**
+     * @param maxQueries maximum number of queries allowed, 0 for no limit.
+     * @param maxDbTime maximum time in milliseconds spent in DB, 0 for no limit.
+     * @param repeatThreshold number of executions of the same query (ignoring parameter values) after which
+     *                        it is reported as a suspected N+1, 0 to turn the detection off.
+     * @param failFast true to throw {@link org.javalite.activejdbc.QueryBudgetExceededException} when the budget is
+     *                 exceeded, false to only report it.
+     */
+    public QueryBudget(int maxQueries, long maxDbTime, int repeatThreshold, boolean failFast) {
+        if (maxQueries < 0 || maxDbTime < 0 || repeatThreshold < 0) {
+            throw new IllegalArgumentException("budget values cannot be negative");
+        }
+        this.maxQueries = maxQueries;
+        this.maxDbTime = maxDbTime;
+        this.repeatThreshold = repeatThreshold;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Budget without limits, which only detects repeated queries.
+     */
+    public QueryBudget() {
+        this(0, 0, DEFAULT_REPEAT_THRESHOLD, false);
+    }
+
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
+    public long getMaxDbTime() {
+        return maxDbTime;
+    }
+
+    public int getRepeatThreshold() {
+        return repeatThreshold;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    boolean exceeded(int queryCount, long dbTime) {
+        return (maxQueries > 0 && queryCount > maxQueries) || (maxDbTime > 0 && dbTime > maxDbTime);
+    }
+
+    @Override
+    public String toString() {
+        return "QueryBudget{" +
+            "maxQueries=" + maxQueries +
+            ", maxDbTime=" + maxDbTime +
+            ", repeatThreshold=" + repeatThreshold +
+            ", failFast=" + failFast +
+            '}';
+    }
+}
@@ -27,15 +27,26 @@ public class QueryExecutionEvent {
     private static final Pattern IN_PATTERN = Pattern.compile("(IN|in)\\s*\\(.*\\)", Pattern.CASE_INSENSITIVE);
     private static final Pattern OFFSET_PATTERN = Pattern.compile("(offset|OFFSET|Offset)\\s*\\d*", Pattern.CASE_INSENSITIVE);
 
-    private String query;
+    private final String query;
     private final long time;
 
     public QueryExecutionEvent(String query, long time) {
-        this.query = IN_PATTERN.matcher(query).replaceAll("IN (...)");
-        this.query = OFFSET_PATTERN.matcher(this.query).replaceAll("offset ...");
+        this.query = normalize(query);
         this.time = time;
     }
 
+    /**
+     * Collapses parts of a query that vary from execution to execution (IN lists, offsets),
+     * so that executions of the same query are reported together.
+     *
+     * @param query query text
+     * @return normalized query
+     */
+    static String normalize(String query) {
+        String normalized = IN_PATTERN.matcher(query).replaceAll("IN (...)");
+        return OFFSET_PATTERN.matcher(normalized).replaceAll("offset ...");
+    }
+
     public String getQuery() {
         return query;
     }
@@ -0,0 +1,242 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import org.javalite.activejdbc.QueryBudgetExceededException;
+
+import java.util.*;
+
+/**
+ * Tracks all queries executed on the current thread between {@link #start(QueryBudget)} and {@link #stop()}.
+ * Usually this is one web request, see {@link org.javalite.activejdbc.web.QueryTrackingFilter}.
+ * <p></p>
+ * The same query executed over and over with different parameters is a typical sign of an N+1 problem:
+ * calling <code>parent()</code>, <code>getAll()</code> or <code>get()</code> inside a loop over a list of models.
+ * Queries repeated more than {@link QueryBudget#getRepeatThreshold()} times are reported as suspects, together
+ * with the association method and the application code that executed them.
+ * <pre>
+ *     QueryTracker.start(new QueryBudget(100, 500, 5, false));
+ *     try {
+ *         ...
+ *     } finally {
+ *         logger.info(QueryTracker.stop().summary());
+ *     }
+ * </pre>
+ *
+ * Instances of this class are not thread safe, they are confined to the thread that started them.
+ */
+public class QueryTracker {
+
+    private static final ThreadLocal<QueryTracker> trackerTL = new ThreadLocal<QueryTracker>();
+    private static final String PACKAGE = "org.javalite.activejdbc.";
+
+    private final QueryBudget budget;
+    private final long startTime = System.currentTimeMillis();
+    private final Map<String, QueryStats> statsByQuery = new HashMap<String, QueryStats>();
+    private final Map<String, String> originsByQuery = new HashMap<String, String>();
+    private int queryCount;
+    private long dbTime;
+    private boolean budgetExceeded;
+
+    QueryTracker(QueryBudget budget) {
+        this.budget = budget == null ? new QueryBudget() : budget;
+    }
+
+    /**
+     * Starts tracking queries on the current thread, replacing a tracker that might have been left on it.
+     *
+     * @param budget limits for this tracker, <code>null</code> for no limits.
+     * @return new tracker attached to current thread.
+     */
+    public static QueryTracker start(QueryBudget budget) {
+        QueryTracker tracker = new QueryTracker(budget);
+        trackerTL.set(tracker);
+        return tracker;
+    }
+
+    /**
+     * @return tracker attached to current thread, or <code>null</code> if queries are not tracked.
+     */
+    public static QueryTracker current() {
+        return trackerTL.get();
+    }
+
+    /**
+     * Stops tracking queries on the current thread.
+     *
+     * @return tracker that was attached to current thread, or <code>null</code> if there was none.
+     */
+    public static QueryTracker stop() {
+        QueryTracker tracker = trackerTL.get();
+        trackerTL.remove();
+        return tracker;
+    }
+
+    /**
+     * Records execution of a query. This method is called by the framework.
+     *
+     * @param query query text
+     * @param time time in milliseconds it took to execute the query
+     * @throws QueryBudgetExceededException if budget is exceeded and configured to fail fast.
+     */
+    public void onQuery(String query, long time) {
+        queryCount++;
+        dbTime += time;
+
+        String normalized = QueryExecutionEvent.normalize(query);
+        QueryStats stats = statsByQuery.get(normalized);
+        if (stats == null) {
+            statsByQuery.put(normalized, stats = new QueryStats(normalized));
+        }
+        stats.addQueryTime(time);
+
+        // stack is only captured once per suspect query, so that tracking stays cheap
+        if (budget.getRepeatThreshold() > 0 && stats.getCount() == budget.getRepeatThreshold()) {
+            originsByQuery.put(normalized, findOrigin(new Throwable().getStackTrace()));
+        }
+
+        if (budget.exceeded(queryCount, dbTime)) {
+            budgetExceeded = true;
+            if (budget.isFailFast()) {
+                throw new QueryBudgetExceededException("Query budget exceeded: " + queryCount + " queries, "
+                        + dbTime + " milliseconds in DB, " + budget + ", last query: " + query);
+            }
+        }
+    }
+
+    /**
+     * Describes where a repeated query came from: association method (if any) and first frame of application code.
+     */
+    static String findOrigin(StackTraceElement[] stack) {
+        String via = null;
+        String caller = null;
+        for (StackTraceElement element : stack) {
+            String className = element.getClassName();
+            if (className.startsWith(PACKAGE)) {
+                if (via == null && className.equals(PACKAGE + "Model")) {
+                    String method = element.getMethodName();
+                    if (method.equals("parent") || method.equals("getAll") || method.equals("get")) {
+                        via = method + "()";
+                    }
+                } else if (via == null && className.equals(PACKAGE + "LazyList") && element.getMethodName().equals("hydrate")) {
+                    via = "LazyList";
+                }
+            } else if (!className.startsWith("java.") && !className.startsWith("javax.") && !className.startsWith("sun.")) {
+                caller = element.toString();
+                break;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        if (via != null) {
+            sb.append(via).append(" from ");
+        }
+        return sb.append(caller == null ? "unknown" : caller).toString();
+    }
+
+    /**
+     * @return number of queries executed since this tracker was started.
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return time in milliseconds spent executing queries since this tracker was started.
+     */
+    public long getDbTime() {
+        return dbTime;
+    }
+
+    /**
+     * @return time in milliseconds since this tracker was started.
+     */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    public QueryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return true if the budget was exceeded at least once.
+     */
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    /**
+     * @return statistics of all distinct queries, sorted by total time.
+     */
+    public List<QueryStats> getQueries() {
+        List<QueryStats> res = new ArrayList<QueryStats>(statsByQuery.values());
+        Collections.sort(res, SortBy.total.getComparator());
+        return res;
+    }
+
+    /**
+     * @return statistics of queries executed at least {@link QueryBudget#getRepeatThreshold()} times,
+     * sorted by count. These are suspected N+1 queries.
+     */
+    public List<QueryStats> getRepeatedQueries() {
+        List<QueryStats> res = new ArrayList<QueryStats>();
+        for (String query : originsByQuery.keySet()) {
+            res.add(statsByQuery.get(query));
+        }
+        Collections.sort(res, SortBy.count.getComparator());
+        return res;
+    }
+
+    /**
+     * @param query normalized query as returned by {@link QueryStats#getQuery()}
+     * @return where a repeated query was executed from, or <code>null</code> if this query is not a suspect.
+     */
+    public String getOrigin(String query) {
+        return originsByQuery.get(query);
+    }
+
+    /**
+     * @return true if there are suspected N+1 queries or the budget was exceeded.
+     */
+    public boolean hasProblems() {
+        return budgetExceeded || !originsByQuery.isEmpty();
+    }
+
+    /**
+     * @return one line summary of tracked queries.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder().append(queryCount).append(" queries, ").append(dbTime)
+                .append(" milliseconds in DB, ").append(getElapsedTime()).append(" milliseconds total");
+        if (budgetExceeded) {
+            sb.append(", budget exceeded: ").append(budget);
+        }
+        List<QueryStats> repeated = getRepeatedQueries();
+        if (!repeated.isEmpty()) {
+            sb.append(", suspected N+1: ");
+            for (int i = 0; i < repeated.size(); i++) {
+                QueryStats stats = repeated.get(i);
+                if (i > 0) { sb.append("; "); }
+                sb.append('"').append(stats.getQuery()).append("\" x ").append(stats.getCount())
+                        .append(", ").append(stats.getTotal()).append(" milliseconds, via ")
+                        .append(originsByQuery.get(stats.getQuery()));
+            }
+        }
+        return sb.toString();
+    }
+}
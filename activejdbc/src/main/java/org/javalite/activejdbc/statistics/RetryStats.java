@@ -0,0 +1,88 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts transactions run with automatic retries, and how often they had to be retried. Transactions retried
+ * often point to contention hot spots.
+ *
+ * @see org.javalite.activejdbc.DB#retryStats()
+ */
+public class RetryStats {
+
+    private final String name;
+    private final AtomicLong transactions = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public RetryStats(String name) {
+        this.name = name;
+    }
+
+    public void addTransaction() {
+        transactions.incrementAndGet();
+    }
+
+    public void addRetry() {
+        retries.incrementAndGet();
+    }
+
+    public void addExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    /**
+     * @return name of retry policy, or class name of the task if the policy has no name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of transactions run, retries are not counted.
+     */
+    public long getTransactions() {
+        return transactions.get();
+    }
+
+    /**
+     * @return number of times a transaction was rolled back and run again.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of transactions which failed with a retryable error after all attempts.
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryStats{" +
+            "name='" + name + '\'' +
+            ", transactions=" + transactions +
+            ", retries=" + retries +
+            ", exhausted=" + exhausted +
+            '}';
+    }
+}
@@ -0,0 +1,70 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+/**
+ * Snapshot of the cache of prepared insert statements kept per connection.
+ *
+ * @see org.javalite.activejdbc.DB#statementCacheStats()
+ */
+public class StatementCacheStats {
+
+    private final int connections;
+    private final int statements;
+    private final long hits;
+    private final long misses;
+
+    public StatementCacheStats(int connections, int statements, long hits, long misses) {
+        this.connections = connections;
+        this.statements = statements;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @return number of connections having cached statements
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return number of statements currently cached for all connections
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCacheStats{" +
+            "connections=" + connections +
+            ", statements=" + statements +
+            ", hits=" + hits +
+            ", misses=" + misses +
+            '}';
+    }
+}
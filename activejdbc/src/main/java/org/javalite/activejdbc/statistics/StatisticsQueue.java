@@ -22,7 +22,10 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -45,6 +48,8 @@ public class StatisticsQueue {
 
     private final ExecutorService worker;
     private final ConcurrentMap<String, QueryStats> statsByQuery = new ConcurrentHashMap<String, QueryStats>();
+    private final ConcurrentMap<String, HydrationStats> statsByModel = new ConcurrentHashMap<String, HydrationStats>();
+    private final ConcurrentMap<String, TimeHistogram> histogramsByType = new ConcurrentHashMap<String, TimeHistogram>();
 
     private volatile boolean paused;
 
@@ -102,6 +107,13 @@ public class StatisticsQueue {
                         statsByQuery.put(event.getQuery(), queryStats = new QueryStats(event.getQuery()));
                     }
                     queryStats.addQueryTime(event.getTime());
+
+                    String type = typeOf(event.getQuery());
+                    TimeHistogram histogram = histogramsByType.get(type);
+                    if (histogram == null) {
+                        histogramsByType.put(type, histogram = new TimeHistogram(type));
+                    }
+                    histogram.record(event.getTime());
                 }
             });
         }else{
@@ -109,8 +121,53 @@ public class StatisticsQueue {
         }
     }
 
+    /**
+     * Returns hydration statistics of a model class, creating them if needed. Unlike query execution events,
+     * hydration statistics are updated directly by the loading thread, because these are only a few atomic additions.
+     *
+     * @param modelClass model class
+     * @return hydration statistics to update, or <code>null</code> if the queue is paused.
+     */
+    public HydrationStats hydrationStatsOf(Class modelClass) {
+        if (paused) {
+            return null;
+        }
+        HydrationStats stats = statsByModel.get(modelClass.getName());
+        if (stats == null) {
+            HydrationStats existing = statsByModel.putIfAbsent(modelClass.getName(), stats = new HydrationStats(modelClass.getName()));
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    private static final String[] TYPES = {"select", "insert", "update", "delete"};
+
+    /**
+     * @return first keyword of a query if it is one of select, insert, update or delete, "other" otherwise
+     */
+    static String typeOf(String query) {
+        String trimmed = query.trim();
+        for (String type : TYPES) {
+            if (trimmed.regionMatches(true, 0, type, 0, type.length())) {
+                return type;
+            }
+        }
+        return "other";
+    }
+
     public void reset() {
         statsByQuery.clear();
+        statsByModel.clear();
+        histogramsByType.clear();
+    }
+
+    /**
+     * @return histograms of query execution times keyed by type of query: select, insert, update, delete or other
+     */
+    public Map<String, TimeHistogram> getLatencyHistograms() {
+        return new HashMap<String, TimeHistogram>(histogramsByType);
     }
 
     /**
@@ -131,4 +188,22 @@ public class StatisticsQueue {
         Collections.sort(res, sortBy.getComparator());
         return res;
     }
+
+    /**
+     * Produces a report of time spent loading models: executing queries, fetching rows, hydrating instances,
+     * running callbacks and loading includes.
+     *
+     * @return hydration statistics of all model classes loaded so far, sorted by total time, largest first.
+     */
+    public List<HydrationStats> getHydrationReport() {
+        List<HydrationStats> res = new ArrayList<HydrationStats>(statsByModel.values());
+        Collections.sort(res, new Comparator<HydrationStats>() {
+            @Override public int compare(HydrationStats o1, HydrationStats o2) {
+                long t1 = o1.getTotalTime();
+                long t2 = o2.getTotalTime();
+                return t1 > t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        return res;
+    }
 }
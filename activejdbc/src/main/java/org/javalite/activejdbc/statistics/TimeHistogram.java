@@ -0,0 +1,121 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of times in milliseconds, such as query execution times or times connections were held by threads.
+ * Buckets are cumulative upper bounds, the last bucket counts all values.
+ * <p></p>
+ * Instances of this class are safe to update from multiple threads.
+ */
+public class TimeHistogram {
+
+    private static final long[] BOUNDS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE};
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param name name of what is measured, for instance a DB name
+     */
+    public TimeHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param time time in milliseconds
+     */
+    public void record(long time) {
+        int i = 0;
+        while (time > BOUNDS[i]) {
+            i++;
+        }
+        counts.incrementAndGet(i);
+        total.addAndGet(time);
+        long currentMax;
+        while (time > (currentMax = max.get()) && !max.compareAndSet(currentMax, time)) {
+            // retry
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return upper bounds of buckets in milliseconds, the last one is <code>Long.MAX_VALUE</code>
+     */
+    public long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @return cumulative counts for each bucket: number of values not greater than corresponding bound
+     */
+    public long[] getCumulativeCounts() {
+        long[] res = new long[BOUNDS.length];
+        long sum = 0;
+        for (int i = 0; i < res.length; i++) {
+            res[i] = sum += counts.get(i);
+        }
+        return res;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getCount() {
+        long sum = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            sum += counts.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * @return sum of all recorded times in milliseconds
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return longest recorded time in milliseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TimeHistogram{name='").append(name)
+                .append("', count=").append(getCount()).append(", total=").append(getTotal())
+                .append(", max=").append(getMax()).append(", buckets={");
+        long[] cumulative = getCumulativeCounts();
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (i > 0) { sb.append(", "); }
+            sb.append(BOUNDS[i] == Long.MAX_VALUE ? "inf" : String.valueOf(BOUNDS[i])).append('=').append(cumulative[i]);
+        }
+        return sb.append("}}").toString();
+    }
+}
@@ -21,12 +21,18 @@ package org.javalite.activejdbc.web;
 import java.io.IOException;
 import javax.servlet.*;
 import org.javalite.activejdbc.Base;
+import org.javalite.common.Convert;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
 
 /**
  * This is a filter for opening a connection before and closing connection after servlet.
+ * <p></p>
+ * With init parameter <code>lazy</code> set to <code>true</code> the connection is taken from the data source only
+ * when the request uses it for the first time, and the transaction is started only before the first write,
+ * see {@link Base#openLazy(String)}. Requests which never touch the database, such as static assets or responses
+ * served from cache, do not take a connection from the pool at all.
  * Example of configuration:
 
  * <pre>
@@ -38,6 +44,10 @@ import org.slf4j.Logger;
             &lt;param-name&gt;jndiName&lt;/param-name&gt;
             &lt;param-value&gt;jdbc/test_jndi&lt;/param-value&gt;
         &lt;/init-param&gt;
+        &lt;init-param&gt;
+            &lt;param-name&gt;lazy&lt;/param-name&gt;
+            &lt;param-value&gt;true&lt;/param-value&gt;
+        &lt;/init-param&gt;
     &lt;/filter&gt;
  * </pre>
  * @author Igor Polevoy
@@ -47,6 +57,7 @@ public class ActiveJdbcFilter implements Filter {
     private static final Logger logger = LoggerFactory.getLogger(ActiveJdbcFilter.class);
 
     private String jndiName;
+    private boolean lazy;
 
     @Override
     public void init(FilterConfig config) throws ServletException {
@@ -54,13 +65,18 @@ public class ActiveJdbcFilter implements Filter {
         jndiName = config.getInitParameter("jndiName");
         if(jndiName == null)
             throw new IllegalArgumentException("must provide jndiName parameter for this filter");
+        lazy = Convert.toBoolean(config.getInitParameter("lazy"));
     }
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
         long before = System.currentTimeMillis();
         try{
-            Base.open(jndiName);
+            if (lazy) {
+                Base.openLazy(jndiName);
+            } else {
+                Base.open(jndiName);
+            }
             Base.openTransaction();
             chain.doFilter(req, resp);
             Base.commitTransaction();
@@ -0,0 +1,309 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.web;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.javalite.activejdbc.AsyncExecutor;
+import org.javalite.activejdbc.ConnectionHold;
+import org.javalite.activejdbc.ConnectionsAccess;
+import org.javalite.activejdbc.DB;
+import org.javalite.activejdbc.Registry;
+import org.javalite.activejdbc.cache.CacheStats;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.pool.ConnectionPool;
+import org.javalite.activejdbc.statistics.RetryStats;
+import org.javalite.activejdbc.statistics.StatementCacheStats;
+import org.javalite.activejdbc.statistics.TimeHistogram;
+
+
+/**
+ * Renders ActiveJDBC metrics in Prometheus text exposition format:
+ * <ul>
+ *     <li><code>activejdbc_query_duration_seconds</code> - histogram of query execution times by type of query
+ *     (select, insert, update, delete, other), only if <code>collectStatistics=true</code>
+ *     is set in <code>activejdbc.properties</code></li>
+ *     <li><code>activejdbc_cache_hits_total</code>, <code>activejdbc_cache_misses_total</code>,
+ *     <code>activejdbc_cache_hit_ratio</code> - query cache lookups by table</li>
+ *     <li><code>activejdbc_statement_cache_*</code> - cache of prepared insert statements</li>
+ *     <li><code>activejdbc_connection_hold_seconds</code> - histogram of times connections were held by threads,
+ *     <code>activejdbc_connections_held</code> - connections attached to threads right now, by connection name</li>
+ *     <li><code>activejdbc_pool_*</code> - size, usage and waits of built-in connection pools, by JDBC URL</li>
+ *     <li><code>activejdbc_async_*</code> - tasks of {@link AsyncExecutor}, if it was used</li>
+ *     <li><code>activejdbc_transaction_*</code> - transactions run with automatic retries, and their retries,
+ *     by name of retry policy</li>
+ * </ul>
+ * The output is rendered into a buffer reused by each request thread, so that frequent scrapes do not create
+ * much garbage. Example of configuration:
+ * <pre>
+
+     &lt;servlet&gt;
+        &lt;servlet-name&gt;metrics&lt;/servlet-name&gt;
+        &lt;servlet-class&gt;org.javalite.activejdbc.web.MetricsServlet&lt;/servlet-class&gt;
+    &lt;/servlet&gt;
+    &lt;servlet-mapping&gt;
+        &lt;servlet-name&gt;metrics&lt;/servlet-name&gt;
+        &lt;url-pattern&gt;/metrics&lt;/url-pattern&gt;
+    &lt;/servlet-mapping&gt;
+ * </pre>
+ */
+public class MetricsServlet extends HttpServlet {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] LE_LABELS;
+    static {
+        long[] bounds = new TimeHistogram("").getBounds();
+        LE_LABELS = new String[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            StringBuilder sb = new StringBuilder("le=\"");
+            if (bounds[i] == Long.MAX_VALUE) {
+                sb.append("+Inf");
+            } else {
+                appendScaled(sb, bounds[i], 3);
+            }
+            LE_LABELS[i] = sb.append('"').toString();
+        }
+    }
+
+    private final ThreadLocal<Buffers> buffersTL = new ThreadLocal<Buffers>() {
+        @Override protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private static class Buffers {
+        private final StringBuilder text = new StringBuilder(16 * 1024);
+        private final char[] chunk = new char[4096];
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        Buffers buffers = buffersTL.get();
+        StringBuilder sb = buffers.text;
+        sb.setLength(0);
+        render(sb);
+
+        resp.setContentType(CONTENT_TYPE);
+        Writer writer = resp.getWriter();
+        for (int start = 0; start < sb.length(); start += buffers.chunk.length) {
+            int end = Math.min(sb.length(), start + buffers.chunk.length);
+            sb.getChars(start, end, buffers.chunk, 0);
+            writer.write(buffers.chunk, 0, end - start);
+        }
+        writer.flush();
+    }
+
+    void render(StringBuilder sb) {
+        if (Registry.instance().getConfiguration().collectStatistics()) {
+            header(sb, "activejdbc_query_duration_seconds", "histogram", "Query execution time.");
+            for (Map.Entry<String, TimeHistogram> entry : Registry.instance().getStatisticsQueue().getLatencyHistograms().entrySet()) {
+                histogram(sb, "activejdbc_query_duration_seconds", "type", entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<String, CacheStats> cacheStats = QueryCache.instance().getStats();
+        header(sb, "activejdbc_cache_hits_total", "counter", "Query cache hits.");
+        for (CacheStats stats : cacheStats.values()) {
+            sample(sb, "activejdbc_cache_hits_total", "table", stats.getTableName()).append(stats.getHits()).append('\n');
+        }
+        header(sb, "activejdbc_cache_misses_total", "counter", "Query cache misses.");
+        for (CacheStats stats : cacheStats.values()) {
+            sample(sb, "activejdbc_cache_misses_total", "table", stats.getTableName()).append(stats.getMisses()).append('\n');
+        }
+        header(sb, "activejdbc_cache_hit_ratio", "gauge", "Share of query cache lookups that were hits.");
+        for (CacheStats stats : cacheStats.values()) {
+            appendScaled(sample(sb, "activejdbc_cache_hit_ratio", "table", stats.getTableName()),
+                    Math.round(stats.getHitRatio() * 10000), 4).append('\n');
+        }
+
+        StatementCacheStats statementStats = DB.statementCacheStats();
+        header(sb, "activejdbc_statement_cache_hits_total", "counter", "Statement cache hits.");
+        sb.append("activejdbc_statement_cache_hits_total ").append(statementStats.getHits()).append('\n');
+        header(sb, "activejdbc_statement_cache_misses_total", "counter", "Statement cache misses.");
+        sb.append("activejdbc_statement_cache_misses_total ").append(statementStats.getMisses()).append('\n');
+        header(sb, "activejdbc_statement_cache_statements", "gauge", "Statements cached for all connections.");
+        sb.append("activejdbc_statement_cache_statements ").append(statementStats.getStatements()).append('\n');
+        header(sb, "activejdbc_statement_cache_connections", "gauge", "Connections having cached statements.");
+        sb.append("activejdbc_statement_cache_connections ").append(statementStats.getConnections()).append('\n');
+
+        header(sb, "activejdbc_connection_hold_seconds", "histogram", "Time connections were held by threads.");
+        for (Map.Entry<String, TimeHistogram> entry : ConnectionsAccess.getHoldTimeHistograms().entrySet()) {
+            histogram(sb, "activejdbc_connection_hold_seconds", "db", entry.getKey(), entry.getValue());
+        }
+        header(sb, "activejdbc_connections_held", "gauge", "Connections attached to threads.");
+        renderHeldConnections(sb);
+
+        Collection<ConnectionPool> pools = ConnectionPool.getPools();
+        if (!pools.isEmpty()) {
+            renderPools(sb, pools);
+        }
+        AsyncExecutor async = AsyncExecutor.peek();
+        if (async != null) {
+            renderAsync(sb, async);
+        }
+        Collection<RetryStats> retryStats = DB.retryStats();
+        if (!retryStats.isEmpty()) {
+            renderRetries(sb, retryStats);
+        }
+    }
+
+    private void renderRetries(StringBuilder sb, Collection<RetryStats> retryStats) {
+        header(sb, "activejdbc_transaction_total", "counter", "Transactions run with automatic retries.");
+        for (RetryStats stats : retryStats) {
+            sample(sb, "activejdbc_transaction_total", "name", stats.getName()).append(stats.getTransactions()).append('\n');
+        }
+        header(sb, "activejdbc_transaction_retries_total", "counter", "Transactions rolled back and run again.");
+        for (RetryStats stats : retryStats) {
+            sample(sb, "activejdbc_transaction_retries_total", "name", stats.getName()).append(stats.getRetries()).append('\n');
+        }
+        header(sb, "activejdbc_transaction_retries_exhausted_total", "counter", "Transactions which failed after all attempts.");
+        for (RetryStats stats : retryStats) {
+            sample(sb, "activejdbc_transaction_retries_exhausted_total", "name", stats.getName()).append(stats.getExhausted()).append('\n');
+        }
+    }
+
+    private void renderAsync(StringBuilder sb, AsyncExecutor async) {
+        header(sb, "activejdbc_async_tasks_total", "counter", "Asynchronous tasks by result.");
+        sample(sb, "activejdbc_async_tasks_total", "result", "completed").append(async.getCompletedCount()).append('\n');
+        sample(sb, "activejdbc_async_tasks_total", "result", "failed").append(async.getFailedCount()).append('\n');
+        header(sb, "activejdbc_async_blocked_total", "counter", "Times submitting code waited for a concurrency limit or queue.");
+        sb.append("activejdbc_async_blocked_total ").append(async.getBlockedCount()).append('\n');
+        header(sb, "activejdbc_async_queue_size", "gauge", "Asynchronous tasks waiting for a thread.");
+        sb.append("activejdbc_async_queue_size ").append(async.getQueueSize()).append('\n');
+        header(sb, "activejdbc_async_active_threads", "gauge", "Threads running asynchronous tasks.");
+        sb.append("activejdbc_async_active_threads ").append(async.getActiveCount()).append('\n');
+        header(sb, "activejdbc_async_in_flight", "gauge", "Unfinished asynchronous tasks by database.");
+        for (Map.Entry<String, Integer> entry : async.getInFlight().entrySet()) {
+            sample(sb, "activejdbc_async_in_flight", "db", entry.getKey()).append(entry.getValue()).append('\n');
+        }
+    }
+
+    private void renderPools(StringBuilder sb, Collection<ConnectionPool> pools) {
+        header(sb, "activejdbc_pool_connections_active", "gauge", "Pooled connections in use.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_connections_active", "pool", pool.getName()).append(pool.getActive()).append('\n');
+        }
+        header(sb, "activejdbc_pool_connections_idle", "gauge", "Idle pooled connections.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_connections_idle", "pool", pool.getName()).append(pool.getIdle()).append('\n');
+        }
+        header(sb, "activejdbc_pool_connections_max", "gauge", "Maximum size of pool.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_connections_max", "pool", pool.getName()).append(pool.getConfig().getMaxSize()).append('\n');
+        }
+        header(sb, "activejdbc_pool_waiting_threads", "gauge", "Threads waiting for a pooled connection.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_waiting_threads", "pool", pool.getName()).append(pool.getWaiting()).append('\n');
+        }
+        header(sb, "activejdbc_pool_borrows_total", "counter", "Connections handed out by pool.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_borrows_total", "pool", pool.getName()).append(pool.getBorrowCount()).append('\n');
+        }
+        header(sb, "activejdbc_pool_waits_total", "counter", "Borrows which had to wait for a connection.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_waits_total", "pool", pool.getName()).append(pool.getWaitCount()).append('\n');
+        }
+        header(sb, "activejdbc_pool_wait_seconds_total", "counter", "Time spent waiting for pooled connections.");
+        for (ConnectionPool pool : pools) {
+            appendScaled(sample(sb, "activejdbc_pool_wait_seconds_total", "pool", pool.getName()), pool.getWaitTime(), 3).append('\n');
+        }
+        header(sb, "activejdbc_pool_timeouts_total", "counter", "Borrows which timed out waiting for a connection.");
+        for (ConnectionPool pool : pools) {
+            sample(sb, "activejdbc_pool_timeouts_total", "pool", pool.getName()).append(pool.getTimeoutCount()).append('\n');
+        }
+    }
+
+    private void renderHeldConnections(StringBuilder sb) {
+        // only a handful of connection names exist, no need for a map
+        List<ConnectionHold> holds = ConnectionsAccess.getConnectionHolds();
+        boolean[] done = new boolean[holds.size()];
+        for (int i = 0; i < holds.size(); i++) {
+            if (done[i]) { continue; }
+            String dbName = holds.get(i).getDbName();
+            int count = 0;
+            for (int j = i; j < holds.size(); j++) {
+                if (!done[j] && holds.get(j).getDbName().equals(dbName)) {
+                    done[j] = true;
+                    count++;
+                }
+            }
+            sample(sb, "activejdbc_connections_held", "db", dbName).append(count).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder sb, String name, String label, String value, TimeHistogram histogram) {
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(name).append("_bucket{").append(label).append("=\"");
+            escape(sb, value).append("\",").append(LE_LABELS[i]).append("} ").append(counts[i]).append('\n');
+        }
+        sb.append(name).append("_sum{").append(label).append("=\"");
+        appendScaled(escape(sb, value).append("\"} "), histogram.getTotal(), 3).append('\n');
+        sb.append(name).append("_count{").append(label).append("=\"");
+        escape(sb, value).append("\"} ").append(counts[counts.length - 1]).append('\n');
+    }
+
+    private static StringBuilder sample(StringBuilder sb, String name, String label, String value) {
+        sb.append(name).append('{').append(label).append("=\"");
+        return escape(sb, value).append("\"} ");
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Appends <code>value / 10^scale</code> as a decimal without creating intermediate strings.
+     */
+    static StringBuilder appendScaled(StringBuilder sb, long value, int scale) {
+        long divisor = 1;
+        for (int i = 0; i < scale; i++) {
+            divisor *= 10;
+        }
+        long fraction = value % divisor;
+        sb.append(value / divisor).append('.');
+        for (long d = divisor / 10; d > 1 && fraction < d; d /= 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
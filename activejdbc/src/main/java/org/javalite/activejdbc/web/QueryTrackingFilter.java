@@ -0,0 +1,113 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.web;
+
+
+import java.io.IOException;
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+
+import org.javalite.activejdbc.LogFilter;
+import org.javalite.activejdbc.statistics.QueryBudget;
+import org.javalite.activejdbc.statistics.QueryTracker;
+import org.javalite.common.Convert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * This filter tracks all queries executed while processing a request and logs a summary after the request is done.
+ * Requests with suspected N+1 queries (the same query executed over and over) or requests that exceeded
+ * the query budget are logged with level WARN, all others with level INFO.
+ * <p></p>
+ * All parameters are optional:
+ * <ul>
+ *     <li><code>maxQueries</code> - maximum number of queries per request, default 0 (no limit)</li>
+ *     <li><code>maxDbTime</code> - maximum time in milliseconds spent in DB per request, default 0 (no limit)</li>
+ *     <li><code>repeatThreshold</code> - how many executions of the same query make it an N+1 suspect, default 5</li>
+ *     <li><code>failFast</code> - true to throw {@link org.javalite.activejdbc.QueryBudgetExceededException}
+ *     as soon as the budget is exceeded, default false</li>
+ * </ul>
+ * Map this filter before {@link ActiveJdbcFilter} (or any filter opening connections), example of configuration:
+
+ * <pre>
+
+     &lt;filter&gt;
+        &lt;filter-name&gt;queryTrackingFilter&lt;/filter-name&gt;
+        &lt;filter-class&gt;org.javalite.activejdbc.web.QueryTrackingFilter&lt;/filter-class&gt;
+        &lt;init-param&gt;
+            &lt;param-name&gt;maxQueries&lt;/param-name&gt;
+            &lt;param-value&gt;100&lt;/param-value&gt;
+        &lt;/init-param&gt;
+    &lt;/filter&gt;
+ * </pre>
+ *
+ * @see QueryTracker
+ */
+public class QueryTrackingFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryTrackingFilter.class);
+
+    /**
+     * Name of request attribute the {@link QueryTracker} of current request is stored under.
+     */
+    public static final String TRACKER_ATTRIBUTE = QueryTracker.class.getName();
+
+    private QueryBudget budget;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        budget = new QueryBudget(
+                intParameter(config, "maxQueries", 0),
+                intParameter(config, "maxDbTime", 0),
+                intParameter(config, "repeatThreshold", QueryBudget.DEFAULT_REPEAT_THRESHOLD),
+                Convert.toBoolean(config.getInitParameter("failFast")));
+    }
+
+    private int intParameter(FilterConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("parameter " + name + " of this filter must be a number, got: " + value);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException, ServletException {
+        QueryTracker tracker = QueryTracker.start(budget);
+        req.setAttribute(TRACKER_ATTRIBUTE, tracker);
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            QueryTracker.stop();
+            String path = req instanceof HttpServletRequest ? ((HttpServletRequest) req).getRequestURI() : "request";
+            if (tracker.hasProblems()) {
+                logger.warn("{}: {}", path, tracker.summary());
+            } else if (logger.isInfoEnabled()) {
+                LogFilter.log(logger, "{}: {}", path, tracker.summary());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {}
+}
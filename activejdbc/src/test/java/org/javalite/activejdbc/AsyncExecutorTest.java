@@ -0,0 +1,111 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.mock.MockDataSource;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Account;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+
+public class AsyncExecutorTest extends ActiveJDBCTest {
+
+    @Before
+    public void setDataSource() {
+        AsyncExecutor.instance().setDataSource(DB.DEFAULT_NAME, new MockDataSource());
+    }
+
+    @After
+    public void resetExecutor() {
+        AsyncExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldRunTaskWithSeparateConnection() throws Exception {
+        final Connection connection = Base.connection();
+        Future<Boolean> separate = Base.async(new Callable<Boolean>() {
+            @Override public Boolean call() {
+                return Base.connection() != connection;
+            }
+        });
+        the(separate.get()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldFindAndCountAsynchronously() throws Exception {
+        long count = Account.count();
+        Future<Long> asyncCount = Account.countAsync();
+        Future<LazyList<Account>> accounts = Account.findAsync("id > ?", 0);
+        a(asyncCount.get()).shouldBeEqual(count);
+        a(accounts.get().size()).shouldBeEqual((int) count);
+    }
+
+    @Test
+    public void shouldReportFailedTasks() throws InterruptedException {
+        long failed = AsyncExecutor.instance().getFailedCount();
+        Future<Object> future = Base.async(new Callable<Object>() {
+            @Override public Object call() {
+                throw new IllegalStateException("boom");
+            }
+        });
+        ExecutionException e = null;
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            e = ex;
+        }
+        a(e.getCause()).shouldBeA(IllegalStateException.class);
+        a(AsyncExecutor.instance().getFailedCount()).shouldBeEqual(failed + 1);
+    }
+
+    @Test
+    public void shouldKeepPermitOfCancelledTaskUntilItFinishes() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        Future<Object> future = Base.async(new Callable<Object>() {
+            @Override public Object call() {
+                started.countDown();
+                while (finish.getCount() > 0) {
+                    try {
+                        finish.await();
+                    } catch (InterruptedException ignore) {
+                        // keeps running after cancel(true), as a statement ignoring interrupts would
+                    }
+                }
+                return null;
+            }
+        });
+        started.await();
+        future.cancel(true);
+        a(AsyncExecutor.instance().getInFlight().get(DB.DEFAULT_NAME)).shouldBeEqual(1);
+
+        finish.countDown();
+        for (int i = 0; i < 100 && AsyncExecutor.instance().getInFlight().get(DB.DEFAULT_NAME) > 0; i++) {
+            Thread.sleep(10);
+        }
+        a(AsyncExecutor.instance().getInFlight().get(DB.DEFAULT_NAME)).shouldBeEqual(0);
+    }
+}
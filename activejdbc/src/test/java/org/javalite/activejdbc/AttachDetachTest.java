@@ -1,5 +1,6 @@
 package org.javalite.activejdbc;
 
+import org.javalite.activejdbc.statistics.TimeHistogram;
 import org.junit.Test;
 
 import java.sql.Connection;
@@ -8,6 +9,7 @@ import java.sql.SQLException;
 
 import static org.javalite.activejdbc.test.JdbcProperties.*;
 import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
 
 /**
  * @author  igor on 7/16/14.
@@ -31,4 +33,47 @@ public class AttachDetachTest {
         }
 
     }
+
+    @Test
+    public void shouldTrackConnectionHoldTime() throws SQLException, ClassNotFoundException {
+        Class.forName(driver());
+        Connection connection = DriverManager.getConnection(url(), user(), password());
+        TimeHistogram histogram = ConnectionsAccess.getHoldTimeHistograms().get("default");
+        long count = histogram == null ? 0 : histogram.getCount();
+
+        Base.attach(connection);
+        boolean found = false;
+        for (ConnectionHold hold : ConnectionsAccess.getConnectionHolds()) {
+            if (hold.getDbName().equals("default") && hold.getThreadName().equals(Thread.currentThread().getName())) {
+                found = true;
+                the(hold.isThreadAlive()).shouldBeTrue();
+            }
+        }
+        the(found).shouldBeTrue();
+
+        Base.detach().close();
+        for (ConnectionHold hold : ConnectionsAccess.getConnectionHolds()) {
+            the(hold.getThreadName().equals(Thread.currentThread().getName()) && hold.getDbName().equals("default")).shouldBeFalse();
+        }
+        a(ConnectionsAccess.getHoldTimeHistograms().get("default").getCount()).shouldBeEqual(count + 1);
+    }
+
+    @Test
+    public void shouldDropHoldsOfDeadThreads() throws Exception {
+        Class.forName(driver());
+        final Connection connection = DriverManager.getConnection(url(), user(), password());
+        Thread thread = new Thread(new Runnable() {
+            @Override public void run() {
+                Base.attach(connection);
+            }
+        });
+        thread.setName("thread leaking connection");
+        thread.start();
+        thread.join();
+
+        for (ConnectionHold hold : ConnectionsAccess.getConnectionHolds()) {
+            the(hold.getThreadName()).shouldNotBeEqual("thread leaking connection");
+        }
+        connection.close();
+    }
 }
@@ -1,5 +1,8 @@
 package org.javalite.activejdbc;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.javalite.activejdbc.test.ActiveJDBCTest;
@@ -92,4 +95,19 @@ public class CompositePkTest extends ActiveJDBCTest {
 		dev = Developer.createIt("first_name", "Johnny", "last_name", "Cash2", "email", "j.cash@spam.org", "address", "123 Pine St");
 		the(dev.isNew()).shouldBeFalse();
     }
+
+    @Test
+    public void shouldFindByManyCompositeKeys() {
+        Developer.createIt("first_name", "Johnny", "last_name", "Cash", "email", "j.cash@spam.org", "address", "123 Pine St");
+        Developer.createIt("first_name", "John", "last_name", "Smith", "email", "smithy@spam.org", "address", "bla");
+        List<Object> smith = Arrays.<Object>asList("John", "Smith", "smithy@spam.org");
+        List<Object> cash = Arrays.<Object>asList("Johnny", "Cash", "j.cash@spam.org");
+        List<Object> missing = Arrays.<Object>asList("John", "Cash", "j.cash@spam.org");
+
+        Map<List<?>, Developer> developers = Developer.findAllByCompositeKeys(Arrays.asList(smith, missing, cash, smith));
+        the(developers.size()).shouldBeEqual(2);
+        the(developers.keySet().iterator().next()).shouldBeEqual(smith);
+        the(developers.get(cash).get("address")).shouldBeEqual("123 Pine St");
+        the(developers.containsKey(missing)).shouldBeFalse();
+    }
 }
@@ -0,0 +1,92 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.test_models.Temperature;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class ConnectionContextTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldPropagateConnectionToExecutorTask() throws Exception {
+        deleteAndPopulateTable("people");
+        Person.createIt("name", "John", "last_name", "Doe"); // not committed, only visible on the same connection
+        final long count = Person.count();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            a(executor.submit(ConnectionContext.wrap(new Callable<Long>() {
+                @Override public Long call() {
+                    return Person.count();
+                }
+            })).get()).shouldBeEqual(count);
+
+            // nothing was left attached to executor thread
+            the(executor.submit(new Callable<Boolean>() {
+                @Override public Boolean call() {
+                    return Base.hasConnection();
+                }
+            }).get()).shouldBeFalse();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRestorePreviousContextAfterScopedTask() throws Exception {
+        Boolean hasConnection = new ConnectionContext().call(new Callable<Boolean>() {
+            @Override public Boolean call() {
+                return Base.hasConnection();
+            }
+        });
+        the(hasConnection).shouldBeFalse();
+        the(Base.hasConnection()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldPropagateShardTableNames() throws Exception {
+        Temperature.metaModel().setShardTableName("shard1_temperatures");
+        try {
+            final ConnectionContext context = ConnectionContext.current().fork();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                a(executor.submit(new Callable<String>() {
+                    @Override public String call() throws Exception {
+                        return context.call(new Callable<String>() {
+                            @Override public String call() {
+                                return Temperature.metaModel().getTableName();
+                            }
+                        });
+                    }
+                }).get()).shouldBeEqual("shard1_temperatures");
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            Temperature.metaModel().clearShardTableName();
+        }
+        a(Temperature.metaModel().getTableName()).shouldBeEqual("temperatures");
+    }
+}
@@ -19,6 +19,8 @@ package org.javalite.activejdbc;
 
 import static org.javalite.activejdbc.test.JdbcProperties.*;
 
+import org.javalite.activejdbc.pool.ConnectionPool;
+import org.javalite.activejdbc.pool.PoolConfig;
 import org.junit.Test;
 
 import javax.naming.NamingException;
@@ -48,6 +50,21 @@ public class ConnectionSpecTest  {
         jdbcWithSpec(spec);
     }
 
+    @Test
+    public void testPooledJdbc() {
+        ConnectionJdbcSpec spec = new ConnectionJdbcSpec(driver(), url(), user(), password(), new PoolConfig(2));
+        jdbcWithSpec(spec);
+        ConnectionPool pool = ConnectionPool.of(spec);
+        try {
+            a(pool.getSize()).shouldBeEqual(1);
+            a(pool.getActive()).shouldBeEqual(0);
+            jdbcWithSpec(spec);
+            a(pool.getCreatedCount()).shouldBeEqual(1);
+        } finally {
+            pool.close();
+        }
+    }
+
     private void jdbcWithSpec(ConnectionSpec spec){
     
         DB db = new DB("default");
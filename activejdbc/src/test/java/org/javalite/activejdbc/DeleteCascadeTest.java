@@ -8,6 +8,12 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -213,4 +219,134 @@ public class DeleteCascadeTest extends ActiveJDBCTest{
         //sub-classification did not get deleted
         a(SubClassification.count()).shouldBeEqual(2);
     }
+
+    @Test
+    public void shouldFireCallbacksOfDeletedChildren() {
+        deleteAndPopulateTables("users", "addresses", "rooms");
+        final List<Object> deletedRooms = new ArrayList<Object>();
+        Registry.instance().modelRegistryOf(Room.class).callbackWith(new CallbackAdapter() {
+            @Override
+            public void afterDelete(Model m) {
+                deletedRooms.add(m.getId());
+                a(m).shouldBe("frozen");
+            }
+        });
+        try {
+            User.findById(1).deleteCascade();
+            a(deletedRooms.size()).shouldBeEqual(2);
+            a(Room.count()).shouldBeEqual(2);
+
+            deletedRooms.clear();
+            User.findById(2).deleteCascade(false);
+            a(deletedRooms.size()).shouldBeEqual(0);
+            a(User.count()).shouldBeEqual(0);
+            a(Room.count()).shouldBeEqual(0);
+        } finally {
+            Registry.instance().modelRegistryOf(Room.class).callbacks().clear();
+        }
+    }
+
+    @Test
+    public void shouldDeleteEachTableWithOneStatement() {
+        deleteAndPopulateTables("users", "addresses", "rooms");
+        List<String> deletes = recordDeletes(new Runnable() {
+            @Override public void run() {
+                User.findById(1).deleteCascade(false);
+            }
+        });
+        // 1 user, 3 addresses and 2 rooms, deleted by one statement per table
+        a(deletes.size()).shouldBeEqual(3);
+        a(deletes.get(0)).shouldContain("DELETE FROM rooms");
+        a(deletes.get(1)).shouldContain("DELETE FROM addresses");
+        a(deletes.get(2)).shouldContain("DELETE FROM users");
+        a(Address.count()).shouldBeEqual(4);
+        a(Room.count()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldDeleteMany2ManyAndPolymorphicChildrenWithoutCallbacks() {
+        deleteAndPopulateTables("doctors", "patients", "doctors_patients", "prescriptions", "comments");
+        Registry.cacheManager().flush(CacheEvent.ALL);
+        Prescription.findById(1).add(Comment.create("author", "doctor", "content", "live live to the fullest"));
+        Prescription.findById(5).add(Comment.create("author", "doctor", "content", "make cancer go away!"));
+
+        List<String> deletes = recordDeletes(new Runnable() {
+            @Override public void run() {
+                Doctor.findById(1).deleteCascade(false);
+            }
+        });
+        // links of doctors 1 and 2 and patients 1 and 2, doctor 2 reached again through patient 1,
+        // prescriptions of patients 1 and 2, their comments, patients 1 and 2, and doctor 1
+        a(deletes.size()).shouldBeEqual(8);
+        a(countOf(deletes, "DELETE FROM doctors_patients")).shouldBeEqual(3);
+        a(countOf(deletes, "DELETE FROM doctors ")).shouldBeEqual(2);
+        a(countOf(deletes, "DELETE FROM comments")).shouldBeEqual(1);
+        a(countOf(deletes, "DELETE FROM prescriptions")).shouldBeEqual(1);
+        a(countOf(deletes, "DELETE FROM patients")).shouldBeEqual(1);
+
+        a(Doctor.count()).shouldBeEqual(1);
+        a(Patient.count()).shouldBeEqual(1);
+        a(DoctorsPatients.count()).shouldBeEqual(1);
+        a(Prescription.count()).shouldBeEqual(1);
+        a(Comment.count()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldDeleteManyTargetsInChunks() {
+        deleteAndPopulateTables("doctors", "patients", "doctors_patients", "prescriptions");
+        Registry.cacheManager().flush(CacheEvent.ALL);
+        int extraPatients = ModelDelegate.MAX_KEYS_PER_QUERY + 10;
+        for (int i = 0; i < extraPatients; i++) {
+            Patient patient = Patient.createIt("first_name", "patient", "last_name", "#" + i);
+            DoctorsPatients.createIt("doctor_id", 3, "patient_id", patient.getId());
+        }
+
+        List<String> deletes = recordDeletes(new Runnable() {
+            @Override public void run() {
+                Doctor.findById(3).deleteCascade(false);
+            }
+        });
+        a(countOf(deletes, "DELETE FROM patients")).shouldBeEqual(2);
+        a(Patient.count()).shouldBeEqual(2);
+        a(DoctorsPatients.count()).shouldBeEqual(3);
+        a(Prescription.count()).shouldBeEqual(4);
+    }
+
+    /**
+     * Runs an action with a connection recording executed <code>DELETE</code> statements.
+     */
+    private List<String> recordDeletes(Runnable action) {
+        final List<String> deletes = new ArrayList<String>();
+        final Connection connection = Base.detach();
+        Base.attach((Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class[]{Connection.class}, new InvocationHandler() {
+                    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("prepareStatement") && ((String) args[0]).startsWith("DELETE")) {
+                            deletes.add((String) args[0]);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                }));
+        try {
+            action.run();
+        } finally {
+            Base.detach();
+            Base.attach(connection);
+        }
+        return deletes;
+    }
+
+    private static int countOf(List<String> statements, String prefix) {
+        int count = 0;
+        for (String statement : statements) {
+            if (statement.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class FindByIdsTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldFindByIdsInOrderOfIds() {
+        deleteAndPopulateTable("people");
+        Map<Object, Person> people = Person.findByIds(Arrays.<Object>asList(3, 1, 100, 3L, null, 2));
+        a(people.size()).shouldBeEqual(3);
+        a(new ArrayList<Object>(people.keySet())).shouldBeEqual(Arrays.<Object>asList(3, 1, 2));
+        a(people.get(1).get("name")).shouldBeEqual("John");
+        a(people.get(3).get("name")).shouldBeEqual("Muhammad");
+    }
+
+    @Test
+    public void shouldFindByIdsOfOtherTypes() {
+        deleteAndPopulateTable("people");
+        Map<Object, Person> people = Person.findByIds(Arrays.<Object>asList("2", new BigDecimal("3.0"), 4.0));
+        a(people.size()).shouldBeEqual(3);
+        a(people.get("2").get("name")).shouldBeEqual("Leylah");
+        a(people.get(4.0).getId()).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldFindManyIds() {
+        deleteFromTable("people");
+        List<Object> ids = new ArrayList<Object>();
+        for (int i = 0; i < 600; i++) {
+            ids.add(Person.createIt("name", "Name" + i, "last_name", "Last" + i).getId());
+        }
+        Map<Object, Person> people = Person.findByIds(ids);
+        a(people.size()).shouldBeEqual(600);
+        a(people.get(ids.get(599)).get("name")).shouldBeEqual("Name599");
+    }
+
+    @Test
+    public void shouldFindByIdsFromCacheOfFindById() {
+        deleteAndPopulateTable("people");
+        Person john = Person.findById(1);
+        Map<Object, Person> people = Person.findByIds(Arrays.asList(1, 2));
+        a(people.get(1)).shouldBeTheSameAs(john);
+        a(Person.findById(2)).shouldBeTheSameAs(people.get(2));
+    }
+
+    @Test
+    public void shouldRefreshAll() {
+        deleteAndPopulateTable("people");
+        List<Person> people = Person.findAll().orderBy("id");
+        Base.exec("UPDATE people SET last_name = ?", "Updated");
+        Model.refreshAll(people);
+        for (Person person : people) {
+            a(person.get("last_name")).shouldBeEqual("Updated");
+        }
+
+        Base.exec("DELETE FROM people WHERE id = ?", 4);
+        try {
+            Model.refreshAll(people);
+            throw new AssertionError("expected StaleModelException");
+        } catch (StaleModelException expected) {}
+    }
+}
@@ -0,0 +1,88 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.mock.MockDataSource;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+public class LazyConnectionTest extends JSpecSupport {
+
+    private final CountingDataSource dataSource = new CountingDataSource();
+
+    @After
+    public void after() {
+        if (Base.hasConnection()) {
+            Base.close();
+        }
+    }
+
+    @Test
+    public void shouldNotAcquireUnusedConnection() {
+        Base.openLazy(dataSource);
+        Base.openTransaction();
+        Base.commitTransaction();
+        Base.close();
+        a(dataSource.count).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldAcquireOnFirstUseAndStartTransactionOnFirstWrite() throws SQLException {
+        Base.openLazy(dataSource);
+        Base.openTransaction();
+        the(Base.connection().getAutoCommit()).shouldBeFalse();
+        the(((LazyConnection) Base.connection()).isAcquired()).shouldBeFalse();
+
+        Base.connection().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY).close();
+        a(dataSource.count).shouldBeEqual(1);
+        the(dataSource.last.getAutoCommit()).shouldBeTrue();
+
+        Base.connection().createStatement().close();
+        the(dataSource.last.getAutoCommit()).shouldBeFalse();
+
+        Base.commitTransaction();
+        Base.close();
+        the(dataSource.last.isClosed()).shouldBeTrue();
+        a(dataSource.count).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldRecognizeReadOnlyQueries() {
+        the(LazyConnection.isReadOnly(" select * from people where id = ?")).shouldBeTrue();
+        the(LazyConnection.isReadOnly("SELECT * FROM people FOR UPDATE")).shouldBeFalse();
+        the(LazyConnection.isReadOnly("UPDATE people SET name = ?")).shouldBeFalse();
+        the(LazyConnection.isReadOnly("DELETE FROM people")).shouldBeFalse();
+    }
+
+    private static class CountingDataSource extends MockDataSource {
+        private int count;
+        private Connection last;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            count++;
+            return last = super.getConnection();
+        }
+    }
+}
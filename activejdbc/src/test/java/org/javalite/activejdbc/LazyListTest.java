@@ -4,6 +4,15 @@ import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.javalite.activejdbc.test_models.Person;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author Igor Polevoy: 3/23/12 3:40 PM
  */
@@ -25,4 +34,94 @@ public class LazyListTest extends ActiveJDBCTest {
         deleteAndPopulateTable("people");
         the(Person.findAll().equals(Person.findAll())).shouldBeTrue();
     }
+
+    @Test
+    public void shouldSelectColumns() {
+        a(Person.where("name = ?", "John").select("name", "last_name").toSql(false))
+                .shouldBeEqual("SELECT id, last_name, name FROM people WHERE name = ?");
+    }
+
+    @Test
+    public void shouldLoadMissingAttributesOfPartialModels() {
+        deleteAndPopulateTable("people");
+        List<Person> people = Person.where("last_name = ?", "Smith").select("name");
+        a(people.size()).shouldBeEqual(1);
+        Person person = people.get(0);
+        the(person.toMap().containsKey("last_name")).shouldBeFalse();
+        a(person.get("name")).shouldBeEqual("John");
+        a(person.get("last_name")).shouldBeEqual("Smith");
+        the(person.toMap().containsKey("dob")).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldNotShareCachedPartialModels() {
+        deleteAndPopulateTable("people");
+        Person person = (Person) Person.where("last_name = ?", "Smith").select("name").get(0);
+        a(person.get("last_name")).shouldBeEqual("Smith");
+
+        Person other = (Person) Person.where("last_name = ?", "Smith").select("name").get(0);
+        a(other).shouldNotBeTheSameAs(person);
+        the(other.toMap().containsKey("last_name")).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldLoadMissingAttributesOfDeserializedPartialModels() throws IOException, ClassNotFoundException {
+        deleteAndPopulateTable("people");
+        Person person = (Person) Person.where("last_name = ?", "Smith").select("name").get(0);
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bout);
+        out.writeObject(person);
+        out.flush();
+        Person copy = (Person) new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray())).readObject();
+
+        the(copy.toMap().containsKey("last_name")).shouldBeFalse();
+        a(copy.get("last_name")).shouldBeEqual("Smith");
+    }
+
+    @Test
+    public void shouldSaveOnlyChangedAttributesOfPartialModels() {
+        deleteAndPopulateTable("people");
+        Person person = (Person) Person.where("last_name = ?", "Smith").select("name").get(0);
+        person.set("name", "Jack");
+        person.saveIt();
+        person = Person.findFirst("last_name = ?", "Smith");
+        a(person.get("name")).shouldBeEqual("Jack");
+        a(person.getDate("dob")).shouldBeEqual(java.sql.Date.valueOf("1934-12-01"));
+    }
+
+    @Test
+    public void shouldReuseSqlOfSameQueryShape() {
+        String sql = Person.where("name = ?", "John").offset(20).limit(10).orderBy("name").toSql(false);
+        a(Person.where("name = ?", "Joe").offset(40).limit(10).orderBy("name").toSql(false)).shouldBeTheSameAs(sql);
+        a(Person.where("name = ?", "Joe").offset(40).limit(10).orderBy("name").toSql(true))
+                .shouldBeEqual(sql + ", with parameters: Joe, 10, 40");
+        a(Person.where("name = ?", "Joe").limit(10).orderBy("name").toSql(false)).shouldNotBeTheSameAs(sql);
+    }
+
+    @Test
+    public void shouldAggregateWithoutLoadingModels() {
+        deleteAndPopulateTable("people");
+        a(Person.findAll().sum("id").intValue()).shouldBeEqual(10);
+        a(Person.where("id > ?", 1).avg("id")).shouldBeEqual(3.0);
+        a(Person.where("id > ?", 2).min("name")).shouldBeEqual("Joe");
+        a(Person.findAll().max("dob")).shouldBeEqual(java.sql.Date.valueOf("1954-04-03"));
+        a(Person.findAll().countDistinct("last_name")).shouldBeEqual(4);
+        a(Person.where("id > ?", 100).sum("id")).shouldBeNull();
+    }
+
+    @Test
+    public void shouldAggregateGroups() {
+        deleteAndPopulateTable("people");
+        Person.createIt("name", "Jane", "last_name", "Smith");
+        Map<Object, Long> counts = Person.findAll().groupBy("last_name").count();
+        a(counts.size()).shouldBeEqual(4);
+        a(counts.get("Smith")).shouldBeEqual(2);
+        a(counts.get("Ali")).shouldBeEqual(1);
+        a(counts.keySet().iterator().next()).shouldBeEqual("Ali");
+
+        Map<Object, Object> names = Person.where("last_name = ?", "Smith").groupBy("last_name", "name").min("id");
+        a(names.size()).shouldBeEqual(2);
+        the(names.containsKey(Arrays.<Object>asList("Smith", "John"))).shouldBeTrue();
+    }
 }
@@ -156,4 +156,103 @@ public class PaginatorTest extends ActiveJDBCTest {
         }
         a(p.getCount()).shouldBeEqual(1004);
     }
+
+    @Test
+    public void shouldPageThroughKeyset(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, "item_description like ?", "%2%").keyset("item_number, id");
+        KeysetPage<Item> page = p.getPageAfter(null);
+        a(page.getItems().size()).shouldBeEqual(10);
+        a(page.getItems().get(0).get("item_number")).shouldBeEqual(2);
+        the(page.hasPrevious()).shouldBeFalse();
+        the(page.hasNext()).shouldBeTrue();
+
+        int pages = 1;
+        while (page.hasNext()) {
+            page = p.getPageAfter(page.getNextCursor());
+            pages++;
+        }
+        a(pages).shouldBeEqual(28);
+        a(page.getItems().size()).shouldBeEqual(1);
+        a(page.getItems().get(0).get("item_number")).shouldBeEqual(992);
+        the(page.hasPrevious()).shouldBeTrue();
+
+        KeysetPage<Item> previous = p.getPageBefore(page.getPreviousCursor());
+        a(previous.getItems().size()).shouldBeEqual(10);
+        a(previous.getItems().get(0).get("item_number")).shouldBeEqual(926);
+        a(previous.getItems().get(9).get("item_number")).shouldBeEqual(982);
+        the(previous.hasNext()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldPageThroughKeysetInDescendingOrder(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, "*").keyset("item_number DESC, id DESC");
+        KeysetPage<Item> page = p.getPageAfter(p.cursorOf((Item) Item.findFirst("item_number = ?", 991)));
+        a(page.getItems().size()).shouldBeEqual(10);
+        a(page.getItems().get(0).get("item_number")).shouldBeEqual(990);
+        a(page.getItems().get(9).get("item_number")).shouldBeEqual(981);
+
+        KeysetPage<Item> last = p.getPageBefore(null);
+        a(last.getItems().size()).shouldBeEqual(10);
+        a(last.getItems().get(0).get("item_number")).shouldBeEqual(10);
+        a(last.getItems().get(9).get("item_number")).shouldBeEqual(1);
+        the(last.hasNext()).shouldBeFalse();
+        the(last.hasPrevious()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldRejectInvalidCursors(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, "*").keyset("item_number");
+        Object[] values = Paginator.decodeCursor(Paginator.encodeCursor(new Object[]{5, "a", new java.sql.Timestamp(1000)}), 3);
+        a(values[0]).shouldBeEqual(5L);
+        a(values[1]).shouldBeEqual("a");
+        a(values[2]).shouldBeEqual(new java.sql.Timestamp(1000));
+
+        try {
+            p.getPageAfter("not a cursor");
+            throw new AssertionError("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotUseKeysetWithFullQuery(){
+        new Paginator<Item>(Item.class, 10, "select * from items").keyset("item_number");
+    }
+
+    @Test
+    public void should_not_recount_empty_results(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, true, "item_number < ?", 0);
+        a(p.getCount()).shouldBeEqual(0);
+        Item.createIt("item_number", -1, "item_description", "this is item # -1");
+        a(p.getCount()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldCountWithPage(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, "item_description like ?", "%2%")
+                .orderBy("item_number").countWithPage();
+        List<Item> items = p.getPage(28);
+        a(items.size()).shouldBeEqual(1);
+        a(items.get(0).get("item_number")).shouldBeEqual(992);
+        a(p.getCount()).shouldBeEqual(271);
+        the(p.hasNext()).shouldBeFalse();
+        the(p.isCountEstimated()).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldReadTotalCountFromPageAndNotFromModels(){
+        LazyList<Item> page = new LazyList<Item>(true, Registry.instance().getMetaModel(Item.class),
+                "SELECT items.*, 271 AS activejdbc_total_count FROM items WHERE item_description like ?", "%2%")
+                .totalCountColumn("activejdbc_total_count");
+        page.orderBy("item_number").limit(10);
+        a(page.size()).shouldBeEqual(10);
+        a(page.getTotalCount()).shouldBeEqual(271);
+        the(page.get(0).toMap().containsKey("activejdbc_total_count")).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldCountExactlyIfEstimatesAreNotSupported(){
+        Paginator<Item> p = new Paginator<Item>(Item.class, 10, "*").estimateCountAbove(100);
+        a(p.getCount()).shouldBeEqual(1000);
+        the(p.isCountEstimated()).shouldBeFalse();
+    }
 }
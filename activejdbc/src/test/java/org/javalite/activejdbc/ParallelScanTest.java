@@ -0,0 +1,113 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.mock.MockDataSource;
+import org.javalite.activejdbc.test_models.Temperature;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
+
+
+public class ParallelScanTest {
+
+    @Before
+    public void before() {
+        // ranges are scanned on separate connections, so data has to be committed
+        Base.open(driver(), url(), user(), password());
+        AsyncExecutor.instance().setDataSource(DB.DEFAULT_NAME, new MockDataSource());
+        Base.exec("delete from temperatures");
+        for (int temp = 1; temp <= 50; temp++) {
+            Base.exec("insert into temperatures (temp) values (?)", temp);
+        }
+    }
+
+    @After
+    public void after() {
+        Base.exec("delete from temperatures");
+        Base.close();
+    }
+
+    @Test
+    public void shouldScanEveryRecordOnce() {
+        final Set<Object> ids = Collections.synchronizedSet(new HashSet<Object>());
+        final AtomicInteger calls = new AtomicInteger();
+        ParallelScan scan = Temperature.parallelForEach(new ModelListener<Temperature>() {
+            @Override public void onModel(Temperature t) {
+                calls.incrementAndGet();
+                ids.add(t.getId());
+            }
+        }, 4, "temp > ?", 10);
+
+        a(scan.await()).shouldBeEqual(40L);
+        a(calls.get()).shouldBeEqual(40);
+        a(ids.size()).shouldBeEqual(40);
+        a(scan.getRangeCount()).shouldBeEqual(4);
+        a(scan.getCompletedRangeCount()).shouldBeEqual(4);
+        the(scan.isDone()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldScanEmptyTable() {
+        Base.exec("delete from temperatures");
+        ParallelScan scan = Temperature.parallelForEach(new ModelListener<Temperature>() {
+            @Override public void onModel(Temperature t) {}
+        }, 4, null);
+        a(scan.await()).shouldBeEqual(0L);
+        a(scan.getRangeCount()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldStopWhenCancelled() throws InterruptedException {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        ParallelScan scan = Temperature.parallelForEach(new ModelListener<Temperature>() {
+            @Override public void onModel(Temperature t) {
+                try {
+                    cancelled.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }, 10, "*");
+        scan.cancel();
+        cancelled.countDown();
+        scan.await();
+        the(scan.isCancelled()).shouldBeTrue();
+        // each scanning thread delivers at most the model it was blocked on
+        the(scan.getProcessedCount() <= 10).shouldBeTrue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRethrowListenerFailure() {
+        Temperature.parallelForEach(new ModelListener<Temperature>() {
+            @Override public void onModel(Temperature t) {
+                throw new IllegalStateException("boom");
+            }
+        }, 2, "*").await();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Account;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.javalite.activejdbc.test.JdbcProperties.db;
+
+
+public class QueryTimeoutTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldRunQueriesWithTimeout() {
+        deleteAndPopulateTable("people");
+        a(Person.findAll().queryTimeout(10).size()).shouldBeEqual(4);
+        a(Person.findAll().queryTimeout(0).size()).shouldBeEqual(4);
+        a(new DB(DB.DEFAULT_NAME).queryTimeout(10).firstCell("SELECT COUNT(*) FROM people")).shouldNotBeNull();
+        a(new Paginator<Person>(Person.class, 2, "*").queryTimeout(10).getCount()).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldFailStatementsAfterTransactionDeadline() throws InterruptedException {
+        Base.openTransaction(1);
+        Base.firstCell("SELECT COUNT(*) FROM people"); // not cached, unlike counts of Person
+        Thread.sleep(1100);
+        DBException e = null;
+        try {
+            Base.firstCell("SELECT COUNT(*) FROM people");
+        } catch (DBException ex) {
+            e = ex;
+        }
+        a(e).shouldNotBeNull();
+        a(e.getCause()).shouldBeA(SQLTimeoutException.class);
+
+        Base.rollbackTransaction(); // clears the deadline
+        a(Base.firstCell("SELECT COUNT(*) FROM people")).shouldNotBeNull();
+    }
+
+    @Test
+    public void shouldSetTimeoutOfStatements() {
+        final List<Integer> timeouts = Collections.synchronizedList(new ArrayList<Integer>());
+        Connection connection = Base.detach();
+        Base.attach(recordingTimeouts(connection, timeouts));
+        try {
+            new DB(DB.DEFAULT_NAME).queryTimeout(7).firstCell("SELECT COUNT(*) FROM people");
+            a(timeouts).shouldContain(7);
+
+            Account.findAll().queryTimeout(5).load();
+            a(timeouts).shouldContain(5);
+
+            timeouts.clear();
+            Base.openTransaction(30);
+            Base.firstCell("SELECT COUNT(*) FROM people");
+            the(timeouts.isEmpty()).shouldBeFalse();
+            int timeout = timeouts.get(timeouts.size() - 1);
+            the(timeout > 0 && timeout <= 30).shouldBeTrue(); // set to the time left before the deadline
+            Base.rollbackTransaction();
+        } finally {
+            Base.detach();
+            Base.attach(connection);
+        }
+    }
+
+    @Test
+    public void shouldCancelRunningStatementFromAnotherThread() throws InterruptedException {
+        if (!(db().equals("h2") || db().equals("mysql") || db().equals("postgresql") || db().equals("mssql"))) {
+            return; // query below needs information_schema
+        }
+        final ConnectionContext context = ConnectionContext.current();
+        final AtomicInteger cancelled = new AtomicInteger();
+        Thread canceller = new Thread(new Runnable() {
+            @Override public void run() {
+                try {
+                    while (true) { // until the statement is over, in case it is cancelled before it starts running
+                        Thread.sleep(20);
+                        cancelled.addAndGet(context.cancel());
+                    }
+                } catch (InterruptedException ignore) {
+                    // statement is over
+                }
+            }
+        });
+        canceller.start();
+        DBException e = null;
+        try {
+            Base.firstCell("SELECT COUNT(*) FROM information_schema.columns a, information_schema.columns b,"
+                    + " information_schema.columns c");
+        } catch (DBException ex) {
+            e = ex;
+        } finally {
+            canceller.interrupt();
+            canceller.join();
+        }
+        a(e).shouldNotBeNull();
+        the(cancelled.get() > 0).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldNotCancelWhenNothingIsRunning() {
+        Person.count();
+        a(ConnectionContext.current().cancel()).shouldBeEqual(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeTimeout() {
+        Person.findAll().queryTimeout(-1);
+    }
+
+    /**
+     * Wraps a connection so that timeouts set on its statements are added to a list.
+     */
+    private static Connection recordingTimeouts(final Connection connection, final List<Integer> timeouts) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class},
+                new InvocationHandler() {
+                    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object res = invokeOn(connection, method, args);
+                        if (res instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                            return recordingTimeouts((Statement) res, method.getReturnType(), timeouts);
+                        }
+                        return res;
+                    }
+                });
+    }
+
+    private static Object recordingTimeouts(final Statement statement, Class type, final List<Integer> timeouts) {
+        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class[]{type}, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("setQueryTimeout")) {
+                    timeouts.add((Integer) args[0]);
+                }
+                return invokeOn(statement, method, args);
+            }
+        });
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -41,4 +41,26 @@ public class RaceConditionTest extends ActiveJDBCTest{
             executor.shutdownNow();
         }
     }
+
+    @Test
+    public void shouldShareModelRegistryAndMetaModelAcrossThreads() throws ExecutionException, InterruptedException {
+        new Person(); // DB is initialized on this thread, other threads do not need a connection
+        final MetaModel metaModel = Registry.instance().getMetaModel(Person.class);
+        Callable<ModelRegistry> task = new Callable<ModelRegistry>() {
+            @Override
+            public ModelRegistry call() throws Exception {
+                the(Registry.instance().getMetaModel(Person.class)).shouldBeTheSameAs(metaModel);
+                return Registry.instance().modelRegistryOf(Person.class);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            ModelRegistry registry = Registry.instance().modelRegistryOf(Person.class);
+            for (Future<ModelRegistry> future : executor.invokeAll(Collections.nCopies(100, task))) {
+                the(future.get()).shouldBeTheSameAs(registry);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
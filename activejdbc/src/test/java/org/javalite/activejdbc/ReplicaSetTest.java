@@ -0,0 +1,102 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.mock.MockDataSource;
+import org.javalite.test.jspec.JSpecSupport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+
+
+public class ReplicaSetTest extends JSpecSupport {
+
+    private static final String NAME = "replicated";
+
+    private final CountingDataSource replica = new CountingDataSource();
+    private final DB db = new DB(NAME);
+
+    @After
+    public void after() {
+        ReplicaSet.register(NAME, null);
+        if (db.hasConnection()) {
+            db.close();
+        }
+    }
+
+    @Test
+    public void shouldReadFromReplicaUnlessInTransactionOrAfterWrite() throws SQLException {
+        ReplicaSet replicas = new ReplicaSet(Collections.singletonList(replica), ReplicaSet.Strategy.ROUND_ROBIN, 60000);
+        ReplicaSet.register(NAME, replicas);
+        db.open(driver(), url(), user(), password());
+        String query = DefaultDialect.of(Registry.instance().getConfiguration()
+                .getDialect(db.connection().getMetaData().getDatabaseProductName())).validationQuery();
+
+        db.firstCell(query);
+        db.firstCell(query);
+        a(replica.count).shouldBeEqual(1);
+        a(replicas.getReplicaReadCount()).shouldBeEqual(2);
+        the(DB.connections().containsKey(ReplicaSet.replicaName(NAME))).shouldBeTrue();
+
+        db.openTransaction();
+        db.firstCell(query);
+        a(replicas.getPrimaryReadCount()).shouldBeEqual(1);
+        db.commitTransaction();
+        db.connection().setAutoCommit(true);
+
+        db.firstCell(query); // sticky after commit
+        a(replicas.getPrimaryReadCount()).shouldBeEqual(2);
+        a(replicas.getReplicaReadCount()).shouldBeEqual(2);
+
+        db.close();
+        the(replica.last.isClosed()).shouldBeTrue();
+        the(DB.connections().containsKey(ReplicaSet.replicaName(NAME))).shouldBeFalse();
+    }
+
+    @Test
+    public void shouldTakeTurnsWithRoundRobin() throws SQLException {
+        CountingDataSource other = new CountingDataSource();
+        ReplicaSet.register(NAME, new ReplicaSet(Arrays.asList(replica, other), ReplicaSet.Strategy.ROUND_ROBIN, 0));
+        for (int i = 0; i < 4; i++) {
+            db.open(driver(), url(), user(), password());
+            db.firstCell(DefaultDialect.of(Registry.instance().getConfiguration()
+                    .getDialect(db.connection().getMetaData().getDatabaseProductName())).validationQuery());
+            db.close();
+        }
+        a(replica.count).shouldBeEqual(2);
+        a(other.count).shouldBeEqual(2);
+    }
+
+    private static class CountingDataSource extends MockDataSource {
+        private int count;
+        private Connection last;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            count++;
+            return last = super.getConnection();
+        }
+    }
+}
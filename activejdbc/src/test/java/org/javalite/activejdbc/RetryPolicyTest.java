@@ -0,0 +1,126 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.statistics.RetryStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
+
+
+public class RetryPolicyTest {
+
+    @Before
+    public void before() {
+        Base.open(driver(), url(), user(), password());
+    }
+
+    @After
+    public void after() {
+        Base.close();
+    }
+
+    private Callable<String> failing(final AtomicInteger attempts, final int failures, final Exception e) {
+        return new Callable<String>() {
+            @Override public String call() throws Exception {
+                if (attempts.incrementAndGet() <= failures) {
+                    throw e;
+                }
+                return "done";
+            }
+        };
+    }
+
+    private RetryStats stats(String name) {
+        for (RetryStats stats : DB.retryStats()) {
+            if (stats.getName().equals(name)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void shouldRetryDeadlocks() throws SQLException {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = Base.inTransaction(failing(attempts, 2, new DBException(new SQLException("deadlock", "40001"))),
+                new RetryPolicy().initialBackoff(1).name("shouldRetryDeadlocks"));
+
+        a(result).shouldBeEqual("done");
+        a(attempts.get()).shouldBeEqual(3);
+        a(stats("shouldRetryDeadlocks").getTransactions()).shouldBeEqual(1);
+        a(stats("shouldRetryDeadlocks").getRetries()).shouldBeEqual(2);
+        the(Base.connection().getAutoCommit()).shouldBeTrue();
+    }
+
+    @Test
+    public void shouldGiveUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        DBException e = null;
+        try {
+            Base.inTransaction(failing(attempts, 10, new SQLException("serialization failure", "40001")),
+                    new RetryPolicy().maxAttempts(2).initialBackoff(1).name("shouldGiveUpAfterMaxAttempts"));
+        } catch (DBException ex) {
+            e = ex;
+        }
+        a(e).shouldNotBeNull();
+        a(attempts.get()).shouldBeEqual(2);
+        a(stats("shouldGiveUpAfterMaxAttempts").getExhausted()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldNotRetryOtherErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+        IllegalStateException e = null;
+        try {
+            Base.inTransaction(failing(attempts, 10, new IllegalStateException("boom")));
+        } catch (IllegalStateException ex) {
+            e = ex;
+        }
+        a(e).shouldNotBeNull();
+        a(attempts.get()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldJoinOpenTransactionWithoutRetries() {
+        Base.openTransaction();
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            Base.inTransaction(failing(attempts, 10, new DBException(new SQLException("deadlock", "40001"))));
+        } catch (DBException ignore) {}
+        a(attempts.get()).shouldBeEqual(1);
+        Base.rollbackTransaction();
+    }
+
+    @Test
+    public void shouldGrowBackoffUpToMaximum() {
+        RetryPolicy policy = new RetryPolicy().initialBackoff(10).maxBackoff(50);
+        for (int i = 0; i < 20; i++) {
+            the(policy.backoff(1) <= 10).shouldBeTrue();
+            the(policy.backoff(10) <= 50).shouldBeTrue();
+        }
+    }
+}
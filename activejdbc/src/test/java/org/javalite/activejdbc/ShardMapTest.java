@@ -0,0 +1,191 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.cache.CacheStats;
+import org.javalite.activejdbc.cache.QueryCache;
+import org.javalite.activejdbc.dialects.DefaultDialect;
+import org.javalite.activejdbc.mock.MockDataSource;
+import org.javalite.activejdbc.test_models.CachedTemperature;
+import org.javalite.activejdbc.test_models.Temperature;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
+
+
+public class ShardMapTest {
+
+    @Before
+    public void before() {
+        // shards are queried on separate connections, so data has to be committed
+        Base.open(driver(), url(), user(), password());
+        cleanup();
+        for (int temp : new int[]{10, 30, 50}) {
+            Base.exec("insert into shard1_temperatures (temp) values (?)", temp);
+        }
+        for (int temp : new int[]{20, 40}) {
+            Base.exec("insert into shard2_temperatures (temp) values (?)", temp);
+        }
+        ShardMap.register(Temperature.class, ShardMap.hashed(
+                new Shard("shard1", new MockDataSource(), "shard1_temperatures"),
+                new Shard("shard2", new MockDataSource(), "shard2_temperatures")));
+    }
+
+    @After
+    public void after() {
+        cleanup();
+        Base.close();
+    }
+
+    private void cleanup() {
+        Base.exec("delete from shard1_temperatures");
+        Base.exec("delete from shard2_temperatures");
+    }
+
+    @Test
+    public void shouldRouteByKey() {
+        ShardMap shardMap = ShardMap.of(Temperature.class);
+        a(shardMap.shardFor(2).getName()).shouldBeEqual("shard1");
+        a(shardMap.shardFor(3L).getName()).shouldBeEqual("shard2");
+        a(shardMap.shardFor(-3).getName()).shouldBeEqual("shard2");
+
+        Long count = Temperature.onShard(2, new Callable<Long>() {
+            @Override public Long call() {
+                return Temperature.count();
+            }
+        });
+        a(count).shouldBeEqual(3);
+        the(Temperature.metaModel().getTableName()).shouldBeEqual("temperatures");
+    }
+
+    @Test
+    public void shouldInsertIntoShardOfKey() {
+        Temperature.onShard(1, new Callable<Boolean>() {
+            @Override public Boolean call() {
+                return new Temperature().set("temp", 60).saveIt();
+            }
+        });
+        a(Base.count("shard2_temperatures")).shouldBeEqual(3);
+    }
+
+    @Test
+    public void shouldCountAcrossShards() {
+        a(Temperature.countAcrossShards()).shouldBeEqual(5);
+        a(Temperature.countAcrossShards("temp > ?", 15)).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldMergeOrderedResults() {
+        a(temps(Temperature.<Temperature>findAcrossShards("temp > ?", 0).orderBy("temp desc")))
+                .shouldBeEqual("[50, 40, 30, 20, 10]");
+        a(temps(Temperature.<Temperature>findAcrossShards("*").orderBy("temp").offset(1).limit(3)))
+                .shouldBeEqual("[20, 30, 40]");
+    }
+
+    @Test
+    public void shouldMergeNullsWhereDatabasePlacesThem() {
+        Base.exec("insert into shard2_temperatures (temp) values (null)");
+        boolean nullsHigh = DefaultDialect.of(Temperature.metaModel().getDialect()).nullsSortHigh();
+        a(temps(Temperature.<Temperature>findAcrossShards("*").orderBy("temp")))
+                .shouldBeEqual(nullsHigh ? "[10, 20, 30, 40, 50, null]" : "[null, 10, 20, 30, 40, 50]");
+        a(temps(Temperature.<Temperature>findAcrossShards("*").orderBy("temp desc").limit(2)))
+                .shouldBeEqual(nullsHigh ? "[null, 50]" : "[50, 40]");
+    }
+
+    @Test
+    public void shouldCompareValuesOfDifferentTypes() {
+        a(ShardedQuery.compareValues(2, 10L)).shouldBeEqual(-1);
+        a(ShardedQuery.compareValues(new BigDecimal("10.5"), 10)).shouldBeEqual(1);
+        a(ShardedQuery.compareValues(3.0, 3L)).shouldBeEqual(0);
+        a(ShardedQuery.compareValues("b", 'a')).shouldBeEqual(1);
+        a(ShardedQuery.compareValues(new java.sql.Date(1000), new Timestamp(2000))).shouldBeEqual(-1);
+    }
+
+    @Test
+    public void shouldRejectOrderByExpressionsBeforeQueryingShards() {
+        for (String orderBy : new String[]{"coalesce(temp, 0)", "temp + 1", "temp desc desc"}) {
+            IllegalArgumentException e = null;
+            try {
+                Temperature.findAcrossShards("*").orderBy(orderBy);
+            } catch (IllegalArgumentException ex) {
+                e = ex;
+            }
+            a(e).shouldNotBeNull();
+        }
+        Temperature.findAcrossShards("*").orderBy("shard1_temperatures.temp DESC NULLS LAST, id");
+    }
+
+    @Test
+    public void shouldConcatenateUnorderedResults() {
+        a(Temperature.findAcrossShards("temp < ?", 45).load().size()).shouldBeEqual(4);
+        a(Temperature.findAcrossShards("*").limit(2).load().size()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldNotShareCachedResultsBetweenShardsOfSameTable() {
+        ShardMap.register(CachedTemperature.class, ShardMap.hashed(
+                new Shard("shard1", new MockDataSource()), new Shard("shard2", new MockDataSource())));
+        QueryCache.instance().purgeTableCache("shard1_temperatures");
+        long hits = cacheHits(), misses = cacheMisses();
+
+        a(CachedTemperature.countAcrossShards()).shouldBeEqual(6); // both shards hold the same table here
+        a(cacheHits()).shouldBeEqual(hits);
+        a(cacheMisses()).shouldBeEqual(misses + 2);
+
+        a(CachedTemperature.countAcrossShards()).shouldBeEqual(6);
+        a(cacheHits()).shouldBeEqual(hits + 2);
+
+        Long count = CachedTemperature.onShard(1, new Callable<Long>() {
+            @Override public Long call() {
+                return CachedTemperature.count();
+            }
+        });
+        a(count).shouldBeEqual(3);
+        a(cacheHits()).shouldBeEqual(hits + 3);
+        a(CachedTemperature.count()).shouldBeEqual(3);
+        a(cacheMisses()).shouldBeEqual(misses + 3); // not a shard, not cached yet
+    }
+
+    private long cacheHits() {
+        CacheStats stats = QueryCache.instance().getStats().get("shard1_temperatures");
+        return stats == null ? 0 : stats.getHits();
+    }
+
+    private long cacheMisses() {
+        CacheStats stats = QueryCache.instance().getStats().get("shard1_temperatures");
+        return stats == null ? 0 : stats.getMisses();
+    }
+
+    private String temps(ShardedQuery<Temperature> query) {
+        List<Object> res = new ArrayList<Object>();
+        for (Temperature t : query.load()) {
+            res.add(t.getInteger("temp"));
+        }
+        return res.toString();
+    }
+}
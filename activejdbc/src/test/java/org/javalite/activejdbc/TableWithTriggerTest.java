@@ -0,0 +1,42 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.StampedNote;
+import org.junit.Test;
+
+import static org.javalite.activejdbc.test.JdbcProperties.db;
+
+
+public class TableWithTriggerTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldWriteToTableWithTrigger() {
+        if (!db().equals("mssql")) {
+            return; // SQL Server rejects OUTPUT clause without INTO on such tables
+        }
+        StampedNote note = new StampedNote();
+        note.set("note", "first").saveIt();
+        note.refresh();
+        a(note.get("stamp")).shouldBeEqual("set by trigger");
+
+        note.set("note", "second").saveIt();
+        a(((StampedNote) StampedNote.findById(note.getId())).get("note")).shouldBeEqual("second");
+    }
+}
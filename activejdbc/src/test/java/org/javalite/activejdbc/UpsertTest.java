@@ -0,0 +1,123 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Developer;
+import org.javalite.activejdbc.test_models.Person;
+import org.javalite.activejdbc.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class UpsertTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldUpdateExistingRecord() {
+        deleteAndPopulateTable("people");
+        Person person = new Person();
+        person.set("id", 1, "name", "Jim", "last_name", "Smithers");
+        a(person.upsert()).shouldBeTrue();
+
+        a(Person.count()).shouldBeEqual(4);
+        Person fromDb = (Person) Person.findById(1);
+        a(fromDb.get("name")).shouldBeEqual("Jim");
+        a(fromDb.get("last_name")).shouldBeEqual("Smithers");
+        a(fromDb.get("dob")).shouldNotBeNull();
+        a(fromDb.get("updated_at")).shouldNotBeNull();
+    }
+
+    @Test
+    public void shouldInsertNewRecord() {
+        deleteAndPopulateTable("people");
+        Person person = new Person();
+        person.set("id", 10, "name", "Jim", "last_name", "Smithers");
+        a(person.upsert()).shouldBeTrue();
+
+        a(Person.count()).shouldBeEqual(5);
+        Person fromDb = (Person) Person.findById(10);
+        a(fromDb.get("name")).shouldBeEqual("Jim");
+        a(fromDb.get("created_at")).shouldNotBeNull();
+    }
+
+    @Test
+    public void shouldInsertRecordWithoutId() {
+        deleteAndPopulateTable("people");
+        Person person = new Person();
+        person.set("name", "Jim", "last_name", "Smithers");
+        a(person.upsert()).shouldBeTrue();
+        a(person.getId()).shouldNotBeNull();
+        a(Person.count()).shouldBeEqual(5);
+    }
+
+    @Test
+    public void shouldNotUpsertInvalidModel() {
+        deleteAndPopulateTable("people");
+        Person person = new Person();
+        person.set("id", 1, "name", "Jim");
+        a(person.upsert()).shouldBeFalse();
+        a(((Person) Person.findById(1)).get("name")).shouldBeEqual("John");
+    }
+
+    @Test
+    public void shouldUpsertCompositeKeys() {
+        deleteFromTable("developers");
+        Developer.createIt("first_name", "Johnny", "last_name", "Cash", "email", "j.cash@spam.org", "address", "123 Pine St");
+
+        Developer developer = new Developer();
+        developer.set("first_name", "Johnny", "last_name", "Cash", "email", "j.cash@spam.org", "address", "456 Oak St");
+        a(developer.upsert()).shouldBeTrue();
+        developer = new Developer();
+        developer.set("first_name", "June", "last_name", "Carter", "email", "j.carter@spam.org", "address", "456 Oak St");
+        a(developer.upsert()).shouldBeTrue();
+
+        a(Developer.count()).shouldBeEqual(2);
+        a(Developer.findFirst("first_name = ?", "Johnny").get("address")).shouldBeEqual("456 Oak St");
+    }
+
+    @Test
+    public void shouldUpsertAll() {
+        deleteAndPopulateTable("people");
+        Person john = new Person();
+        john.set("id", 1, "name", "Jim", "last_name", "Smithers");
+        Person jane = new Person();
+        jane.set("id", 10, "name", "Jane", "last_name", "Doe");
+        Person noId = new Person();
+        noId.set("name", "Bob", "last_name", "Dylan");
+        Model.upsertAll(Arrays.asList(john, jane, noId));
+
+        a(Person.count()).shouldBeEqual(6);
+        a(((Person) Person.findById(1)).get("name")).shouldBeEqual("Jim");
+        a(((Person) Person.findById(10)).get("name")).shouldBeEqual("Jane");
+        a(noId.getId()).shouldNotBeNull();
+    }
+
+    @Test
+    public void shouldValidateAllBeforeUpsertAll() {
+        deleteAndPopulateTable("people");
+        Person valid = new Person();
+        valid.set("id", 10, "name", "Jane", "last_name", "Doe");
+        Person invalid = new Person();
+        invalid.set("id", 11, "name", "Bob");
+        try {
+            Model.upsertAll(Arrays.asList(valid, invalid));
+            throw new AssertionError("expected ValidationException");
+        } catch (ValidationException expected) {}
+        a(Person.count()).shouldBeEqual(4);
+    }
+}
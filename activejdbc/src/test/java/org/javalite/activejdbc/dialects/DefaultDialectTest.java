@@ -15,8 +15,12 @@ limitations under the License.
 */
 package org.javalite.activejdbc.dialects;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.javalite.activejdbc.test_models.Patient;
 import org.javalite.activejdbc.test_models.Person;
@@ -84,4 +88,27 @@ public class DefaultDialectTest extends ActiveJDBCTest {
         a(dialect.formSelect("people", " ORDER  by last_name", new ArrayList<String>(), 1, 1)).shouldBeEqual(
                 "SELECT * FROM people  ORDER  by last_name");
     }
+
+    @Test
+    public void shouldAdaptDialectsNotExtendingDefaultDialect() {
+        final Dialect mySql = new MySQLDialect();
+        Dialect custom = (Dialect) Proxy.newProxyInstance(Dialect.class.getClassLoader(), new Class[]{Dialect.class},
+                new InvocationHandler() {
+                    @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        return method.invoke(mySql, args);
+                    }
+                });
+        a(DefaultDialect.of(dialect)).shouldBeTheSameAs(dialect);
+        DefaultDialect adapted = DefaultDialect.of(custom);
+        the(adapted.bindsLimits()).shouldBeFalse();
+
+        List<Object> params = new ArrayList<Object>();
+        a(adapted.formSelect("people", "name = ?", Arrays.asList("name"), 10, 20, params)).shouldBeEqual(
+                custom.formSelect("people", "name = ?", Arrays.asList("name"), 10, 20));
+        adapted.addLimitParams(params, 10, 20);
+        a(params.size()).shouldBeEqual(0);
+        a(adapted.selectStar("people")).shouldBeEqual(custom.selectStar("people"));
+        a(adapted.validationQuery()).shouldBeEqual("SELECT 1");
+        a(adapted.selectStarWithTotalCount("people", null, "total")).shouldBeNull();
+    }
 }
@@ -2,7 +2,9 @@ package org.javalite.activejdbc.dialects;
 
 import static org.javalite.test.jspec.JSpec.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 
@@ -28,6 +30,16 @@ public class MSSQLDialectTest {
                         + ") AS sq WHERE rownumber BETWEEN 21 AND 30");
     }
 
+    @Test
+    public void testSelectStarWithTotalCount() {
+        String query = dialect.selectStarWithTotalCount("pages", "content LIKE ?", "total_count");
+        a(query).shouldBeEqual("SELECT pages.*, COUNT(*) OVER() AS total_count FROM pages WHERE content LIKE ?");
+        a(dialect.formSelect(null, query, Arrays.asList("page_id"), 10, 20)).shouldBeEqual(
+                "SELECT sq.* FROM (SELECT ROW_NUMBER() OVER (ORDER BY page_id) AS rownumber, "
+                        + "pages.*, COUNT(*) OVER() AS total_count FROM pages WHERE content LIKE ?"
+                        + ") AS sq WHERE rownumber BETWEEN 21 AND 30");
+    }
+
     @Test
     public void testLimitOnlyNoOffset() {
         a(dialect.formSelect("pages", "", Arrays.asList("page_id"), 10, -1)).shouldBeEqual(
@@ -62,4 +74,56 @@ public class MSSQLDialectTest {
                                 + "* FROM items WHERE item_description LIKE '%2%'"
                                 + ") AS sq WHERE rownumber BETWEEN 272 AND 551");
     }
+
+    @Test
+    public void testBoundLimitOffset() {
+        List<Object> params = new ArrayList<Object>();
+        a(dialect.formSelect("pages", "", Arrays.asList("page_id"), 10, 20, params)).shouldBeEqual(
+                "SELECT sq.* FROM (SELECT ROW_NUMBER() OVER (ORDER BY page_id) AS rownumber, * FROM pages"
+                        + ") AS sq WHERE rownumber BETWEEN ? AND ?");
+        a(params).shouldBeEqual(Arrays.<Object>asList(21L, 30L));
+    }
+
+    @Test
+    public void testBoundLimitPrecedesSubQueryParams() {
+        List<Object> params = new ArrayList<Object>();
+        params.add("test");
+        a(dialect.formSelect("pages", "content = ?", Arrays.asList("page_id"), 10, -1, params)).shouldBeEqual(
+                "SELECT TOP (?) * FROM pages WHERE content = ? ORDER BY page_id");
+        a(params).shouldBeEqual(Arrays.<Object>asList(10L, "test"));
+    }
+
+    @Test
+    public void testAddLimitParamsLikeFormSelect() {
+        List<Object> formed = new ArrayList<Object>(Arrays.<Object>asList("test"));
+        dialect.formSelect("pages", "content = ?", Arrays.asList("page_id"), 10, -1, formed);
+        List<Object> added = new ArrayList<Object>(Arrays.<Object>asList("test"));
+        dialect.addLimitParams(added, 10, -1);
+        a(added).shouldBeEqual(formed);
+
+        formed = new ArrayList<Object>();
+        dialect.formSelect("pages", "", Arrays.asList("page_id"), 10, 20, formed);
+        added = new ArrayList<Object>();
+        dialect.addLimitParams(added, 10, 20);
+        a(added).shouldBeEqual(formed);
+    }
+
+    @Test
+    public void testReturningAll() {
+        a(dialect.returningAll("INSERT INTO people (name, last_name) VALUES (?, ?)")).shouldBeNull();
+
+        MSSQLDialect outputInserted = new MSSQLDialect(true);
+        a(outputInserted.returningAll("INSERT INTO people (name, last_name) VALUES (?, ?)")).shouldBeEqual(
+                "INSERT INTO people (name, last_name) OUTPUT INSERTED.* VALUES (?, ?)");
+        a(outputInserted.returningAll("INSERT INTO people DEFAULT VALUES")).shouldBeEqual(
+                "INSERT INTO people OUTPUT INSERTED.* DEFAULT VALUES");
+        a(outputInserted.returningAll("UPDATE people SET name = ? WHERE id = ?")).shouldBeEqual(
+                "UPDATE people SET name = ? OUTPUT INSERTED.* WHERE id = ?");
+        a(outputInserted.returningAll(outputInserted.upsertParametrized("people", Arrays.asList("id", "name"),
+                Arrays.asList("id"), Arrays.asList("name"), null))).shouldBeEqual(
+                "MERGE INTO people t USING (VALUES (?, ?)) s (id, name) ON (t.id = s.id)"
+                        + " WHEN MATCHED THEN UPDATE SET t.name = s.name"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name) OUTPUT INSERTED.*;");
+        a(outputInserted.returningAll("DELETE FROM people WHERE id = ?")).shouldBeNull();
+    }
 }
@@ -17,6 +17,7 @@ package org.javalite.activejdbc.dialects;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -96,4 +97,24 @@ public class OracleDialectTest extends ActiveJDBCTest {
                 "SELECT * FROM (SELECT t2.* FROM (SELECT t.* FROM member_goal_action t ORDER BY created_at DESC) t2) WHERE ROWNUM <= 1");
     }
 
+    @Test
+    public void testBoundLimitOffset() {
+        List<Object> params = new ArrayList<Object>();
+        a(dialect.formSelect("pages", "", Arrays.asList("page_id"), 10, 20, params)).shouldBeEqual(
+                "SELECT * FROM (SELECT t2.*, ROWNUM AS oracle_row_number FROM ("
+                        + "SELECT t.* FROM pages t ORDER BY page_id"
+                        + ") t2) WHERE oracle_row_number >= ? AND ROWNUM <= ?");
+        a(params).shouldBeEqual(Arrays.<Object>asList(21L, 10L));
+    }
+
+    @Test
+    public void testUpsert() {
+        a(dialect.upsertParametrized("people", Arrays.asList("id", "name", "created_at", "record_version"),
+                Arrays.asList("id"), Arrays.asList("name"), "record_version")).shouldBeEqual(
+                "MERGE INTO people t USING (SELECT ? id, ? name, ? created_at, ? record_version FROM DUAL) s"
+                        + " ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET t.name = s.name,"
+                        + " t.record_version = t.record_version + 1"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name, created_at, record_version)"
+                        + " VALUES (s.id, s.name, s.created_at, s.record_version)");
+    }
 }
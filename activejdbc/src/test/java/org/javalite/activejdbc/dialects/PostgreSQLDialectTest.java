@@ -17,6 +17,7 @@ package org.javalite.activejdbc.dialects;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.javalite.activejdbc.test.ActiveJDBCTest;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -52,6 +53,14 @@ public class PostgreSQLDialectTest extends ActiveJDBCTest {
                 "SELECT * FROM people ORDER BY last_name, name");
     }
 
+    @Test
+    public void testPageOfSelectStarWithTotalCount() {
+        String query = dialect.selectStarWithTotalCount("people", "last_name = ?", "total");
+        a(dialect.formSelect(null, query, Arrays.asList("name"), 10, 20)).shouldBeEqual(
+                "SELECT people.*, COUNT(*) OVER() AS total FROM people WHERE last_name = ? ORDER BY name LIMIT 10 OFFSET 20");
+        a(new H2Dialect().selectStarWithTotalCount("people", null, "total")).shouldBeNull();
+    }
+
     @Test
     public void testFormSelectWithLimitOffset() {
         a(dialect.formSelect("people", null, new ArrayList<String>(), 1, -1)).shouldBeEqual(
@@ -65,4 +74,73 @@ public class PostgreSQLDialectTest extends ActiveJDBCTest {
         a(dialect.formSelect("people", "name = ?", Arrays.asList("name"), 10, 10)).shouldBeEqual(
                 "SELECT * FROM people WHERE name = ? ORDER BY name LIMIT 10 OFFSET 10");
     }
+
+    @Test
+    public void testFormSelectWithBoundLimitOffset() {
+        List<Object> params = new ArrayList<Object>();
+        params.add("John");
+        a(dialect.formSelect("people", "name = ?", Arrays.asList("name"), 10, 20, params)).shouldBeEqual(
+                "SELECT * FROM people WHERE name = ? ORDER BY name LIMIT ? OFFSET ?");
+        a(params).shouldBeEqual(Arrays.<Object>asList("John", 10L, 20L));
+    }
+
+    @Test
+    public void testKeysetCondition() {
+        List<Object> params = new ArrayList<Object>();
+        a(dialect.keysetCondition(Arrays.asList("created_at", "id"), new boolean[]{true, true},
+                new Object[]{"2015-01-01", 5L}, params)).shouldBeEqual("(created_at, id) < (?, ?)");
+        a(params).shouldBeEqual(Arrays.<Object>asList("2015-01-01", 5L));
+
+        params.clear();
+        a(dialect.keysetCondition(Arrays.asList("a", "b", "c"), new boolean[]{false, true, false},
+                new Object[]{1, 2, 3}, params)).shouldBeEqual("(a > ? OR (a = ? AND b < ?) OR (a = ? AND b = ? AND c > ?))");
+        a(params).shouldBeEqual(Arrays.<Object>asList(1, 1, 2, 1, 2, 3));
+    }
+
+    @Test
+    public void testSelectStarWithTotalCount() {
+        a(dialect.selectStarWithTotalCount("people", "name = ?", "total")).shouldBeEqual(
+                "SELECT people.*, COUNT(*) OVER() AS total FROM people WHERE name = ?");
+        a(dialect.selectStarWithTotalCount("people", null, "total")).shouldBeEqual(
+                "SELECT people.*, COUNT(*) OVER() AS total FROM people");
+    }
+
+    @Test
+    public void testCountEstimate() {
+        a(dialect.selectCountEstimate("people", null)).shouldBeEqual(
+                "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE oid = 'people'::regclass");
+        a(dialect.selectCountEstimate("people", "SELECT 1 FROM people WHERE name = ?")).shouldBeEqual(
+                "EXPLAIN (FORMAT JSON) SELECT 1 FROM people WHERE name = ?");
+        a(dialect.toCountEstimate(1500L)).shouldBeEqual(1500L);
+        a(dialect.toCountEstimate("[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Plan Rows\": 2550, \"Plan Width\": 4}}]"))
+                .shouldBeEqual(2550L);
+        a(dialect.toCountEstimate("nothing")).shouldBeEqual(-1L);
+    }
+
+    @Test
+    public void testUpsert() {
+        List<String> columns = Arrays.asList("id", "name", "created_at", "record_version");
+        a(dialect.upsertParametrized("public.people", columns, Arrays.asList("id"), Arrays.asList("name"), "record_version"))
+                .shouldBeEqual("INSERT INTO public.people (id, name, created_at, record_version) VALUES (?, ?, ?, ?)"
+                        + " ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, record_version = people.record_version + 1");
+        a(dialect.upsertParametrized("people", Arrays.asList("id"), Arrays.asList("id"), new ArrayList<String>(), null))
+                .shouldBeEqual("INSERT INTO people (id) VALUES (?) ON CONFLICT (id) DO NOTHING");
+        a(new MySQLDialect().upsertParametrized("people", columns, Arrays.asList("id"), Arrays.asList("name"), "record_version"))
+                .shouldBeEqual("INSERT INTO people (id, name, created_at, record_version) VALUES (?, ?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE name = VALUES(name), record_version = record_version + 1");
+        a(new H2Dialect().upsertParametrized("people", columns, Arrays.asList("id"), Arrays.asList("name"), null))
+                .shouldBeNull();
+        a(new H2Dialect().upsertParametrized("people", Arrays.asList("id", "name"), Arrays.asList("id"), Arrays.asList("name"), null))
+                .shouldBeEqual("MERGE INTO people (id, name) KEY (id) VALUES (?, ?)");
+    }
+
+    @Test
+    public void testReturningAll() {
+        a(dialect.returningAll("INSERT INTO people (name) VALUES (?)")).shouldBeEqual(
+                "INSERT INTO people (name) VALUES (?) RETURNING *");
+        a(dialect.returningAll("UPDATE people SET name = ? WHERE id = ?")).shouldBeEqual(
+                "UPDATE people SET name = ? WHERE id = ? RETURNING *");
+        a(new H2Dialect().returningAll("UPDATE people SET name = ? WHERE id = ?")).shouldBeNull();
+        a(new MySQLDialect().returningAll("UPDATE people SET name = ? WHERE id = ?")).shouldBeNull();
+    }
 }
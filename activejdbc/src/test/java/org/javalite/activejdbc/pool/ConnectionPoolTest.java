@@ -0,0 +1,158 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.pool;
+
+import org.javalite.activejdbc.ConnectionJdbcSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+
+import static org.javalite.activejdbc.test.JdbcProperties.*;
+import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
+
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool pool;
+
+    @Before
+    public void before() {
+        pool = new ConnectionPool(new ConnectionJdbcSpec(driver(), url(), user(), password()),
+                new PoolConfig(2).acquireTimeout(100).validationInterval(0));
+    }
+
+    @After
+    public void after() {
+        pool.close();
+    }
+
+    @Test
+    public void shouldReuseReturnedConnection() throws SQLException {
+        Connection c1 = pool.getConnection();
+        Connection physical = ((PooledConnection) c1).physical();
+        c1.close();
+        the(c1.isClosed()).shouldBeTrue();
+
+        Connection c2 = pool.getConnection();
+        a(c2).shouldNotBeTheSameAs(c1);
+        a(((PooledConnection) c2).physical()).shouldBeTheSameAs(physical);
+        c2.close();
+
+        a(pool.getCreatedCount()).shouldBeEqual(1);
+        a(pool.getBorrowCount()).shouldBeEqual(2);
+        a(pool.getSize()).shouldBeEqual(1);
+        a(pool.getIdle()).shouldBeEqual(1);
+    }
+
+    @Test
+    public void shouldRejectUseOfReturnedConnection() throws SQLException {
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.close(); // second close is ignored
+        a(pool.getActive()).shouldBeEqual(0);
+
+        SQLException e = null;
+        try {
+            connection.createStatement();
+        } catch (SQLException ex) {
+            e = ex;
+        }
+        a(e).shouldNotBeNull();
+    }
+
+    @Test
+    public void shouldTimeOutWhenExhausted() throws SQLException {
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+        SQLException e = null;
+        try {
+            pool.getConnection();
+        } catch (SQLTimeoutException ex) {
+            e = ex;
+        }
+        a(e).shouldNotBeNull();
+        a(pool.getTimeoutCount()).shouldBeEqual(1);
+        a(pool.getWaitCount()).shouldBeEqual(1);
+
+        c1.close();
+        Connection c3 = pool.getConnection();
+        a(pool.getActive()).shouldBeEqual(2);
+        c2.close();
+        c3.close();
+    }
+
+    @Test
+    public void shouldRollBackAndReplaceBrokenConnections() throws SQLException {
+        Connection connection = pool.getConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+
+        connection = pool.getConnection();
+        the(connection.getAutoCommit()).shouldBeTrue();
+        ((PooledConnection) connection).physical().close(); // simulate a connection dropped by database
+        connection.close();
+        a(pool.getDestroyedCount()).shouldBeEqual(1);
+
+        connection = pool.getConnection();
+        the(connection.isClosed()).shouldBeFalse();
+        connection.close();
+        a(pool.getCreatedCount()).shouldBeEqual(2);
+    }
+
+    @Test
+    public void shouldEvictIdleConnections() throws SQLException, InterruptedException {
+        ConnectionPool idlePool = new ConnectionPool(new ConnectionJdbcSpec(driver(), url(), user(), password()),
+                new PoolConfig(3).minSize(1).idleTimeout(1));
+        try {
+            Connection c1 = idlePool.getConnection();
+            Connection c2 = idlePool.getConnection();
+            a(idlePool.getSize()).shouldBeEqual(2);
+            c1.close();
+            c2.close();
+            Thread.sleep(10);
+            idlePool.evict();
+            a(idlePool.getSize()).shouldBeEqual(1);
+        } finally {
+            idlePool.close();
+        }
+        a(idlePool.getSize()).shouldBeEqual(0);
+    }
+
+    @Test
+    public void shouldReadConfigFromProperties() {
+        Properties props = new Properties();
+        a(PoolConfig.fromProperties(props, "test.pool.")).shouldBeNull();
+
+        props.setProperty("test.pool.maxSize", "10");
+        props.setProperty("test.pool.minSize", "2");
+        props.setProperty("test.pool.acquireTimeout", "500");
+        props.setProperty("test.pool.validate", "false");
+        PoolConfig config = PoolConfig.fromProperties(props, "test.pool.");
+        a(config.getMaxSize()).shouldBeEqual(10);
+        a(config.getMinSize()).shouldBeEqual(2);
+        a(config.getAcquireTimeout()).shouldBeEqual(500L);
+        the(config.isValidate()).shouldBeFalse();
+        a(config.getIdleTimeout()).shouldBeEqual(600000L);
+    }
+}
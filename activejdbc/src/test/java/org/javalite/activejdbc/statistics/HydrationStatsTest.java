@@ -0,0 +1,85 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import org.javalite.activejdbc.ModelListener;
+import org.javalite.activejdbc.Registry;
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Address;
+import org.javalite.activejdbc.test_models.User;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HydrationStatsTest extends ActiveJDBCTest {
+
+    private HydrationStats statsOf(Class modelClass) {
+        for (HydrationStats stats : Registry.instance().getStatisticsQueue().getHydrationReport()) {
+            if (stats.getModelClass().equals(modelClass.getName())) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void shouldCollectHydrationStatsPerModel() {
+        deleteAndPopulateTables("users", "addresses");
+        Registry.instance().getStatisticsQueue().reset();
+
+        List<User> users = User.findAll().orderBy("id").include(Address.class);
+        a(users.size()).shouldBeEqual(2);
+
+        HydrationStats userStats = statsOf(User.class);
+        a(userStats.getQueries()).shouldBeEqual(1);
+        a(userStats.getRows()).shouldBeEqual(2);
+        a(userStats.getInstances()).shouldBeEqual(2);
+        the(userStats.getBytes() > 0).shouldBeTrue();
+
+        HydrationStats addressStats = statsOf(Address.class);
+        a(addressStats.getRows()).shouldBeEqual(7);
+        a(addressStats.getInstances()).shouldBeEqual(7);
+    }
+
+    @Test
+    public void shouldCollectHydrationStatsOfFindWith() {
+        deleteAndPopulateTable("addresses");
+        Registry.instance().getStatisticsQueue().reset();
+
+        final int[] count = new int[1];
+        Address.findWith(new ModelListener<Address>() {
+            @Override public void onModel(Address address) {
+                count[0]++;
+            }
+        }, "user_id = ?", 2);
+
+        a(count[0]).shouldBeEqual(4);
+        a(statsOf(Address.class).getInstances()).shouldBeEqual(4);
+    }
+
+    @Test
+    public void shouldEstimateSize() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("id", 1);
+        attributes.put("name", "John");
+        attributes.put("description", null);
+        a(HydrationStats.estimateSize(attributes)).shouldBeEqual(48 + 3 * 40 + 24 + 48);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.statistics;
+
+import org.javalite.activejdbc.QueryBudgetExceededException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.javalite.test.jspec.JSpec.a;
+import static org.javalite.test.jspec.JSpec.the;
+
+public class QueryTrackerTest {
+
+    @After
+    public void tearDown() {
+        QueryTracker.stop();
+    }
+
+    @Test
+    public void shouldCountQueriesAndTime() {
+        QueryTracker tracker = QueryTracker.start(null);
+        the(QueryTracker.current()).shouldBeTheSameAs(tracker);
+        tracker.onQuery("select * from people", 10);
+        tracker.onQuery("select * from addresses", 5);
+
+        a(tracker.getQueryCount()).shouldBeEqual(2);
+        a(tracker.getDbTime()).shouldBeEqual(15);
+        a(tracker.getQueries().size()).shouldBeEqual(2);
+        a(tracker.getQueries().get(0).getQuery()).shouldBeEqual("select * from people");
+        the(tracker.hasProblems()).shouldBeFalse();
+
+        the(QueryTracker.stop()).shouldBeTheSameAs(tracker);
+        the(QueryTracker.current()).shouldBeNull();
+    }
+
+    @Test
+    public void shouldDetectRepeatedQueries() {
+        QueryTracker tracker = QueryTracker.start(new QueryBudget(0, 0, 3, false));
+        tracker.onQuery("select * from people", 1);
+        for (int i = 0; i < 10; i++) {
+            tracker.onQuery("SELECT * FROM users WHERE id = ?", 1);
+        }
+        tracker.onQuery("SELECT * FROM addresses WHERE user_id IN (1, 2, 3)", 1);
+        tracker.onQuery("SELECT * FROM addresses WHERE user_id IN (4, 5)", 1);
+
+        List<QueryStats> repeated = tracker.getRepeatedQueries();
+        a(repeated.size()).shouldBeEqual(1);
+        a(repeated.get(0).getQuery()).shouldBeEqual("SELECT * FROM users WHERE id = ?");
+        a(repeated.get(0).getCount()).shouldBeEqual(10);
+        the(tracker.getOrigin("SELECT * FROM users WHERE id = ?")).shouldNotBeNull();
+        the(tracker.hasProblems()).shouldBeTrue();
+        the(tracker.summary()).shouldContain("suspected N+1");
+    }
+
+    @Test
+    public void shouldReportExceededBudget() {
+        QueryTracker tracker = QueryTracker.start(new QueryBudget(2, 0, 0, false));
+        tracker.onQuery("select 1", 1);
+        tracker.onQuery("select 2", 1);
+        the(tracker.isBudgetExceeded()).shouldBeFalse();
+        tracker.onQuery("select 3", 1);
+        the(tracker.isBudgetExceeded()).shouldBeTrue();
+        the(tracker.summary()).shouldContain("budget exceeded");
+    }
+
+    @Test(expected = QueryBudgetExceededException.class)
+    public void shouldFailFastWhenDbTimeExceeded() {
+        QueryTracker tracker = QueryTracker.start(new QueryBudget(0, 100, 0, true));
+        tracker.onQuery("select 1", 60);
+        tracker.onQuery("select 2", 60);
+    }
+
+    @Test
+    public void shouldFindAssociationMethodInStack() {
+        StackTraceElement[] stack = {
+                new StackTraceElement("org.javalite.activejdbc.DB", "findAll", "DB.java", 1),
+                new StackTraceElement("org.javalite.activejdbc.Model", "parent", "Model.java", 2),
+                new StackTraceElement("com.acme.OrdersController", "index", "OrdersController.java", 3)
+        };
+        a(QueryTracker.findOrigin(stack)).shouldBeEqual("parent() from com.acme.OrdersController.index(OrdersController.java:3)");
+    }
+}
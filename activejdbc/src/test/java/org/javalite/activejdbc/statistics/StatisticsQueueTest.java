@@ -116,4 +116,29 @@ public class StatisticsQueueTest {
         QueryExecutionEvent event = new QueryExecutionEvent("select * from pages where lesson_id=? order by the_index limit 1 offset 0", 1);
         the(event.getQuery()).shouldBeEqual("select * from pages where lesson_id=? order by the_index limit 1 offset ...");
     }
+
+    @Test
+    public void shouldCollectLatencyHistogramsByQueryType() throws ExecutionException, InterruptedException {
+        TimeHistogram select = histogramOf("select");
+        long selectCount = select.getCount(), selectTotal = select.getTotal(), selectFast = select.getCumulativeCounts()[1];
+        long insertCount = histogramOf("insert").getCount();
+        long otherCount = histogramOf("other").getCount();
+
+        wait(queue.enqueue(new QueryExecutionEvent("SELECT * FROM people", 3)));
+        wait(queue.enqueue(new QueryExecutionEvent(" select * from people where id = ?", 700)));
+        wait(queue.enqueue(new QueryExecutionEvent("INSERT INTO people (name) VALUES (?)", 2)));
+
+        select = histogramOf("select");
+        a(select.getCount() - selectCount).shouldBeEqual(2);
+        a(select.getTotal() - selectTotal).shouldBeEqual(703);
+        a(select.getMax()).shouldBeEqual(700);
+        a(select.getCumulativeCounts()[1] - selectFast).shouldBeEqual(1); // <= 5 milliseconds
+        a(histogramOf("insert").getCount() - insertCount).shouldBeEqual(1);
+        a(histogramOf("other").getCount()).shouldBeEqual(otherCount);
+    }
+
+    private TimeHistogram histogramOf(String type) {
+        TimeHistogram histogram = queue.getLatencyHistograms().get(type);
+        return histogram == null ? new TimeHistogram(type) : histogram;
+    }
 }
@@ -0,0 +1,47 @@
+/*
+Copyright 2009-2015 Igor Polevoy
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package org.javalite.activejdbc.web;
+
+import org.javalite.activejdbc.test.ActiveJDBCTest;
+import org.javalite.activejdbc.test_models.Person;
+import org.junit.Test;
+
+public class MetricsServletTest extends ActiveJDBCTest {
+
+    @Test
+    public void shouldAppendScaledValues() {
+        a(MetricsServlet.appendScaled(new StringBuilder(), 1, 3).toString()).shouldBeEqual("0.001");
+        a(MetricsServlet.appendScaled(new StringBuilder(), 2500, 3).toString()).shouldBeEqual("2.500");
+        a(MetricsServlet.appendScaled(new StringBuilder(), 10000, 4).toString()).shouldBeEqual("1.0000");
+        a(MetricsServlet.appendScaled(new StringBuilder(), 1234, 4).toString()).shouldBeEqual("0.1234");
+    }
+
+    @Test
+    public void shouldRenderMetrics() {
+        deleteAndPopulateTable("people");
+        Person.findAll().size();
+
+        StringBuilder sb = new StringBuilder();
+        new MetricsServlet().render(sb);
+        String text = sb.toString();
+        the(text).shouldContain("# TYPE activejdbc_query_duration_seconds histogram");
+        the(text).shouldContain("# TYPE activejdbc_statement_cache_hits_total counter");
+        the(text).shouldContain("# TYPE activejdbc_connection_hold_seconds histogram");
+        the(text).shouldContain("activejdbc_connections_held{db=\"default\"} 1");
+    }
+}
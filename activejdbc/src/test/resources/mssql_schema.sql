@@ -394,3 +394,11 @@ BEGIN
 END
 CREATE TABLE developers (first_name VARCHAR(56) NOT NULL, last_name VARCHAR(56) NOT NULL, email VARCHAR(56) NOT NULL, address VARCHAR(56), CONSTRAINT developers_uq UNIQUE (first_name, last_name, email));
 
+
+
+IF object_id('dbo.stamped_notes') IS NOT NULL
+BEGIN
+    DROP TABLE [dbo].[stamped_notes]
+END
+CREATE TABLE stamped_notes (id INT IDENTITY PRIMARY KEY, note VARCHAR(56), stamp VARCHAR(56));
+EXEC('CREATE TRIGGER stamped_notes_trigger ON stamped_notes AFTER INSERT AS UPDATE stamped_notes SET stamp = ''set by trigger'' WHERE id IN (SELECT id FROM inserted)');